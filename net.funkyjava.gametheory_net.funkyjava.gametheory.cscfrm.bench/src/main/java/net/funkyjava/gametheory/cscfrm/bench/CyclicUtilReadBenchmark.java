@@ -0,0 +1,142 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.exe.MonothreadCyclicUtilReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cross-step utility reads of a cyclic steps game sized like
+ * the push/fold SNG of NLHEHUPushFoldSNGBattle : a 1500 chips starting stack
+ * with a granularity of 50 gives 59 steps. Each operation publishes an
+ * iteration's utility to a random step, as the end of an engine iteration
+ * does, then reads the utility of other random steps, as its terminal nodes
+ * do. Compares reading the utility managers stripes on each read with reading
+ * their published snapshots. Scores are iterations per second.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CyclicUtilReadBenchmark {
+
+	/** The number of players. */
+	private static final int nbPlayers = 2;
+
+	/** The number of threads, and of the managers stripes. */
+	private static final int nbThreads = 8;
+
+	/** The number of terminal nodes read by an iteration. */
+	private static final int nbReads = 4;
+
+	/**
+	 * The steps utility managers.
+	 */
+	@State(Scope.Benchmark)
+	public static class Steps {
+
+		/** The number of steps. */
+		@Param({ "59" })
+		public int nbSteps;
+
+		/** The snapshot interval, zero to read the stripes. */
+		@Param({ "0", "64" })
+		public int snapshotInterval;
+
+		/** The utility managers. */
+		CSCFRMMultithreadUtilityManager[] utils;
+
+		/** The identity position mapping. */
+		int[][] posMapping;
+
+		/**
+		 * Creates the utility managers.
+		 */
+		@Setup
+		public void setUp() {
+			utils = new CSCFRMMultithreadUtilityManager[nbSteps];
+			posMapping = new int[nbSteps][nbPlayers];
+			for (int step = 0; step < nbSteps; step++) {
+				utils[step] = new CSCFRMMultithreadUtilityManager(nbPlayers,
+						nbThreads, snapshotInterval);
+				for (int p = 0; p < nbPlayers; p++)
+					posMapping[step][p] = p;
+			}
+		}
+	}
+
+	/**
+	 * A thread's reader, as owned by an engine.
+	 */
+	@State(Scope.Thread)
+	public static class Engine {
+
+		/** The reader. */
+		MonothreadCyclicUtilReader reader;
+
+		/** The random. */
+		final Random rand = new Random();
+
+		/** An iteration's utility. */
+		final double[] iterUtil = { 1, -1 };
+
+		/** The read utility. */
+		final double[] util = new double[nbPlayers];
+
+		/**
+		 * Creates the reader.
+		 *
+		 * @param steps
+		 *            the steps utility managers
+		 */
+		@Setup
+		public void setUp(Steps steps) {
+			reader = new MonothreadCyclicUtilReader(nbPlayers, steps.utils,
+					steps.posMapping);
+		}
+	}
+
+	/**
+	 * Publishes an iteration and reads terminal utilities.
+	 *
+	 * @param steps
+	 *            the steps utility managers
+	 * @param engine
+	 *            the thread's reader
+	 * @return a read value, to avoid dead code elimination
+	 * @throws InterruptedException
+	 *             never thrown
+	 */
+	@Benchmark
+	@Threads(nbThreads)
+	public double iteration(Steps steps, Engine engine)
+			throws InterruptedException {
+		final int nbSteps = steps.nbSteps;
+		final Random rand = engine.rand;
+		steps.utils[rand.nextInt(nbSteps)].addIterUtil(engine.iterUtil);
+		double res = 0;
+		for (int i = 0; i < nbReads; i++) {
+			engine.reader.read(rand.nextInt(nbSteps), engine.util);
+			res += engine.util[0];
+		}
+		return res;
+	}
+}
@@ -0,0 +1,129 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.NLHEHUPushFold;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.SpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.SpinLockNodesProvider;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.gameutil.poker.he.handeval.twoplustwo.TwoPlusTwoEvaluator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the effect of false sharing on the chance-sampling engine's
+ * iterations : 8 threads train the NLHE heads-up push/fold game, sharing its
+ * 338 spin lock player nodes backed by a flat store. In the packed layout,
+ * nodes created one after the other share cache lines, both their store
+ * segments and their objects. In the padded layout, each node's segment and
+ * object have their own lines. Run with at least 8 physical cores, e.g.
+ * <code>-t 16</code> to override the default threads count.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FalseSharingBenchmark {
+
+	/** The number of threads. */
+	private static final int nbThreads = 8;
+
+	/** Small blind. */
+	private static final int sb = 5;
+
+	/** Big blind. */
+	private static final int bb = 10;
+
+	/** Stacks. */
+	private static final int stack = 200;
+
+	/**
+	 * The evaluator and the game whose nodes are shared by all threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedGame {
+
+		/** Indicates whether the store and nodes are padded. */
+		@Param({ "false", "true" })
+		public boolean padded;
+
+		/** The evaluator. */
+		TwoPlusTwoEvaluator eval;
+
+		/** The source game. */
+		NLHEHUPushFold<SpinLockPlayerNode> game;
+
+		/** The engines configuration. */
+		CSCFRMConfig config;
+
+		/**
+		 * Builds the evaluator, the source game and the shared configuration.
+		 */
+		@Setup
+		public void setUp() {
+			eval = new TwoPlusTwoEvaluator();
+			final SpinLockNodesProvider provider = new SpinLockNodesProvider(
+					new FlatNodesStore(1024, false, padded));
+			game = new NLHEHUPushFold<>(provider, sb, bb, stack, stack, eval);
+			provider.getStore().trimToSize();
+			config = new CSCFRMConfig(true, true,
+					new CSCFRMMultithreadUtilityManager(2, nbThreads), null);
+		}
+	}
+
+	/**
+	 * A thread's engine, on a game sharing its nodes with the source game.
+	 */
+	@State(Scope.Thread)
+	public static class SharingEngine {
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Builds the thread's game and engine.
+		 *
+		 * @param shared
+		 *            the shared game
+		 */
+		@Setup
+		public void setUp(SharedGame shared) {
+			engine = new CSCFRMEngine(new NLHEHUPushFold<>(shared.game,
+					shared.eval));
+			engine.setConfig(shared.config);
+		}
+	}
+
+	/**
+	 * One iteration per thread on games sharing their nodes.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(nbThreads)
+	public void train(SharingEngine state) throws Exception {
+		state.engine.train();
+	}
+}
@@ -0,0 +1,127 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the checkpoints of a {@link FileChannelLoader} : saves and loads
+ * per second of a set of three actions player nodes, in a temporary file.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FileChannelLoaderBenchmark {
+
+	/** The number of player nodes. */
+	@Param({ "10000", "1000000" })
+	public int nbNodes;
+
+	/** Indicates whether values are written as floats instead of doubles. */
+	@Param({ "false", "true" })
+	public boolean floatPrecision;
+
+	/** The player nodes. */
+	private List<DefaultPlayerNode> nodes;
+
+	/** The state saved with the nodes. */
+	private CSCFRMState state;
+
+	/** The temporary directory. */
+	private Path dir;
+
+	/** The loader. */
+	private FileChannelLoader<DefaultPlayerNode> loader;
+
+	/**
+	 * Creates random nodes, the loader and a first save to load from.
+	 *
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		final DefaultNodesProvider provider = new DefaultNodesProvider();
+		final Random rand = new Random(0);
+		nodes = new ArrayList<>(nbNodes);
+		DefaultPlayerNode node;
+		for (int i = 0; i < nbNodes; i++) {
+			nodes.add(node = provider.getPlayerNode(i & 1, 3));
+			for (int a = 0; a < 3; a++) {
+				node.setRegret(a, rand.nextGaussian());
+				node.setStrategySum(a, rand.nextDouble());
+			}
+			node.visits = i;
+			node.realWeightSum = rand.nextDouble();
+		}
+		state = new CSCFRMState(nbNodes, new double[] { 1, -1 });
+		dir = Files.createTempDirectory("cscfrm-bench");
+		loader = new FileChannelLoader<>(dir.resolve("nodes"),
+				new CSCFRMExecutionLoaderConfig(true, floatPrecision));
+		loader.save(nodes.iterator(), state);
+	}
+
+	/**
+	 * Closes the loader and deletes the temporary files.
+	 *
+	 * @throws Exception
+	 *             the loader's exception
+	 */
+	@TearDown
+	public void tearDown() throws Exception {
+		loader.close();
+		Files.deleteIfExists(dir.resolve("nodes"));
+		Files.deleteIfExists(dir);
+	}
+
+	/**
+	 * Saves all nodes and the state.
+	 *
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	@Benchmark
+	public void save() throws IOException {
+		loader.save(nodes.iterator(), state);
+	}
+
+	/**
+	 * Loads all nodes.
+	 *
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	@Benchmark
+	public void loadPlayerNodes() throws IOException {
+		loader.loadPlayerNodes(nodes.iterator());
+	}
+}
@@ -0,0 +1,191 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngineType;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.games.kuhnpoker.KuhnPoker;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.SpinLockNodesProvider;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the iterations per second of each engine type on Kuhn poker. The
+ * monothread benchmark trains a private game without locking, the multithread
+ * one trains games sharing their nodes with one engine per thread, as
+ * multithread executors do. Run with <code>-prof gc</code> to get the
+ * allocation rate of an iteration.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KuhnPokerTrainBenchmark {
+
+	/**
+	 * A private game and its engine, without nodes locking.
+	 */
+	@State(Scope.Thread)
+	public static class MonoEngine {
+
+		/** The engine type. */
+		@Param({ "CHANCE_SAMPLING", "EXTERNAL_SAMPLING", "OUTCOME_SAMPLING",
+				"GAME_TAPE" })
+		public CSCFRMEngineType engineType;
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Builds the game and its engine.
+		 */
+		@Setup
+		public void setUp() {
+			engine = engineType.newEngine(new KuhnPoker<>(
+					new DefaultNodesProvider()));
+			engine.setConfig(new CSCFRMConfig(false, true, null, null));
+		}
+	}
+
+	/**
+	 * The game whose nodes are shared by all threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedGame {
+
+		/** The engine type. */
+		@Param({ "CHANCE_SAMPLING", "EXTERNAL_SAMPLING", "OUTCOME_SAMPLING",
+				"GAME_TAPE" })
+		public CSCFRMEngineType engineType;
+
+		/** The player nodes implementation. */
+		@Param({ "default", "spinlock" })
+		public String nodes;
+
+		/** The source game. */
+		SourceGame<?> source;
+
+		/** The engines configuration. */
+		CSCFRMConfig config;
+
+		/**
+		 * Builds the source game and the shared configuration.
+		 */
+		@Setup
+		public void setUp() {
+			if ("spinlock".equals(nodes))
+				source = new SourceGame<>(new SpinLockNodesProvider());
+			else
+				source = new SourceGame<>(new DefaultNodesProvider());
+			final CSCFRMConfig base = new CSCFRMConfig();
+			base.setEngineType(engineType);
+			config = new CSCFRMConfig(base, true, true,
+					new CSCFRMMultithreadUtilityManager(2), null);
+		}
+	}
+
+	/**
+	 * A game whose nodes are shared, and its nodes provider.
+	 *
+	 * @param <PNode>
+	 *            the player node type
+	 */
+	static final class SourceGame<PNode extends PlayerNode> {
+
+		/** The nodes provider. */
+		final NodesProvider<PNode> provider;
+
+		/** The game. */
+		final KuhnPoker<PNode> game;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param provider
+		 *            the nodes provider
+		 */
+		SourceGame(NodesProvider<PNode> provider) {
+			this.provider = provider;
+			game = new KuhnPoker<>(provider);
+		}
+
+		/**
+		 * Builds a game sharing its nodes with the source game.
+		 *
+		 * @return the game
+		 */
+		KuhnPoker<PNode> share() {
+			return new KuhnPoker<>(provider, game);
+		}
+	}
+
+	/**
+	 * A thread's engine, on a game sharing its nodes with the source game.
+	 */
+	@State(Scope.Thread)
+	public static class SharingEngine {
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Builds the thread's game and engine.
+		 *
+		 * @param shared
+		 *            the shared game
+		 */
+		@Setup
+		public void setUp(SharedGame shared) {
+			engine = shared.engineType.newEngine(shared.source.share());
+			engine.setConfig(shared.config);
+		}
+	}
+
+	/**
+	 * One iteration on a private game.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(1)
+	public void monothread(MonoEngine state) throws Exception {
+		state.engine.train();
+	}
+
+	/**
+	 * One iteration per thread on games sharing their nodes.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void multithread(SharingEngine state) throws Exception {
+		state.engine.train();
+	}
+}
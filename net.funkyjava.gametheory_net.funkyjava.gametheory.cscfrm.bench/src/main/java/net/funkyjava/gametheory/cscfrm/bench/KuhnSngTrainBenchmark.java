@@ -0,0 +1,89 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMCyclicStepsExecutor;
+import net.funkyjava.gametheory.cscfrm.games.kuhnpoker.KuhnPoker;
+import net.funkyjava.gametheory.cscfrm.games.kuhnpoker.KuhnPokerWorksStation;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the cyclic steps training of Kuhn poker SNG scales with the
+ * executor's number of threads. Each terminal node of a step reads another
+ * step's shared utility manager, so this is where utility managers
+ * contention shows. Scores are iterations per second.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KuhnSngTrainBenchmark {
+
+	/** The number of iterations of a run. */
+	private static final int nbIter = 100000;
+
+	/** The executor's number of threads. */
+	@Param({ "1", "2", "4", "8" })
+	public int nbThreads;
+
+	/** The players stacks, in blinds. */
+	@Param({ "5" })
+	public int nbBlinds;
+
+	/** The executor. */
+	private CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe;
+
+	/**
+	 * Builds the executor.
+	 *
+	 * @throws Exception
+	 *             the executor's exception
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		exe = new KuhnPokerWorksStation().buildSngExecutor(nbBlinds,
+				nbThreads);
+	}
+
+	/**
+	 * Closes the executor.
+	 *
+	 * @throws Exception
+	 *             the executor's exception
+	 */
+	@TearDown
+	public void tearDown() throws Exception {
+		exe.close();
+	}
+
+	/**
+	 * Runs the executor, its threads sharing the iterations.
+	 *
+	 * @throws Exception
+	 *             the executor's exception
+	 */
+	@Benchmark
+	@OperationsPerInvocation(nbIter)
+	public void train() throws Exception {
+		exe.run(nbIter);
+	}
+}
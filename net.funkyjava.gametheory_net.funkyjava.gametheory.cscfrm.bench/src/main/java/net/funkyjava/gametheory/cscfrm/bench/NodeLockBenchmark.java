@@ -0,0 +1,134 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.SpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures player nodes lock/unlock pairs per second, uncontended and with all
+ * threads hammering the same node. The critical section consumes a
+ * configurable amount of CPU tokens to mimic the strategy and regrets updates
+ * engines make while holding the lock.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeLockBenchmark {
+
+	/**
+	 * The node locked by all threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedNode {
+
+		/** The player nodes implementation. */
+		@Param({ "default", "spinlock" })
+		public String nodes;
+
+		/** The CPU tokens consumed while holding the lock. */
+		@Param({ "0", "50" })
+		public long work;
+
+		/** The node. */
+		PlayerNode node;
+
+		/**
+		 * Creates the node.
+		 */
+		@Setup
+		public void setUp() {
+			node = newNode(nodes);
+		}
+	}
+
+	/**
+	 * A node locked by a single thread.
+	 */
+	@State(Scope.Thread)
+	public static class PrivateNode {
+
+		/** The player nodes implementation. */
+		@Param({ "default", "spinlock" })
+		public String nodes;
+
+		/** The node. */
+		PlayerNode node;
+
+		/**
+		 * Creates the node.
+		 */
+		@Setup
+		public void setUp() {
+			node = newNode(nodes);
+		}
+	}
+
+	/**
+	 * Creates a three actions player node.
+	 *
+	 * @param nodes
+	 *            the player nodes implementation, "default" or "spinlock"
+	 * @return the node
+	 */
+	static PlayerNode newNode(String nodes) {
+		if ("spinlock".equals(nodes))
+			return new SpinLockPlayerNode(0, 3);
+		return new DefaultPlayerNode(0, 3);
+	}
+
+	/**
+	 * Locks and unlocks a node no other thread uses.
+	 *
+	 * @param state
+	 *            the thread's node
+	 * @throws InterruptedException
+	 *             interrupted while locking
+	 */
+	@Benchmark
+	@Threads(1)
+	public void uncontended(PrivateNode state) throws InterruptedException {
+		state.node.lock();
+		state.node.unlock();
+	}
+
+	/**
+	 * Locks the node shared by all threads, works and unlocks it.
+	 *
+	 * @param state
+	 *            the shared node
+	 * @throws InterruptedException
+	 *             interrupted while locking
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void contended(SharedNode state) throws InterruptedException {
+		final PlayerNode node = state.node;
+		node.lock();
+		try {
+			Blackhole.consumeCPU(state.work);
+		} finally {
+			node.unlock();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package net.funkyjava.gametheory.cscfrm.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.NLHEHUPushFold;
+import net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.NLHEHUPushFoldVectorizedEngine;
+import net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.PushFoldEquityMatrix;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.gameutil.poker.he.handeval.twoplustwo.TwoPlusTwoEvaluator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the iterations per second on the NLHE heads-up push/fold game : the
+ * chance-sampling engine monothread and multithread, and the vectorized engine
+ * whose iterations walk all hole cards at once. The 2+2 evaluator is built
+ * once per trial, outside of the measurements. Run with <code>-prof gc</code>
+ * to get the allocation rate of an iteration.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PushFoldTrainBenchmark {
+
+	/** Small blind. */
+	private static final int sb = 5;
+
+	/** Big blind. */
+	private static final int bb = 10;
+
+	/** Stacks. */
+	private static final int stack = 200;
+
+	/**
+	 * The evaluator and the game whose nodes are shared by all threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedGame {
+
+		/** The evaluator. */
+		TwoPlusTwoEvaluator eval;
+
+		/** The source game. */
+		NLHEHUPushFold<DefaultPlayerNode> game;
+
+		/** The engines configuration. */
+		CSCFRMConfig config;
+
+		/**
+		 * Builds the evaluator, the source game and the shared configuration.
+		 */
+		@Setup
+		public void setUp() {
+			eval = new TwoPlusTwoEvaluator();
+			game = new NLHEHUPushFold<>(new DefaultNodesProvider(), sb, bb,
+					stack, stack, eval);
+			config = new CSCFRMConfig(true, true,
+					new CSCFRMMultithreadUtilityManager(2), null);
+		}
+	}
+
+	/**
+	 * A private game and its chance-sampling engine, without nodes locking.
+	 */
+	@State(Scope.Thread)
+	public static class MonoEngine {
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Builds the game and its engine.
+		 *
+		 * @param shared
+		 *            the shared state holding the evaluator
+		 */
+		@Setup
+		public void setUp(SharedGame shared) {
+			engine = new CSCFRMEngine(new NLHEHUPushFold<>(
+					new DefaultNodesProvider(), sb, bb, stack, stack,
+					shared.eval));
+			engine.setConfig(new CSCFRMConfig(false, true, null, null));
+		}
+	}
+
+	/**
+	 * A thread's chance-sampling engine, on a game sharing its nodes with the
+	 * source game.
+	 */
+	@State(Scope.Thread)
+	public static class SharingEngine {
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Builds the thread's game and engine.
+		 *
+		 * @param shared
+		 *            the shared game
+		 */
+		@Setup
+		public void setUp(SharedGame shared) {
+			engine = new CSCFRMEngine(new NLHEHUPushFold<>(shared.game,
+					shared.eval));
+			engine.setConfig(shared.config);
+		}
+	}
+
+	/**
+	 * A private game and its vectorized engine.
+	 */
+	@State(Scope.Thread)
+	public static class VectorizedEngine {
+
+		/** The engine. */
+		CSCFRMBaseEngine engine;
+
+		/**
+		 * Samples the equity matrix and builds the engine.
+		 *
+		 * @param shared
+		 *            the shared state holding the evaluator
+		 */
+		@Setup
+		public void setUp(SharedGame shared) {
+			final NLHEHUPushFold<DefaultPlayerNode> game = new NLHEHUPushFold<>(
+					new DefaultNodesProvider(), sb, bb, stack, stack,
+					shared.eval);
+			engine = new NLHEHUPushFoldVectorizedEngine(game,
+					PushFoldEquityMatrix.sample(shared.eval, 200,
+							new Random(0)));
+			engine.setConfig(new CSCFRMConfig(false, true, null, null));
+		}
+	}
+
+	/**
+	 * One chance-sampling iteration on a private game.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(1)
+	public void monothread(MonoEngine state) throws Exception {
+		state.engine.train();
+	}
+
+	/**
+	 * One chance-sampling iteration per thread on games sharing their nodes.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void multithread(SharingEngine state) throws Exception {
+		state.engine.train();
+	}
+
+	/**
+	 * One vectorized iteration on a private game.
+	 *
+	 * @param state
+	 *            the thread's engine
+	 * @throws Exception
+	 *             the engine's exception
+	 */
+	@Benchmark
+	@Threads(1)
+	public void vectorized(VectorizedEngine state) throws Exception {
+		state.engine.train();
+	}
+}
@@ -0,0 +1,890 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * Base class of the Counter Factual Regret Minimization engines. Holds the
+ * configuration, the utility manager, the discounting state, and the accesses
+ * to player nodes regrets and strategy sums whatever their storage. When
+ * deltas buffering is enabled, player nodes updates are accumulated in an
+ * engine-private buffer and merged into the nodes periodically, see
+ * {@link CSCFRMConfig#setDeltasMergeInterval(int)}.
+ *
+ * @author Pierre Mardon
+ */
+public abstract class CSCFRMBaseEngine {
+
+	/** The game on which the engine will run. */
+	protected final CSCFRMBaseGame game;
+
+	/** The number of players. */
+	protected final int nbPlayers;
+
+	/** The engine's utility manager. */
+	protected CSCFRMUtilityManager utilMgr;
+
+	/** The terminal utility reader. */
+	protected CSCFRMTerminalUtilReader termUtils;
+
+	/** Boolean to indicate if the engine must lock player nodes. */
+	protected boolean lockPlayersNodes = true;
+
+	/**
+	 * Indicates whether the engine must update player nodes visits and
+	 * realization weight or not.
+	 */
+	protected boolean updateVisits = true;
+
+	/**
+	 * Boolean to indicate if the engine must read the utility of terminal nodes
+	 * with an id >= 0 from {@link #termUtils}.
+	 */
+	protected boolean readTerminalUtil = false;
+
+	/**
+	 * Indicates whether the engine runs CFR+, flooring regrets at zero and
+	 * linearly weighting the average strategy.
+	 */
+	protected boolean cfrPlus = false;
+
+	/** The iterations weighting schedule, null for uniform weighting. */
+	protected CSCFRMDiscounting discounting;
+
+	/** Indicates whether the engine prunes actions on some iterations. */
+	protected boolean pruning = false;
+
+	/** The regret under which an action with no probability is pruned. */
+	protected double pruningThreshold = Double.NEGATIVE_INFINITY;
+
+	/** The interval between two iterations that don't prune any action. */
+	protected int pruningInterval = 1;
+
+	/** The random used by sampling engines. */
+	protected Random rand = new Random();
+
+	/** Indicates whether sampling engines use baselines. */
+	protected boolean varianceReduction = false;
+
+	/** The learning rate of the baselines. */
+	protected double baselineRate = CSCFRMConfig.defaultBaselineRate;
+
+	/** The player nodes deltas buffer, null when updates aren't buffered. */
+	private CSCFRMDeltaBuffer deltas;
+
+	/** The number of iterations between two deltas merges. */
+	private int mergeInterval = 0;
+
+	/** The number of iterations since the last deltas merge. */
+	private int bufferedIters = 0;
+
+	/** Indicates whether player nodes must be locked while merging deltas. */
+	private boolean lockOnMerge = false;
+
+	/** Indicates whether lock waits are measured. */
+	private boolean lockWaitTiming = false;
+
+	/** The number of iterations this engine ran. */
+	private long iterations = 0;
+
+	/** The time this engine waited to lock player nodes, in nanoseconds. */
+	private long lockWaitNanos = 0;
+
+	/** The iterations count, published at the end of each iteration. */
+	private volatile long publishedIterations = 0;
+
+	/** The lock wait time, published at the end of each iteration. */
+	private volatile long publishedLockWaitNanos = 0;
+
+	/** Indicates whether iterations utility is accumulated in a batch. */
+	private boolean batching = false;
+
+	/** The maximum number of iterations in a utility batch. */
+	private int utilBatchSize = CSCFRMConfig.defaultUtilityBatchSize;
+
+	/** The utility sum of the batched iterations. */
+	private final double[] batchUtilSum;
+
+	/** The number of batched iterations. */
+	private int batchIters = 0;
+
+	/**
+	 * The number of iterations between two reads of the utility manager's
+	 * iterations count.
+	 */
+	private static final int iterRefreshInterval = 64;
+
+	/**
+	 * Indicates whether iterations need their number, for CFR+, discounting
+	 * or pruning.
+	 */
+	private boolean numberedIters = false;
+
+	/**
+	 * The utility manager's iterations count at its last read, plus the
+	 * batched iterations.
+	 */
+	private long refreshedIter = 0;
+
+	/** The iterations numbered since the last read of the utility manager. */
+	private int itersSinceRefresh = 0;
+
+	/** The iteration for which the factors below were computed. */
+	private long factorsIter = 0;
+
+	/**
+	 * The discount factors of the previous iteration, applied to nodes
+	 * visited on each iteration.
+	 */
+	private double positiveFactor, negativeFactor, strategyFactor;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param game
+	 *            the game
+	 */
+	protected CSCFRMBaseEngine(CSCFRMBaseGame game) {
+		this.game = checkNotNull(game, "The game cannot be null");
+		checkArgument(game.getNbPlayers() > 1,
+				"Game must have at least two players");
+		this.nbPlayers = game.getNbPlayers();
+		checkArgument(game.getMaxDepth() > 0, "Game's max depth must be > 0");
+		utilMgr = new CSCFRMUtilityManager(nbPlayers);
+		batchUtilSum = new double[nbPlayers];
+	}
+
+	/**
+	 * Sets the config.
+	 *
+	 * @param config
+	 *            the config
+	 */
+	public void setConfig(CSCFRMConfig config) {
+		checkNotNull(config, "Trying to set a null configuration to engine");
+		this.lockPlayersNodes = config.isLockPlayerNodes()
+				&& !config.isHogwild();
+		updateVisits = config.isUpdateVisitsAndWeight();
+		this.termUtils = config.getTermUtilReader();
+		this.readTerminalUtil = termUtils != null;
+		if (config.getUtilityManager() != null)
+			this.utilMgr = config.getUtilityManager();
+		this.cfrPlus = config.isCfrPlus();
+		this.discounting = config.getDiscounting();
+		checkArgument(!cfrPlus || discounting == null,
+				"CFR+ cannot be combined with a discounting schedule");
+		this.varianceReduction = config.isVarianceReduction();
+		checkArgument(!varianceReduction || supportsVarianceReduction(),
+				"Variance reduction isn't supported by %s", getClass()
+						.getSimpleName());
+		this.baselineRate = config.getBaselineRate();
+		this.pruning = config.isPruning();
+		this.pruningThreshold = config.getPruningThreshold();
+		this.pruningInterval = config.getPruningInterval();
+		this.mergeInterval = config.getDeltasMergeInterval();
+		if (mergeInterval > 0) {
+			checkArgument(discounting == null,
+					"Deltas buffering cannot be combined with a discounting schedule");
+			// Nodes are only written while merging
+			lockOnMerge = lockPlayersNodes;
+			lockPlayersNodes = false;
+			if (deltas == null)
+				deltas = new CSCFRMDeltaBuffer();
+		} else
+			checkArgument(deltas == null || deltas.getNbNodes() == 0,
+					"Cannot disable deltas buffering with pending deltas");
+		this.lockWaitTiming = config.isLockWaitTiming();
+		this.utilBatchSize = config.getUtilityBatchSize();
+		factorsIter = 0;
+		numberedIters = cfrPlus || discounting != null || pruning;
+		itersSinceRefresh = 0;
+	}
+
+	/**
+	 * Train.
+	 *
+	 * @throws Exception
+	 *             any exception that can be caused by a malformed game
+	 */
+	public abstract void train() throws Exception;
+
+	/**
+	 * Indicates whether this engine uses baselines when
+	 * {@link CSCFRMConfig#isVarianceReduction()}.
+	 *
+	 * @return true for the sampling engines supporting variance reduction
+	 */
+	protected boolean supportsVarianceReduction() {
+		return false;
+	}
+
+	/**
+	 * Trains for several iterations. The iterations utility is accumulated
+	 * locally and published to the utility manager at the end of the batch,
+	 * or every {@link CSCFRMConfig#getUtilityBatchSize()} iterations, instead
+	 * of after each iteration as {@link #train()} does.
+	 *
+	 * @param nbIter
+	 *            the number of iterations
+	 * @throws Exception
+	 *             any exception that can be caused by a malformed game
+	 */
+	public void train(int nbIter) throws Exception {
+		checkArgument(nbIter > 0, "The number of iterations must be > 0");
+		batching = true;
+		try {
+			for (int i = 0; i < nbIter; i++) {
+				train();
+				if (batchIters >= utilBatchSize)
+					publishBatchUtil();
+			}
+		} finally {
+			batching = false;
+			publishBatchUtil();
+		}
+	}
+
+	/**
+	 * Sets the random of the engine and of its game when it is a
+	 * {@link CSCFRMSeedableGame}. Both are used by the training thread only.
+	 *
+	 * @param rand
+	 *            the random
+	 */
+	public void setRandom(Random rand) {
+		this.rand = checkNotNull(rand, "The random cannot be null");
+		if (game instanceof CSCFRMSeedableGame)
+			((CSCFRMSeedableGame) game).setRandom(rand);
+	}
+
+	/**
+	 * Gets the number of the iteration to run, counting the batched
+	 * iterations that weren't published yet. The utility manager's iterations
+	 * count is only read every {@link #iterRefreshInterval} iterations, as a
+	 * multithread one sums all threads stripes : this engine's iterations are
+	 * counted locally in between, so the other threads iterations are seen
+	 * late.
+	 *
+	 * @return the iteration number, zero when neither CFR+, discounting nor
+	 *         pruning need it
+	 */
+	protected final long nextIteration() {
+		if (!numberedIters)
+			return 0;
+		if (itersSinceRefresh == 0
+				|| itersSinceRefresh == iterRefreshInterval) {
+			refreshedIter = utilMgr.getIter() + batchIters;
+			itersSinceRefresh = 0;
+		}
+		return refreshedIter + ++itersSinceRefresh;
+	}
+
+	/**
+	 * Adds an iteration's utility, to the current batch when training with
+	 * {@link #train(int)}, else to the utility manager.
+	 *
+	 * @param iterUtil
+	 *            the iteration's utility
+	 */
+	protected final void addIterUtil(final double[] iterUtil) {
+		if (!batching) {
+			utilMgr.addIterUtil(iterUtil);
+			return;
+		}
+		final double[] sum = batchUtilSum;
+		for (int p = 0; p < nbPlayers; p++)
+			sum[p] += iterUtil[p];
+		batchIters++;
+	}
+
+	/**
+	 * Publishes the batched iterations utility to the utility manager.
+	 */
+	private void publishBatchUtil() {
+		if (batchIters == 0)
+			return;
+		utilMgr.addIterUtils(batchUtilSum, batchIters);
+		for (int p = 0; p < nbPlayers; p++)
+			batchUtilSum[p] = 0;
+		batchIters = 0;
+	}
+
+	/**
+	 * Writes the regret matching strategy of a player node in a destination
+	 * array.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param dest
+	 *            the destination array
+	 * @param nbActions
+	 *            the node's number of actions
+	 */
+	protected static void readStrategy(final Node node, final double[] dest,
+			final int nbActions) {
+		int a;
+		final double totalRegret = readPositiveRegrets(node, dest, nbActions);
+		if (totalRegret > 0)
+			for (a = 0; a < nbActions; a++)
+				dest[a] /= totalRegret;
+		else
+			for (a = 0; a < nbActions; a++)
+				dest[a] = 1.0 / nbActions;
+	}
+
+	/**
+	 * Writes a player node's cumulative regrets in a destination array.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param dest
+	 *            the destination array
+	 * @param nbActions
+	 *            the node's number of actions
+	 */
+	protected static void readRegrets(final Node node, final double[] dest,
+			final int nbActions) {
+		int a;
+		if (node.regretSum != null)
+			System.arraycopy(node.regretSum, 0, dest, 0, nbActions);
+		else if (!node.store.floatPrecision)
+			System.arraycopy(node.store.data, node.offset, dest, 0, nbActions);
+		else {
+			final float[] data = node.store.floatData;
+			final int offset = node.offset;
+			for (a = 0; a < nbActions; a++)
+				dest[a] = data[offset + a];
+		}
+	}
+
+	/**
+	 * Writes the positive part of a player node's regrets in a destination
+	 * array.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param dest
+	 *            the destination array
+	 * @param nbActions
+	 *            the node's number of actions
+	 * @return the sum of positive regrets
+	 */
+	protected static double readPositiveRegrets(final Node node,
+			final double[] dest, final int nbActions) {
+		double total = 0;
+		double regret;
+		int a;
+		double[] regrets;
+		final int offset;
+		if ((regrets = node.regretSum) != null)
+			offset = 0;
+		else if (!node.store.floatPrecision) {
+			regrets = node.store.data;
+			offset = node.offset;
+		} else {
+			// Single precision flat store
+			final float[] data = node.store.floatData;
+			offset = node.offset;
+			for (a = 0; a < nbActions; a++)
+				total += dest[a] = (regret = data[offset + a]) > 0 ? regret
+						: 0;
+			return total;
+		}
+		for (a = 0; a < nbActions; a++)
+			total += dest[a] = (regret = regrets[offset + a]) > 0 ? regret : 0;
+		return total;
+	}
+
+	/**
+	 * Adds a weighted strategy to a player node's strategy sum, or to the
+	 * deltas buffer.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param strategy
+	 *            the strategy
+	 * @param nbActions
+	 *            the node's number of actions
+	 * @param weight
+	 *            the weight
+	 */
+	protected final void addStrategy(final Node node,
+			final double[] strategy, final int nbActions, final double weight) {
+		if (deltas != null)
+			deltas.addStrategy(node, strategy, nbActions, weight);
+		else
+			writeStrategy(node, strategy, 0, nbActions, weight);
+	}
+
+	/**
+	 * Adds a weighted strategy to a player node's strategy sum.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param strategy
+	 *            the array holding the strategy
+	 * @param from
+	 *            the strategy's offset in its array
+	 * @param nbActions
+	 *            the node's number of actions
+	 * @param weight
+	 *            the weight
+	 */
+	private static void writeStrategy(final Node node,
+			final double[] strategy, final int from, final int nbActions,
+			final double weight) {
+		int a;
+		double[] sums;
+		final int offset;
+		if ((sums = node.stratSum) != null)
+			offset = 0;
+		else if (!node.store.floatPrecision) {
+			// Flat store : regrets followed by strategy sums
+			sums = node.store.data;
+			offset = node.offset + nbActions;
+		} else {
+			final float[] data = node.store.floatData;
+			offset = node.offset + nbActions;
+			for (a = 0; a < nbActions; a++)
+				data[offset + a] += weight * strategy[from + a];
+			return;
+		}
+		for (a = 0; a < nbActions; a++)
+			sums[offset + a] += weight * strategy[from + a];
+	}
+
+	/**
+	 * Adds regret deltas to a player node's cumulative regrets, or to the
+	 * deltas buffer. In CFR+ mode, regrets are floored at zero.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param deltas
+	 *            the regret deltas
+	 * @param nbActions
+	 *            the node's number of actions
+	 */
+	protected final void addRegrets(final Node node, final double[] deltas,
+			final int nbActions) {
+		if (this.deltas != null)
+			this.deltas.addRegrets(node, deltas, nbActions);
+		else
+			writeRegrets(node, deltas, 0, nbActions);
+	}
+
+	/**
+	 * Adds regret deltas to a player node's cumulative regrets. In CFR+ mode,
+	 * regrets are floored at zero.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param deltas
+	 *            the array holding the regret deltas
+	 * @param from
+	 *            the deltas offset in their array
+	 * @param nbActions
+	 *            the node's number of actions
+	 */
+	private void writeRegrets(final Node node, final double[] deltas,
+			final int from, final int nbActions) {
+		int a;
+		double[] regrets;
+		final int offset;
+		if ((regrets = node.regretSum) != null)
+			offset = 0;
+		else if (!node.store.floatPrecision) {
+			regrets = node.store.data;
+			offset = node.offset;
+		} else {
+			final float[] data = node.store.floatData;
+			offset = node.offset;
+			if (cfrPlus)
+				for (a = 0; a < nbActions; a++)
+					data[offset + a] = (float) Math.max(0, data[offset + a]
+							+ deltas[from + a]);
+			else
+				for (a = 0; a < nbActions; a++)
+					data[offset + a] += deltas[from + a];
+			return;
+		}
+		if (cfrPlus)
+			for (a = 0; a < nbActions; a++)
+				regrets[offset + a] = Math.max(0, regrets[offset + a]
+						+ deltas[from + a]);
+		else
+			for (a = 0; a < nbActions; a++)
+				regrets[offset + a] += deltas[from + a];
+	}
+
+	/**
+	 * Increments a player node's visits and adds a realization weight to its
+	 * sum, or to the deltas buffer.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param realWeight
+	 *            the visit's realization weight
+	 */
+	protected final void addVisit(final Node node, final double realWeight) {
+		if (deltas != null)
+			deltas.addVisit(node, realWeight);
+		else {
+			node.visits++;
+			node.realWeightSum += realWeight;
+		}
+	}
+
+	/**
+	 * Computes the baseline-corrected values of a player node's actions and
+	 * of the node itself for a player, then moves the sampled action's
+	 * baseline toward its sampled value. Baselines are allocated on the
+	 * node's first use. The node must be locked if
+	 * {@link #lockPlayersNodes} is true.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param player
+	 *            the player whose values are estimated
+	 * @param strat
+	 *            the node's iteration strategy
+	 * @param nbActions
+	 *            the node's number of actions
+	 * @param sampled
+	 *            the sampled action
+	 * @param sampledValue
+	 *            the sampled action's estimated value
+	 * @param sampleProb
+	 *            the probability with which the action was sampled
+	 * @param actionsValue
+	 *            the destination of the actions corrected values
+	 * @return the node's corrected value
+	 */
+	protected final double baselineValues(final Node node, final int player,
+			final double[] strat, final int nbActions, final int sampled,
+			final double sampledValue, final double sampleProb,
+			final double[] actionsValue) {
+		double[] baselines = node.baselines;
+		if (baselines == null)
+			node.baselines = baselines = new double[nbPlayers * nbActions];
+		final int offset = player * nbActions;
+		double value = 0;
+		for (int a = 0; a < nbActions; a++)
+			value += strat[a] * (actionsValue[a] = baselines[offset + a]);
+		final double diff = sampledValue - baselines[offset + sampled];
+		actionsValue[sampled] += diff / sampleProb;
+		baselines[offset + sampled] += baselineRate * diff;
+		return value + strat[sampled] * diff / sampleProb;
+	}
+
+	/**
+	 * Must be called at the end of each iteration. Merges the buffered deltas
+	 * when the merge interval is reached.
+	 *
+	 * @throws InterruptedException
+	 *             interrupted while locking a node
+	 */
+	protected final void endIteration() throws InterruptedException {
+		if (deltas != null && ++bufferedIters >= mergeInterval)
+			mergeDeltas();
+		publishedIterations = ++iterations;
+		if (lockWaitTiming)
+			publishedLockWaitNanos = lockWaitNanos;
+	}
+
+	/**
+	 * Locks a player node, measuring the wait when
+	 * {@link CSCFRMConfig#isLockWaitTiming()}.
+	 *
+	 * @param node
+	 *            the player node
+	 * @throws InterruptedException
+	 *             interrupted while locking the node
+	 */
+	protected final void lockNode(final Node node) throws InterruptedException {
+		if (!lockWaitTiming) {
+			node.lock();
+			return;
+		}
+		final long start = System.nanoTime();
+		node.lock();
+		lockWaitNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Gets the number of iterations this engine ran. Can be read by any
+	 * thread while the engine trains.
+	 *
+	 * @return the number of iterations
+	 */
+	public long getIterations() {
+		return publishedIterations;
+	}
+
+	/**
+	 * Gets the time this engine waited to lock player nodes, zero unless
+	 * {@link CSCFRMConfig#isLockWaitTiming()}. Can be read by any thread while
+	 * the engine trains.
+	 *
+	 * @return the lock wait time in nanoseconds
+	 */
+	public long getLockWaitNanos() {
+		return publishedLockWaitNanos;
+	}
+
+	/**
+	 * Indicates whether this engine buffers its deltas, see
+	 * {@link CSCFRMConfig#getDeltasMergeInterval()}.
+	 *
+	 * @return true when deltas are buffered between merges
+	 */
+	public boolean isBufferingDeltas() {
+		return mergeInterval > 0;
+	}
+
+	/**
+	 * Merges the buffered deltas into the player nodes. Must be called before
+	 * saving player nodes, and at the end of each training run so that no
+	 * update stays pending. Must not be called while this engine trains.
+	 *
+	 * @throws InterruptedException
+	 *             interrupted while locking a node
+	 */
+	public void mergeDeltas() throws InterruptedException {
+		final CSCFRMDeltaBuffer deltas = this.deltas;
+		if (deltas == null)
+			return;
+		bufferedIters = 0;
+		final double[] data = deltas.getData();
+		final int nbNodes = deltas.getNbNodes();
+		Node node;
+		int offset;
+		int nbActions;
+		for (int i = 0; i < nbNodes; i++) {
+			node = deltas.getNode(i);
+			offset = deltas.getOffset(i);
+			nbActions = node.nbActions;
+			if (lockOnMerge)
+				lockNode(node);
+			writeRegrets(node, data, offset, nbActions);
+			writeStrategy(node, data, offset + nbActions, nbActions, 1);
+			node.realWeightSum += data[offset + 2 * nbActions];
+			node.visits += (long) data[offset + 2 * nbActions + 1];
+			if (lockOnMerge)
+				node.unlock();
+		}
+		deltas.clear();
+	}
+
+	/**
+	 * Computes the discount factors of the iteration preceding a given one,
+	 * when not done yet. Must be called at the start of each iteration when
+	 * {@link #discounting} isn't null.
+	 *
+	 * @param iteration
+	 *            the iteration
+	 */
+	protected final void prepareDiscounting(final long iteration) {
+		if (factorsIter == iteration)
+			return;
+		if (iteration > 1) {
+			positiveFactor = discounting.positiveRegretsFactor(iteration - 1,
+					iteration);
+			negativeFactor = discounting.negativeRegretsFactor(iteration - 1,
+					iteration);
+			strategyFactor = discounting.strategyFactor(iteration - 1,
+					iteration);
+		}
+		factorsIter = iteration;
+	}
+
+	/**
+	 * Applies to a player node all the discounts of the iterations preceding a
+	 * given one that weren't applied yet.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param iteration
+	 *            the iteration
+	 */
+	protected final void discount(final Node node, final long iteration) {
+		final long from = node.discountIter;
+		if (from >= iteration)
+			return;
+		node.discountIter = iteration;
+		// Never discounted : nothing was accumulated since the node was built
+		// or loaded
+		if (from == 0)
+			return;
+		if (from == iteration - 1 && iteration == factorsIter)
+			scale(node, positiveFactor, negativeFactor, strategyFactor);
+		else
+			scale(node, discounting.positiveRegretsFactor(from, iteration),
+					discounting.negativeRegretsFactor(from, iteration),
+					discounting.strategyFactor(from, iteration));
+	}
+
+	/**
+	 * Multiplies a player node's regrets and strategy sums.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param positive
+	 *            the positive regrets factor
+	 * @param negative
+	 *            the negative regrets factor
+	 * @param strategy
+	 *            the strategy sums factor
+	 */
+	private static void scale(final Node node, final double positive,
+			final double negative, final double strategy) {
+		final int nbActions = node.nbActions;
+		int a;
+		double regret;
+		double[] regrets;
+		double[] sums;
+		final int regretsOffset;
+		final int sumsOffset;
+		if ((regrets = node.regretSum) != null) {
+			sums = node.stratSum;
+			regretsOffset = sumsOffset = 0;
+		} else if (!node.store.floatPrecision) {
+			regrets = sums = node.store.data;
+			sumsOffset = (regretsOffset = node.offset) + nbActions;
+		} else {
+			final float[] data = node.store.floatData;
+			final int offset = node.offset;
+			for (a = 0; a < nbActions; a++) {
+				regret = data[offset + a];
+				data[offset + a] = (float) (regret * (regret > 0 ? positive
+						: negative));
+				data[offset + nbActions + a] *= strategy;
+			}
+			return;
+		}
+		for (a = 0; a < nbActions; a++) {
+			regret = regrets[regretsOffset + a];
+			regrets[regretsOffset + a] = regret
+					* (regret > 0 ? positive : negative);
+			sums[sumsOffset + a] *= strategy;
+		}
+	}
+
+	/**
+	 * Applies the pending discounts of all iterations executed so far to player
+	 * nodes. Must be called before saving them, and after loading them so that
+	 * the discounting resumes from the loaded iteration. Must not be called
+	 * while training.
+	 *
+	 * @param playerNodes
+	 *            the game's player nodes
+	 */
+	public void flushDiscounting(Iterator<? extends Node> playerNodes) {
+		checkNotNull(playerNodes, "The player nodes iterator is null");
+		if (discounting == null)
+			return;
+		final long iteration = utilMgr.getIter() + 1;
+		while (playerNodes.hasNext())
+			discount(playerNodes.next(), iteration);
+	}
+
+	/**
+	 * Applies to copies of player nodes the pending discounts of the
+	 * iterations preceding a given one. Only the weighting schedule is read,
+	 * so it can be called while the engine trains, as long as the copies
+	 * aren't the game's nodes.
+	 *
+	 * @param copies
+	 *            the player nodes copies
+	 * @param iteration
+	 *            the first iteration whose discount mustn't be applied
+	 */
+	public void flushDiscounting(Iterator<? extends Node> copies,
+			long iteration) {
+		checkNotNull(copies, "The player nodes iterator is null");
+		final CSCFRMDiscounting discounting = this.discounting;
+		if (discounting == null)
+			return;
+		Node node;
+		long from;
+		while (copies.hasNext()) {
+			node = copies.next();
+			if ((from = node.discountIter) >= iteration)
+				continue;
+			node.discountIter = iteration;
+			if (from != 0)
+				scale(node, discounting.positiveRegretsFactor(from, iteration),
+						discounting.negativeRegretsFactor(from, iteration),
+						discounting.strategyFactor(from, iteration));
+		}
+	}
+
+	/**
+	 * Gets the engine's state, including its weighting schedule.
+	 *
+	 * @return the state
+	 */
+	public CSCFRMState getState() {
+		final CSCFRMState state = utilMgr.getState();
+		return new CSCFRMState(state.getNbIter(), state.getGameUtilSum(),
+				discounting);
+	}
+
+	/**
+	 * Sets the engine's state. When the state has a weighting schedule, the
+	 * engine adopts it so that a resumed execution continues the same
+	 * schedule, numbering its iterations from the state's iterations count.
+	 *
+	 * @param state
+	 *            the state
+	 */
+	public void setState(CSCFRMState state) {
+		checkNotNull(state, "Cannot set a null state");
+		utilMgr.setState(state);
+		// The iterations count changed, read it again
+		itersSinceRefresh = 0;
+		if (state.getDiscounting() == null
+				|| state.getDiscounting().equals(discounting))
+			return;
+		checkArgument(!cfrPlus,
+				"CFR+ cannot be combined with the state's discounting schedule");
+		checkArgument(deltas == null,
+				"Deltas buffering cannot be combined with the state's discounting schedule");
+		discounting = state.getDiscounting();
+		factorsIter = 0;
+		numberedIters = true;
+	}
+
+	/**
+	 * Gets the iterations weighting schedule.
+	 *
+	 * @return the weighting schedule, null for uniform weighting
+	 */
+	public CSCFRMDiscounting getDiscounting() {
+		return discounting;
+	}
+
+	/**
+	 * Gets the utility manager.
+	 *
+	 * @return the utility manager
+	 */
+	public CSCFRMUtilityManager getUtilManager() {
+		return utilMgr;
+	}
+
+	/**
+	 * Gets the game.
+	 *
+	 * @return the game
+	 */
+	public CSCFRMBaseGame getGame() {
+		return game;
+	}
+}
@@ -1,6 +1,10 @@
 package net.funkyjava.gametheory.cscfrm.core.engine;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+import net.funkyjava.gametheory.cscfrm.model.random.CSCFRMRandom;
 
 
 /**
@@ -10,6 +14,18 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
  */
 public class CSCFRMConfig {
 
+	/** The default exploration epsilon of the outcome sampling engine. */
+	public static final double defaultExplorationEpsilon = 0.6;
+
+	/** The default learning rate of the sampling engines baselines. */
+	public static final double defaultBaselineRate = 0.5;
+
+	/** The default number of iterations in a utility batch. */
+	public static final int defaultUtilityBatchSize = 1024;
+
+	/** The default number of iterations between two utility snapshots. */
+	public static final int defaultUtilitySnapshotInterval = 64;
+
 	/** The 'lock player nodes' boolean. */
 	private boolean lockPlayerNodes;
 	/**
@@ -24,6 +40,75 @@ public class CSCFRMConfig {
 	/** The terminal utility reader. */
 	private CSCFRMTerminalUtilReader terminalUtilReader;
 
+	/**
+	 * Indicates whether the engine must run CFR+ : regrets floored at zero and
+	 * linearly weighted average strategy.
+	 */
+	private boolean cfrPlus = false;
+
+	/** The iterations weighting schedule, null for uniform weighting. */
+	private CSCFRMDiscounting discounting;
+
+	/** The type of engine executors must create. */
+	private CSCFRMEngineType engineType = CSCFRMEngineType.CHANCE_SAMPLING;
+
+	/** The exploration epsilon of the outcome sampling engine. */
+	private double explorationEpsilon = defaultExplorationEpsilon;
+
+	/**
+	 * Indicates whether the sampling engines correct sampled utilities with
+	 * baselines.
+	 */
+	private boolean varianceReduction = false;
+
+	/** The learning rate of the sampling engines baselines. */
+	private double baselineRate = defaultBaselineRate;
+
+	/**
+	 * The regret under which the chance-sampling engine prunes an action that
+	 * has no probability in the iteration strategy.
+	 */
+	private double pruningThreshold = Double.NEGATIVE_INFINITY;
+
+	/** The interval between two iterations that don't prune any action. */
+	private int pruningInterval = 1;
+
+	/**
+	 * Indicates whether the engine must update player nodes without locking
+	 * them, even when multithreading.
+	 */
+	private boolean hogwild = false;
+
+	/**
+	 * The number of iterations between two merges of the engine's buffered
+	 * deltas, zero when updates aren't buffered.
+	 */
+	private int deltasMergeInterval = 0;
+
+	/** Indicates whether the engine must measure its node locks wait time. */
+	private boolean lockWaitTiming = false;
+
+	/**
+	 * The number of iterations a multithread executor's thread claims at
+	 * once, zero to split each run statically between threads.
+	 */
+	private int iterationsChunkSize = 0;
+
+	/**
+	 * The maximum number of iterations whose utility the engine accumulates
+	 * before publishing it, when training by batch.
+	 */
+	private int utilityBatchSize = defaultUtilityBatchSize;
+
+	/**
+	 * The iterations a cyclic step's utility stripe accumulates between two
+	 * snapshots, zero to read the stripes on each terminal node.
+	 */
+	private int utilitySnapshotInterval = defaultUtilitySnapshotInterval;
+
+	/** The executions master seed, null for unseeded executions. */
+	private Long seed;
+
 	/**
 	 * The default Constructor.
 	 */
@@ -55,6 +140,48 @@ public class CSCFRMConfig {
 		this.terminalUtilReader = terminalUtilReader;
 	}
 
+	/**
+	 * The Constructor. Copies the algorithm settings of a base configuration :
+	 * engine type, exploration epsilon, variance reduction, CFR+, discounting,
+	 * pruning, hogwild mode, deltas buffering, lock wait timing, iterations
+	 * chunk size, utility batch size, utility snapshot interval and seed.
+	 * 
+	 * @param base
+	 *            the base configuration
+	 * @param lockPlayerNodes
+	 *            the engine's 'lock player nodes' boolean
+	 * @param updateVisitsAndWeight
+	 *            Indicates whether the engine must update player nodes visits
+	 *            and realization weight or not.
+	 * @param utilityManager
+	 *            the engine's utility manager
+	 * @param terminalUtilReader
+	 *            the engine's terminal utility reader
+	 */
+	public CSCFRMConfig(CSCFRMConfig base, boolean lockPlayerNodes,
+			boolean updateVisitsAndWeight,
+			CSCFRMUtilityManager utilityManager,
+			CSCFRMTerminalUtilReader terminalUtilReader) {
+		this(lockPlayerNodes, updateVisitsAndWeight, utilityManager,
+				terminalUtilReader);
+		checkNotNull(base, "The base configuration cannot be null");
+		this.cfrPlus = base.cfrPlus;
+		this.discounting = base.discounting;
+		this.engineType = base.engineType;
+		this.explorationEpsilon = base.explorationEpsilon;
+		this.varianceReduction = base.varianceReduction;
+		this.baselineRate = base.baselineRate;
+		this.pruningThreshold = base.pruningThreshold;
+		this.pruningInterval = base.pruningInterval;
+		this.hogwild = base.hogwild;
+		this.deltasMergeInterval = base.deltasMergeInterval;
+		this.lockWaitTiming = base.lockWaitTiming;
+		this.iterationsChunkSize = base.iterationsChunkSize;
+		this.utilityBatchSize = base.utilityBatchSize;
+		this.utilitySnapshotInterval = base.utilitySnapshotInterval;
+		this.seed = base.seed;
+	}
+
 	/**
 	 * Checks if the engine must lock player nodes.
 	 * 
@@ -92,4 +219,399 @@ public class CSCFRMConfig {
 		return updateVisitsAndWeight;
 	}
 
+	/**
+	 * Indicates whether the engine must run CFR+ : cumulative regrets are
+	 * floored at zero after each update and each iteration's strategy is
+	 * weighted by the iteration number in the average strategy.
+	 * 
+	 * @return true if the engine must run CFR+
+	 */
+	public boolean isCfrPlus() {
+		return cfrPlus;
+	}
+
+	/**
+	 * Sets whether the engine must run CFR+. As the iteration number is read
+	 * from the utility manager, resumed executions keep the same weighting.
+	 * 
+	 * @param cfrPlus
+	 *            true to run CFR+
+	 */
+	public void setCfrPlus(boolean cfrPlus) {
+		this.cfrPlus = cfrPlus;
+	}
+
+	/**
+	 * Gets the iterations weighting schedule.
+	 * 
+	 * @return the weighting schedule, null for uniform weighting
+	 */
+	public CSCFRMDiscounting getDiscounting() {
+		return discounting;
+	}
+
+	/**
+	 * Sets the iterations weighting schedule, like Linear CFR or DCFR. Cannot
+	 * be combined with CFR+. The schedule is saved with the engine's state, and
+	 * a resumed execution continues the saved schedule.
+	 * 
+	 * @param discounting
+	 *            the weighting schedule, null for uniform weighting
+	 */
+	public void setDiscounting(CSCFRMDiscounting discounting) {
+		this.discounting = discounting;
+	}
+
+	/**
+	 * Gets the type of engine executors must create.
+	 * 
+	 * @return the engine type
+	 */
+	public CSCFRMEngineType getEngineType() {
+		return engineType;
+	}
+
+	/**
+	 * Sets the type of engine executors must create. Defaults to
+	 * {@link CSCFRMEngineType#CHANCE_SAMPLING}.
+	 * 
+	 * @param engineType
+	 *            the engine type
+	 */
+	public void setEngineType(CSCFRMEngineType engineType) {
+		this.engineType = checkNotNull(engineType,
+				"The engine type cannot be null");
+	}
+
+	/**
+	 * Gets the exploration epsilon of the outcome sampling engine.
+	 * 
+	 * @return the exploration epsilon
+	 */
+	public double getExplorationEpsilon() {
+		return explorationEpsilon;
+	}
+
+	/**
+	 * Sets the exploration epsilon of the outcome sampling engine : the
+	 * traversing player samples its actions uniformly with this probability,
+	 * and from its current strategy otherwise. Defaults to
+	 * {@link #defaultExplorationEpsilon}.
+	 * 
+	 * @param explorationEpsilon
+	 *            the exploration epsilon, in ]0, 1]
+	 */
+	public void setExplorationEpsilon(double explorationEpsilon) {
+		checkArgument(explorationEpsilon > 0 && explorationEpsilon <= 1,
+				"The exploration epsilon must be in ]0, 1]");
+		this.explorationEpsilon = explorationEpsilon;
+	}
+
+	/**
+	 * Indicates whether the sampling engines correct sampled utilities with
+	 * baselines.
+	 * 
+	 * @return true when variance reduction is enabled
+	 */
+	public boolean isVarianceReduction() {
+		return varianceReduction;
+	}
+
+	/**
+	 * Enables variance reduction for the external and outcome sampling
+	 * engines (VR-MCCFR). Player nodes then learn a baseline value of each
+	 * action for each player, and the utility of each sampled action is used
+	 * as a control variate against its baseline : unsampled actions are
+	 * valued by their baseline instead of zero, and the sampled one by its
+	 * baseline plus the importance-weighted difference. Estimates stay
+	 * unbiased while their variance shrinks as baselines learn. Other engines
+	 * refuse it.
+	 * 
+	 * @param varianceReduction
+	 *            true to enable variance reduction
+	 */
+	public void setVarianceReduction(boolean varianceReduction) {
+		this.varianceReduction = varianceReduction;
+	}
+
+	/**
+	 * Gets the learning rate of the sampling engines baselines.
+	 * 
+	 * @return the baselines learning rate
+	 */
+	public double getBaselineRate() {
+		return baselineRate;
+	}
+
+	/**
+	 * Sets the learning rate of the sampling engines baselines : on each
+	 * visit, the sampled action's baseline moves by this fraction of its
+	 * distance to the sampled utility. Defaults to
+	 * {@link #defaultBaselineRate}.
+	 * 
+	 * @param baselineRate
+	 *            the baselines learning rate, in ]0, 1]
+	 */
+	public void setBaselineRate(double baselineRate) {
+		checkArgument(baselineRate > 0 && baselineRate <= 1,
+				"The baseline rate must be in ]0, 1]");
+		this.baselineRate = baselineRate;
+	}
+
+	/**
+	 * Indicates whether the chance-sampling engine prunes actions on some
+	 * iterations.
+	 * 
+	 * @return true when pruning is enabled
+	 */
+	public boolean isPruning() {
+		return pruningThreshold > Double.NEGATIVE_INFINITY
+				&& pruningInterval > 1;
+	}
+
+	/**
+	 * Gets the regret under which the chance-sampling engine prunes an action.
+	 * 
+	 * @return the pruning threshold, negative infinity when disabled
+	 */
+	public double getPruningThreshold() {
+		return pruningThreshold;
+	}
+
+	/**
+	 * Gets the interval between two iterations that don't prune any action.
+	 * 
+	 * @return the full traversal interval
+	 */
+	public int getPruningInterval() {
+		return pruningInterval;
+	}
+
+	/**
+	 * Sets the regret-based pruning of the chance-sampling engine. On pruning
+	 * iterations, the subtree of an action isn't walked and its regret isn't
+	 * updated when the action has no probability in the iteration strategy and
+	 * its cumulative regret is under the threshold. Each iteration whose
+	 * number is a multiple of the full traversal interval walks all actions,
+	 * so that pruned actions can recover. As CFR+ floors regrets at zero, it
+	 * never prunes. Disabled by default.
+	 * <p>
+	 * This is a simplification of regret-based pruning, that skips each action
+	 * for the number of iterations its regret needs to get back to zero given
+	 * the node's maximal utility gap. Storing that per-action skip count would
+	 * grow every player node and the flat stores, so all actions share the
+	 * same fixed interval instead. A pruned action may thus be walked again
+	 * long before its regret could become positive, or stay pruned for a few
+	 * iterations after it could, which the full traversals bound.
+	 * </p>
+	 * 
+	 * @param threshold
+	 *            the regret threshold, must be < 0. Negative infinity
+	 *            disables pruning.
+	 * @param fullTraversalInterval
+	 *            the interval between two iterations that don't prune, must be
+	 *            > 0. One disables pruning.
+	 */
+	public void setPruning(double threshold, int fullTraversalInterval) {
+		checkArgument(threshold < 0, "The pruning threshold must be < 0");
+		checkArgument(fullTraversalInterval > 0,
+				"The full traversal interval must be > 0");
+		this.pruningThreshold = threshold;
+		this.pruningInterval = fullTraversalInterval;
+	}
+
+	/**
+	 * Indicates whether the engine must update player nodes without locking
+	 * them, even when multithreading.
+	 * 
+	 * @return true in hogwild mode
+	 */
+	public boolean isHogwild() {
+		return hogwild;
+	}
+
+	/**
+	 * Sets the hogwild mode : engines never lock player nodes, whatever
+	 * {@link #isLockPlayerNodes()}. Threads sharing a game then read and update
+	 * regrets and strategy sums concurrently. Races only lose or mix a few
+	 * updates, which doesn't prevent convergence, and threads don't serialize
+	 * any more on the most visited nodes. Visits and realization weights are
+	 * approximate, and so is the discounting of a node when two threads
+	 * discount it at the same time. Disabled by default.
+	 * 
+	 * @param hogwild
+	 *            true to never lock player nodes
+	 */
+	public void setHogwild(boolean hogwild) {
+		this.hogwild = hogwild;
+	}
+
+	/**
+	 * Gets the number of iterations between two merges of the engine's
+	 * buffered deltas.
+	 * 
+	 * @return the merge interval, zero when updates aren't buffered
+	 */
+	public int getDeltasMergeInterval() {
+		return deltasMergeInterval;
+	}
+
+	/**
+	 * Sets the deltas buffering : the engine accumulates player nodes regret,
+	 * strategy sum, visits and realization weight deltas in a private buffer,
+	 * and merges them into the nodes every merge interval iterations, locking
+	 * each node only while merging it when {@link #isLockPlayerNodes()}. As
+	 * engines then read strategies that can be late by up to the merge
+	 * interval, threads sharing a game never contend while walking it.
+	 * Executors merge pending deltas at the end of each run and before saving.
+	 * Cannot be combined with a discounting schedule. Disabled by default.
+	 * 
+	 * @param mergeInterval
+	 *            the number of iterations between two merges, zero to disable
+	 *            buffering
+	 */
+	public void setDeltasMergeInterval(int mergeInterval) {
+		checkArgument(mergeInterval >= 0, "The merge interval must be >= 0");
+		this.deltasMergeInterval = mergeInterval;
+	}
+
+	/**
+	 * Indicates whether the engine must measure the time it waits to lock
+	 * player nodes.
+	 * 
+	 * @return true when lock waits are measured
+	 */
+	public boolean isLockWaitTiming() {
+		return lockWaitTiming;
+	}
+
+	/**
+	 * Sets whether the engine must measure the time it waits to lock player
+	 * nodes, see {@link CSCFRMBaseEngine#getLockWaitNanos()}. Each lock then
+	 * costs two clock reads. Disabled by default.
+	 * 
+	 * @param lockWaitTiming
+	 *            true to measure lock waits
+	 */
+	public void setLockWaitTiming(boolean lockWaitTiming) {
+		this.lockWaitTiming = lockWaitTiming;
+	}
+
+	/**
+	 * Gets the number of iterations a multithread executor's thread claims at
+	 * once.
+	 * 
+	 * @return the iterations chunk size, zero for a static split
+	 */
+	public int getIterationsChunkSize() {
+		return iterationsChunkSize;
+	}
+
+	/**
+	 * Sets the dynamic scheduling of multithread executors : instead of
+	 * giving each thread an equal share of a run's iterations, threads
+	 * repeatedly claim chunks of this many iterations until none is left. A
+	 * thread slowed down by lock contention or the OS then just claims fewer
+	 * chunks instead of stalling the run. Smaller chunks balance better but
+	 * claim more often, and each chunk ends with a utility publication, see
+	 * {@link #setUtilityBatchSize(int)}. Zero by default for a static split.
+	 * 
+	 * @param iterationsChunkSize
+	 *            the iterations chunk size, zero for a static split
+	 */
+	public void setIterationsChunkSize(int iterationsChunkSize) {
+		checkArgument(iterationsChunkSize >= 0,
+				"The iterations chunk size must be >= 0");
+		this.iterationsChunkSize = iterationsChunkSize;
+	}
+
+	/**
+	 * Gets the maximum number of iterations whose utility the engine
+	 * accumulates before publishing it to its utility manager, when training
+	 * by batch.
+	 * 
+	 * @return the utility batch size
+	 */
+	public int getUtilityBatchSize() {
+		return utilityBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of iterations whose utility the engine
+	 * accumulates before publishing it to its utility manager, when training
+	 * by batch with {@link CSCFRMBaseEngine#train(int)}. Larger batches mean
+	 * fewer synchronizations on a shared utility manager, but iteration
+	 * numbers used by CFR+ and discounting then ignore the other threads
+	 * unpublished iterations. Defaults to {@value #defaultUtilityBatchSize}.
+	 * 
+	 * @param utilityBatchSize
+	 *            the utility batch size
+	 */
+	public void setUtilityBatchSize(int utilityBatchSize) {
+		checkArgument(utilityBatchSize > 0,
+				"The utility batch size must be > 0");
+		this.utilityBatchSize = utilityBatchSize;
+	}
+
+	/**
+	 * Gets the number of iterations a cyclic step's utility stripe
+	 * accumulates between two snapshots.
+	 * 
+	 * @return the utility snapshot interval, zero for no snapshots
+	 */
+	public int getUtilitySnapshotInterval() {
+		return utilitySnapshotInterval;
+	}
+
+	/**
+	 * Sets how cyclic steps executors publish the steps utility : each stripe
+	 * of a step's {@link CSCFRMMultithreadUtilityManager} publishes an
+	 * immutable snapshot every this many iterations, that the terminal nodes
+	 * of the other steps read without going through the stripes. Larger
+	 * intervals mean staler utilities. Zero makes terminal nodes read the
+	 * stripes each time. Defaults to {@value #defaultUtilitySnapshotInterval}.
+	 * 
+	 * @param utilitySnapshotInterval
+	 *            the utility snapshot interval, zero for no snapshots
+	 */
+	public void setUtilitySnapshotInterval(int utilitySnapshotInterval) {
+		checkArgument(utilitySnapshotInterval >= 0,
+				"The utility snapshot interval must be >= 0");
+		this.utilitySnapshotInterval = utilitySnapshotInterval;
+	}
+
+	/**
+	 * Gets the executions master seed.
+	 * 
+	 * @return the seed, null for unseeded executions
+	 */
+	public Long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the executions master seed. Executors then split a
+	 * {@link CSCFRMRandom} seeded with it into one stream per engine, used by
+	 * the engine and its game when it is a {@link CSCFRMSeedableGame}.
+	 * Monothread executions become reproducible, and so do each thread's
+	 * draws of a multithread execution. Null by default, for randoms seeded
+	 * by the system.
+	 * 
+	 * @param seed
+	 *            the seed, null for unseeded executions
+	 */
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates the master random of an execution.
+	 * 
+	 * @return a random seeded with {@link #getSeed()}, null for unseeded
+	 *         executions
+	 */
+	public CSCFRMRandom newMasterRandom() {
+		return seed == null ? null : new CSCFRMRandom(seed);
+	}
+
 }
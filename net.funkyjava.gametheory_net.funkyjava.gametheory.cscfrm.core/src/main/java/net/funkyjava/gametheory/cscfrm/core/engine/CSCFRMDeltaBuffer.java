@@ -0,0 +1,201 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import java.util.Arrays;
+
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * Engine-private buffer accumulating player nodes regret, strategy sum,
+ * visits and realization weight deltas, until they're merged into the shared
+ * nodes. Nodes are hashed by their offset when backed by a flat store, by
+ * their identity otherwise. Each node's segment holds its regret deltas, its
+ * strategy sum deltas, its realization weight delta and its visits delta.
+ *
+ * @author Pierre Mardon
+ */
+final class CSCFRMDeltaBuffer {
+
+	/** The hash table nodes. */
+	private Node[] keys = new Node[1024];
+
+	/** The hash table segments offsets. */
+	private int[] slots = new int[1024];
+
+	/** The buffered nodes, in insertion order. */
+	private Node[] nodes = new Node[512];
+
+	/** The buffered nodes segments offsets, in insertion order. */
+	private int[] offsets = new int[512];
+
+	/** The segments data. */
+	private double[] data = new double[4096];
+
+	/** The number of buffered nodes. */
+	private int nbNodes = 0;
+
+	/** The used size of {@link #data}. */
+	private int size = 0;
+
+	/**
+	 * Gets the offset of a node's segment, allocating it when the node isn't
+	 * buffered yet.
+	 *
+	 * @param node
+	 *            the player node
+	 * @return the segment's offset
+	 */
+	private int slot(final Node node) {
+		final Node[] keys = this.keys;
+		final int mask = keys.length - 1;
+		int h = (node.store != null ? node.offset : System
+				.identityHashCode(node)) * 0x9E3779B9;
+		h = (h ^ (h >>> 16)) & mask;
+		Node key;
+		while ((key = keys[h]) != null) {
+			if (key == node)
+				return slots[h];
+			h = (h + 1) & mask;
+		}
+		final int offset = size;
+		final int length = 2 * node.nbActions + 2;
+		if (offset + length > data.length)
+			data = Arrays.copyOf(data, Math.max(2 * data.length, offset
+					+ length));
+		size += length;
+		keys[h] = node;
+		slots[h] = offset;
+		if (nbNodes == nodes.length) {
+			nodes = Arrays.copyOf(nodes, 2 * nbNodes);
+			offsets = Arrays.copyOf(offsets, 2 * nbNodes);
+		}
+		nodes[nbNodes] = node;
+		offsets[nbNodes++] = offset;
+		// Keep the load factor under one half
+		if (2 * nbNodes > keys.length)
+			rehash();
+		return offset;
+	}
+
+	/**
+	 * Doubles the hash table's capacity.
+	 */
+	private void rehash() {
+		keys = new Node[2 * keys.length];
+		slots = new int[keys.length];
+		final int mask = keys.length - 1;
+		Node node;
+		int h;
+		for (int i = 0; i < nbNodes; i++) {
+			node = nodes[i];
+			h = (node.store != null ? node.offset : System
+					.identityHashCode(node)) * 0x9E3779B9;
+			h = (h ^ (h >>> 16)) & mask;
+			while (keys[h] != null)
+				h = (h + 1) & mask;
+			keys[h] = node;
+			slots[h] = offsets[i];
+		}
+	}
+
+	/**
+	 * Buffers regret deltas.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param deltas
+	 *            the regret deltas
+	 * @param nbActions
+	 *            the node's number of actions
+	 */
+	void addRegrets(final Node node, final double[] deltas,
+			final int nbActions) {
+		final int offset = slot(node);
+		final double[] data = this.data;
+		for (int a = 0; a < nbActions; a++)
+			data[offset + a] += deltas[a];
+	}
+
+	/**
+	 * Buffers a weighted strategy.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param strategy
+	 *            the strategy
+	 * @param nbActions
+	 *            the node's number of actions
+	 * @param weight
+	 *            the weight
+	 */
+	void addStrategy(final Node node, final double[] strategy,
+			final int nbActions, final double weight) {
+		final int offset = slot(node) + nbActions;
+		final double[] data = this.data;
+		for (int a = 0; a < nbActions; a++)
+			data[offset + a] += weight * strategy[a];
+	}
+
+	/**
+	 * Buffers a visit.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param realWeight
+	 *            the visit's realization weight
+	 */
+	void addVisit(final Node node, final double realWeight) {
+		final int offset = slot(node) + 2 * node.nbActions;
+		data[offset] += realWeight;
+		data[offset + 1]++;
+	}
+
+	/**
+	 * Gets the number of buffered nodes.
+	 *
+	 * @return the number of buffered nodes
+	 */
+	int getNbNodes() {
+		return nbNodes;
+	}
+
+	/**
+	 * Gets a buffered node.
+	 *
+	 * @param index
+	 *            the node's insertion index
+	 * @return the node
+	 */
+	Node getNode(final int index) {
+		return nodes[index];
+	}
+
+	/**
+	 * Gets the offset of a buffered node's segment in {@link #getData()}.
+	 *
+	 * @param index
+	 *            the node's insertion index
+	 * @return the offset
+	 */
+	int getOffset(final int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Gets the segments data.
+	 *
+	 * @return the data
+	 */
+	double[] getData() {
+		return data;
+	}
+
+	/**
+	 * Forgets all buffered deltas.
+	 */
+	void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(nodes, 0, nbNodes, null);
+		Arrays.fill(data, 0, size, 0);
+		nbNodes = size = 0;
+	}
+}
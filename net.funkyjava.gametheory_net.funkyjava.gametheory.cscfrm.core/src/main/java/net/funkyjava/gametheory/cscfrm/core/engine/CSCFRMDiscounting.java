@@ -0,0 +1,245 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Iteration weighting schedule of Discounted CFR. At the end of each iteration
+ * t, the cumulative regrets are multiplied by t^alpha / (t^alpha + 1) when
+ * positive and by t^beta / (t^beta + 1) when negative, and the strategy sums
+ * are multiplied by (t / (t + 1))^gamma. Linear CFR is the (1, 1, 1) schedule.
+ * <p>
+ * The engine applies those factors lazily : each player node remembers the
+ * iteration up to which it was discounted, and the pending factors are
+ * applied at once on its next visit. This class provides the product of the
+ * factors between two iterations.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class CSCFRMDiscounting {
+
+	/**
+	 * Number of iterations for which regret factors are multiplied one by one.
+	 * Beyond, the product is approximated by an integral.
+	 */
+	private static final int exactTerms = 64;
+
+	/** Number of intervals of the integral approximation. */
+	private static final int integralIntervals = 64;
+
+	/** The positive regrets exponent. */
+	private final double alpha;
+
+	/** The negative regrets exponent. */
+	private final double beta;
+
+	/** The strategy sums exponent. */
+	private final double gamma;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param alpha
+	 *            the positive regrets exponent
+	 * @param beta
+	 *            the negative regrets exponent
+	 * @param gamma
+	 *            the strategy sums exponent, must be >= 0
+	 */
+	public CSCFRMDiscounting(double alpha, double beta, double gamma) {
+		checkArgument(!Double.isNaN(alpha) && !Double.isInfinite(alpha),
+				"Alpha must be a finite number");
+		checkArgument(!Double.isNaN(beta) && !Double.isInfinite(beta),
+				"Beta must be a finite number");
+		checkArgument(gamma >= 0 && !Double.isInfinite(gamma),
+				"Gamma must be a finite number >= 0");
+		this.alpha = alpha;
+		this.beta = beta;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Gets the Linear CFR schedule : each iteration is weighted by its number.
+	 *
+	 * @return the Linear CFR schedule
+	 */
+	public static CSCFRMDiscounting linear() {
+		return new CSCFRMDiscounting(1, 1, 1);
+	}
+
+	/**
+	 * Gets the DCFR schedule with the recommended parameters alpha = 1.5, beta
+	 * = 0 and gamma = 2.
+	 *
+	 * @return the DCFR schedule
+	 */
+	public static CSCFRMDiscounting dcfr() {
+		return new CSCFRMDiscounting(1.5, 0, 2);
+	}
+
+	/**
+	 * Gets the positive regrets exponent.
+	 *
+	 * @return alpha
+	 */
+	public double getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Gets the negative regrets exponent.
+	 *
+	 * @return beta
+	 */
+	public double getBeta() {
+		return beta;
+	}
+
+	/**
+	 * Gets the strategy sums exponent.
+	 *
+	 * @return gamma
+	 */
+	public double getGamma() {
+		return gamma;
+	}
+
+	/**
+	 * Gets the factor of positive regrets for the iterations from
+	 * <code>from</code> included to <code>to</code> excluded.
+	 *
+	 * @param from
+	 *            the first iteration, must be > 0
+	 * @param to
+	 *            the end iteration
+	 * @return the factor
+	 */
+	public double positiveRegretsFactor(long from, long to) {
+		return regretsFactor(alpha, from, to);
+	}
+
+	/**
+	 * Gets the factor of negative regrets for the iterations from
+	 * <code>from</code> included to <code>to</code> excluded.
+	 *
+	 * @param from
+	 *            the first iteration, must be > 0
+	 * @param to
+	 *            the end iteration
+	 * @return the factor
+	 */
+	public double negativeRegretsFactor(long from, long to) {
+		return regretsFactor(beta, from, to);
+	}
+
+	/**
+	 * Gets the factor of strategy sums for the iterations from
+	 * <code>from</code> included to <code>to</code> excluded. The product
+	 * telescopes to (from / to)^gamma.
+	 *
+	 * @param from
+	 *            the first iteration, must be > 0
+	 * @param to
+	 *            the end iteration
+	 * @return the factor
+	 */
+	public double strategyFactor(long from, long to) {
+		if (to <= from || gamma == 0)
+			return 1;
+		return Math.pow((double) from / to, gamma);
+	}
+
+	/**
+	 * Product of k^e / (k^e + 1) for k from <code>from</code> included to
+	 * <code>to</code> excluded.
+	 *
+	 * @param exponent
+	 *            the exponent e
+	 * @param from
+	 *            the first iteration
+	 * @param to
+	 *            the end iteration
+	 * @return the product
+	 */
+	private static double regretsFactor(double exponent, long from, long to) {
+		if (to <= from)
+			return 1;
+		double log = 0;
+		long k = from;
+		final long exactEnd = to - from > exactTerms ? from + exactTerms : to;
+		for (; k < exactEnd; k++)
+			log -= Math.log1p(Math.pow(k, -exponent));
+		if (k < to) {
+			// Each term is at most 1/2 : the product is already negligible
+			if (exponent <= 0)
+				return 0;
+			log -= integral(exponent, k - 0.5, to - 0.5);
+		}
+		return Math.exp(log);
+	}
+
+	/**
+	 * Approximates the integral of log(1 + x^-e) between a and b with the
+	 * Simpson rule over ln(x).
+	 *
+	 * @param exponent
+	 *            the exponent e
+	 * @param a
+	 *            the lower bound
+	 * @param b
+	 *            the upper bound
+	 * @return the integral
+	 */
+	private static double integral(double exponent, double a, double b) {
+		final double lnA = Math.log(a);
+		final double h = (Math.log(b) - lnA) / integralIntervals;
+		double sum = 0;
+		double x;
+		for (int i = 0; i <= integralIntervals; i++) {
+			x = Math.exp(lnA + i * h);
+			sum += (i == 0 || i == integralIntervals ? 1 : (i % 2 == 1 ? 4
+					: 2)) * x * Math.log1p(Math.pow(x, -exponent));
+		}
+		return sum * h / 3;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CSCFRMDiscounting))
+			return false;
+		final CSCFRMDiscounting other = (CSCFRMDiscounting) obj;
+		return Double.compare(alpha, other.alpha) == 0
+				&& Double.compare(beta, other.beta) == 0
+				&& Double.compare(gamma, other.gamma) == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(alpha);
+		bits = 31 * bits + Double.doubleToLongBits(beta);
+		bits = 31 * bits + Double.doubleToLongBits(gamma);
+		return (int) (bits ^ (bits >>> 32));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DCFR(" + alpha + ", " + beta + ", " + gamma + ")";
+	}
+}
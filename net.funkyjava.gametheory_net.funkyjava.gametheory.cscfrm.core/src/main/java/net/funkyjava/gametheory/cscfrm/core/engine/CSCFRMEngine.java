@@ -1,22 +1,19 @@
 package net.funkyjava.gametheory.cscfrm.core.engine;
 
-import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkNotNull;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
 
 /**
- * Chance-Sampling Counter Factual Regret Minimization algorithm implementation
+ * Chance-Sampling Counter Factual Regret Minimization algorithm implementation.
+ * Can run CFR+ when enabled by {@link CSCFRMConfig#setCfrPlus(boolean)}, or
+ * discount iterations with the schedule set by
+ * {@link CSCFRMConfig#setDiscounting(CSCFRMDiscounting)}. Actions with a
+ * highly negative regret can be pruned, see
+ * {@link CSCFRMConfig#setPruning(double, int)}.
  * 
  * @author Pierre Mardon
  */
-public final class CSCFRMEngine {
-
-	/** The game on which the engine will run. */
-	private final CSCFRMBaseGame game;
-
-	/** The number of players. */
-	private final int nbPlayers;
+public final class CSCFRMEngine extends CSCFRMBaseEngine {
 
 	/** Iteration nodes indexed by depth. */
 	private final Node[] iterNodes;
@@ -39,26 +36,14 @@ public final class CSCFRMEngine {
 	/** The zero array to reset utility. */
 	private final double[] zero;
 
-	/** The engine's utility manager. */
-	private CSCFRMUtilityManager utilMgr;
+	/** The player nodes regret deltas, used when coming back to a node. */
+	private final double[] regretDeltas;
 
-	/** The terminal utility reader. */
-	private CSCFRMTerminalUtilReader termUtils;
+	/** The player nodes pruned actions, indexed by depth. */
+	private final boolean[][] pruned;
 
-	/** Boolean to indicate if the engine must lock player nodes. */
-	private boolean lockPlayersNodes = true;
-
-	/**
-	 * Indicates whether the engine must update player nodes visits and
-	 * realization weight or not.
-	 */
-	private boolean updateVisits = true;
-
-	/**
-	 * Boolean to indicate if the engine must read the utility of terminal nodes
-	 * with an id >= 0 from {@link #termUtils}.
-	 */
-	private boolean readTerminalUtil = false;
+	/** The player nodes cumulative regrets, read to prune actions. */
+	private final double[] regrets;
 
 	/**
 	 * The Constructor.
@@ -67,11 +52,7 @@ public final class CSCFRMEngine {
 	 *            the game
 	 */
 	public CSCFRMEngine(CSCFRMBaseGame game) {
-		this.game = checkNotNull(game, "The game cannot be null");
-		checkArgument(game.getNbPlayers() > 1,
-				"Game must have at least two players");
-		this.nbPlayers = game.getNbPlayers();
-		checkArgument(game.getMaxDepth() > 0, "Game's max depth must be > 0");
+		super(game);
 		int depth = game.getMaxDepth();
 		zero = new double[nbPlayers];
 		iterNodes = new Node[depth];
@@ -79,35 +60,20 @@ public final class CSCFRMEngine {
 		util = new double[depth][nbPlayers];
 		realizationWeight = new double[depth][nbPlayers];
 		pNodesUtil = new double[depth][game.getMaxNbPlActions()][nbPlayers];
-		utilMgr = new CSCFRMUtilityManager(nbPlayers);
 		strategies = new double[depth][game.getMaxNbPlActions()];
+		regretDeltas = new double[game.getMaxNbPlActions()];
+		pruned = new boolean[depth][game.getMaxNbPlActions()];
+		regrets = new double[game.getMaxNbPlActions()];
 	}
 
-	/**
-	 * Sets the config.
-	 * 
-	 * @param config
-	 *            the config
-	 */
-	public void setConfig(CSCFRMConfig config) {
-		checkNotNull(config, "Trying to set a null configuration to engine");
-		this.lockPlayersNodes = config.isLockPlayerNodes();
-		updateVisits = config.isUpdateVisitsAndWeight();
-		this.termUtils = config.getTermUtilReader();
-		this.readTerminalUtil = termUtils != null;
-		if (config.getUtilityManager() != null)
-			this.utilMgr = config.getUtilityManager();
-	}
-
-	/**
-	 * Train.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @throws Exception
-	 *             any exception that can be caused by a malformed game
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#train()
 	 */
+	@Override
 	public void train() throws Exception {
 		double weight;
-		double totalRegret;
 		int a;
 		int i;
 		int p;
@@ -121,10 +87,9 @@ public final class CSCFRMEngine {
 		double[] itUtil;
 		double[] itNextUtil;
 		double[] itStrat;
-		double[] itRegret;
 		double[] itReal;
 		double[] itNextReal;
-		double[] stratSum;
+		boolean[] itPruned;
 
 		final boolean readTerminalUtil = this.readTerminalUtil;
 		final boolean updateVisits = this.updateVisits;
@@ -139,6 +104,18 @@ public final class CSCFRMEngine {
 		final CSCFRMTerminalUtilReader termUtils = readTerminalUtil ? this.termUtils
 				: null;
 		final boolean lockPlayersNodes = this.lockPlayersNodes;
+		final double[] regretDeltas = this.regretDeltas;
+		final CSCFRMDiscounting discounting = this.discounting;
+		final long iteration = nextIteration();
+		// CFR+ weights each iteration's strategy by the iteration number
+		final double stratWeight = cfrPlus ? iteration : 1;
+		// Each pruning interval, an iteration walks all actions
+		final boolean prune = pruning && iteration % pruningInterval != 0;
+		final double pruningThreshold = this.pruningThreshold;
+		final boolean[][] pruned = this.pruned;
+		final double[] regrets = this.regrets;
+		if (discounting != null)
+			prepareDiscounting(iteration);
 
 		for (i = 0; i < nbPlayers; i++)
 			realizationWeight[0][i] = 1;
@@ -172,28 +149,33 @@ public final class CSCFRMEngine {
 					continue;
 				}
 				// Player
-				iterNodeLastAction[depth] = 0;
-				totalRegret = 0;
-				itRegret = node.regretSum;
 				itStrat = strategies[depth];
 				player = node.player;
-				nbActions = (stratSum = node.stratSum).length;
+				nbActions = node.nbActions;
 				weight = (itReal = realizationWeight[depth])[player];
 				System.arraycopy(itReal, 0,
 						itNextReal = realizationWeight[nextDepth], 0, nbPlayers);
 				if (lockPlayersNodes)
-					node.lock();
-				for (a = 0; a < nbActions; a++)
-					totalRegret += itStrat[a] = (itRegret[a] > 0 ? itRegret[a]
-							: 0);
-				if (totalRegret > 0)
-					for (a = 0; a < nbActions; a++)
-						stratSum[a] += weight * (itStrat[a] /= totalRegret);
-				else
+					lockNode(node);
+				if (discounting != null)
+					discount(node, iteration);
+				readStrategy(node, itStrat, nbActions);
+				addStrategy(node, itStrat, nbActions, stratWeight * weight);
+				action = 0;
+				if (prune) {
+					// Only actions out of the strategy can be pruned, so that at
+					// least one action is walked
+					readRegrets(node, regrets, nbActions);
+					itPruned = pruned[depth];
 					for (a = 0; a < nbActions; a++)
-						stratSum[a] += weight * (itStrat[a] = 1.0 / nbActions);
-				itNextReal[player] *= itStrat[0];
-				game.onPlayerActionChosen(0);
+						itPruned[a] = itStrat[a] == 0
+								&& regrets[a] < pruningThreshold;
+					while (itPruned[action])
+						action++;
+				}
+				iterNodeLastAction[depth] = action;
+				itNextReal[player] *= itStrat[action];
+				game.onPlayerActionChosen(action);
 				continue;
 			}
 			game.back();
@@ -214,55 +196,43 @@ public final class CSCFRMEngine {
 			// Player
 			player = node.player;
 			itStrat = strategies[depth];
-			nbActions = (itRegret = node.regretSum).length;
+			nbActions = node.nbActions;
 			action = iterNodeLastAction[depth];
 			for (p = 0; p < nbPlayers; p++)
 				itUtil[p] += itStrat[action]
 						* (pNodesUtil[depth][action][p] = itNextUtil[p]);
 			itReal = realizationWeight[depth];
-			if (nbActions - 1 == action) {
+			itPruned = pruned[depth];
+			if (prune)
+				while (++action < nbActions && itPruned[action])
+					;
+			else
+				action++;
+			if (action == nbActions) {
 				weight = 1;
 				for (p = 0; p < nbPlayers; p++)
 					if (p != player)
 						weight *= itReal[p];
 				for (a = 0; a < nbActions; a++)
-					itRegret[a] += weight
+					regretDeltas[a] = prune && itPruned[a] ? 0 : weight
 							* (pNodesUtil[depth][a][player] - itUtil[player]);
-				if (updateVisits) {
-					node.visits++;
-					node.realWeightSum += weight;
-				}
+				addRegrets(node, regretDeltas, nbActions);
+				if (updateVisits)
+					addVisit(node, weight);
 				if (lockPlayersNodes)
 					node.unlock();
 				if (depth > 0)
 					continue;
 				break;
 			}
-			action = ++iterNodeLastAction[depth];
+			iterNodeLastAction[depth] = action;
 			forward = true;
 			System.arraycopy(itReal, 0,
 					itNextReal = realizationWeight[nextDepth], 0, nbPlayers);
 			itNextReal[player] *= itStrat[action];
 			game.onPlayerActionChosen(action);
 		}
-		utilMgr.addIterUtil(itUtil);
-	}
-
-	/**
-	 * Gets the utility manager.
-	 * 
-	 * @return the utility manager
-	 */
-	public CSCFRMUtilityManager getUtilManager() {
-		return utilMgr;
-	}
-
-	/**
-	 * Gets the game.
-	 * 
-	 * @return the game
-	 */
-	public CSCFRMBaseGame getGame() {
-		return game;
+		addIterUtil(itUtil);
+		endIteration();
 	}
 }
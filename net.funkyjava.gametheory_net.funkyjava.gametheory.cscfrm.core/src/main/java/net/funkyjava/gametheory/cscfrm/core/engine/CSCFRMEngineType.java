@@ -0,0 +1,57 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
+
+/**
+ * The engines that executors can run, see
+ * {@link CSCFRMConfig#setEngineType(CSCFRMEngineType)}.
+ * 
+ * @author Pierre Mardon
+ */
+public enum CSCFRMEngineType {
+
+	/** The chance-sampling {@link CSCFRMEngine}. */
+	CHANCE_SAMPLING {
+		@Override
+		public CSCFRMBaseEngine newEngine(CSCFRMBaseGame game) {
+			return new CSCFRMEngine(game);
+		}
+	},
+
+	/** The external-sampling {@link ESCFRMEngine}. */
+	EXTERNAL_SAMPLING {
+		@Override
+		public CSCFRMBaseEngine newEngine(CSCFRMBaseGame game) {
+			return new ESCFRMEngine(game);
+		}
+	},
+
+	/** The outcome-sampling {@link OSCFRMEngine}. */
+	OUTCOME_SAMPLING {
+		@Override
+		public CSCFRMBaseEngine newEngine(CSCFRMBaseGame game) {
+			return new OSCFRMEngine(game);
+		}
+	},
+
+	/**
+	 * The {@link CSCFRMTapeEngine}, for {@link CSCFRMChanceIndexedGame}s
+	 * only.
+	 */
+	GAME_TAPE {
+		@Override
+		public CSCFRMBaseEngine newEngine(CSCFRMBaseGame game) {
+			return CSCFRMTapeEngine.forGame(game);
+		}
+	};
+
+	/**
+	 * Creates an engine of this type.
+	 * 
+	 * @param game
+	 *            the game on which the engine will run
+	 * @return the engine
+	 */
+	public abstract CSCFRMBaseEngine newEngine(CSCFRMBaseGame game);
+}
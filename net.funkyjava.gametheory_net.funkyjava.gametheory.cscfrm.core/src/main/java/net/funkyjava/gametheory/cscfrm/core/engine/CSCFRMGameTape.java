@@ -0,0 +1,343 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * Flat representation of a {@link CSCFRMChanceIndexedGame}'s tree, compiled
+ * by walking the game once for each deal. Chance nodes are resolved by the
+ * deals and don't appear. Positions are numbered in depth-first order, the
+ * root being zero, and their type, player, number of actions and children are
+ * stored in arrays. The node reached at each position for each deal is stored
+ * in a deal-major array.
+ * <p>
+ * The tape references the game's nodes rather than the offsets of their data
+ * in a {@link net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore},
+ * so that it works with any nodes provider and the engine keeps updating
+ * player nodes through their own methods, locks included. Walking it costs one
+ * more indirection per player position than reading the store directly : the
+ * node's object is loaded before its segment of the store, or before its own
+ * arrays. With compressed references, the nodes array takes as much memory as
+ * an offsets array would.
+ * </p>
+ * <p>
+ * The tape doesn't keep the per-depth pruned actions that
+ * {@link CSCFRMEngine} computes, so {@link CSCFRMTapeEngine} walks all actions
+ * on every iteration and ignores {@link CSCFRMConfig#setPruning(double, int)}.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class CSCFRMGameTape {
+
+	/** The number of positions. */
+	final int nbPositions;
+
+	/** The number of deals. */
+	final int nbDeals;
+
+	/** The positions byte types, see {@link Node#bType}. */
+	final byte[] types;
+
+	/** The positions players, -1 for terminal positions. */
+	final int[] players;
+
+	/** The positions number of actions, zero for terminal positions. */
+	final int[] nbActions;
+
+	/** The offset of each position's children in {@link #children}. */
+	final int[] firstChild;
+
+	/** The children positions. */
+	final int[] children;
+
+	/** The nodes, indexed by deal * {@link #nbPositions} + position. */
+	final Node[] nodes;
+
+	/** The cumulative probabilities of the deals. */
+	final double[] cumulativeProbabilities;
+
+	/** The maximum number of positions of a path from the root. */
+	final int maxDepth;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param builder
+	 *            the compiler holding the tape's data
+	 */
+	private CSCFRMGameTape(Compiler builder) {
+		nbPositions = builder.nbPositions;
+		nbDeals = builder.nbDeals;
+		types = Arrays.copyOf(builder.types, nbPositions);
+		players = Arrays.copyOf(builder.players, nbPositions);
+		nbActions = Arrays.copyOf(builder.nbActions, nbPositions);
+		firstChild = Arrays.copyOf(builder.firstChild, nbPositions);
+		children = Arrays.copyOf(builder.children, builder.nbChildren);
+		nodes = builder.nodes;
+		cumulativeProbabilities = builder.cumulativeProbabilities;
+		maxDepth = builder.maxDepth;
+	}
+
+	/**
+	 * Compiles a game's tape. The game is walked for each deal, so that
+	 * compiling costs as much as a full tree traversal per deal.
+	 *
+	 * @param game
+	 *            the game
+	 * @return the tape
+	 */
+	public static CSCFRMGameTape compile(CSCFRMChanceIndexedGame game) {
+		checkNotNull(game, "The game is null");
+		final int nbDeals = game.getNbDeals();
+		checkArgument(nbDeals > 0, "The game must have at least one deal");
+		return new CSCFRMGameTape(new Compiler(game, nbDeals));
+	}
+
+	/**
+	 * Gets the number of positions.
+	 *
+	 * @return the number of positions
+	 */
+	public int getNbPositions() {
+		return nbPositions;
+	}
+
+	/**
+	 * Gets the number of deals.
+	 *
+	 * @return the number of deals
+	 */
+	public int getNbDeals() {
+		return nbDeals;
+	}
+
+	/**
+	 * Gets the maximum number of positions of a path from the root.
+	 *
+	 * @return the maximum depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Gets the node reached at a position for a deal.
+	 *
+	 * @param deal
+	 *            the deal
+	 * @param position
+	 *            the position
+	 * @return the node
+	 */
+	public Node getNode(int deal, int position) {
+		return nodes[deal * nbPositions + position];
+	}
+
+	/**
+	 * Gets a position's byte type, see {@link Node#bType}.
+	 *
+	 * @param position
+	 *            the position
+	 * @return the byte type
+	 */
+	public byte getType(int position) {
+		return types[position];
+	}
+
+	/**
+	 * Gets a position's player.
+	 *
+	 * @param position
+	 *            the position
+	 * @return the player, -1 for terminal positions
+	 */
+	public int getPlayer(int position) {
+		return players[position];
+	}
+
+	/**
+	 * Gets a position's number of actions.
+	 *
+	 * @param position
+	 *            the position
+	 * @return the number of actions, zero for terminal positions
+	 */
+	public int getNbActions(int position) {
+		return nbActions[position];
+	}
+
+	/**
+	 * Gets the position reached by an action. Children positions are always
+	 * greater than their parent's.
+	 *
+	 * @param position
+	 *            the parent position
+	 * @param action
+	 *            the action
+	 * @return the child position
+	 */
+	public int getChild(int position, int action) {
+		return children[firstChild[position] + action];
+	}
+
+	/**
+	 * Gets a deal's probability, normalized by the sum of the probabilities
+	 * the game provided.
+	 *
+	 * @param deal
+	 *            the deal
+	 * @return the deal's probability
+	 */
+	public double getDealProbability(int deal) {
+		final double[] cumulative = cumulativeProbabilities;
+		return (deal == 0 ? cumulative[0] : cumulative[deal]
+				- cumulative[deal - 1])
+				/ cumulative[nbDeals - 1];
+	}
+
+	/**
+	 * Walks the game to fill the tape's arrays.
+	 */
+	private static final class Compiler {
+
+		private final CSCFRMChanceIndexedGame game;
+		private final int nbDeals;
+		private int nbPositions = 0;
+		private byte[] types = new byte[64];
+		private int[] players = new int[64];
+		private int[] nbActions = new int[64];
+		private int[] firstChild = new int[64];
+		private int[] children = new int[64];
+		private int nbChildren = 0;
+		private Node[] nodes;
+		private final double[] cumulativeProbabilities;
+		private int maxDepth = 0;
+
+		/** The next position to walk when checking deals after the first. */
+		private int position;
+
+		/**
+		 * The Constructor. Compiles the game.
+		 *
+		 * @param game
+		 *            the game
+		 * @param nbDeals
+		 *            the number of deals
+		 */
+		private Compiler(CSCFRMChanceIndexedGame game, int nbDeals) {
+			this.game = game;
+			this.nbDeals = nbDeals;
+			cumulativeProbabilities = new double[nbDeals];
+			double total = 0;
+			double proba;
+			Node[] firstDeal = new Node[64];
+			for (int deal = 0; deal < nbDeals; deal++) {
+				proba = game.getDealProbability(deal);
+				checkArgument(proba >= 0, "Deal %s has a negative probability",
+						deal);
+				cumulativeProbabilities[deal] = total += proba;
+				game.onIterationStart(deal);
+				if (deal == 0) {
+					firstDeal = walkFirst(firstDeal, 1);
+					nodes = new Node[nbDeals * nbPositions];
+					System.arraycopy(firstDeal, 0, nodes, 0, nbPositions);
+					continue;
+				}
+				position = 0;
+				walk(deal * nbPositions);
+				checkArgument(position == nbPositions,
+						"Deal %s has less positions than the first deal", deal);
+			}
+			checkArgument(total > 0, "The deals probabilities sum is zero");
+		}
+
+		/**
+		 * Walks the first deal's subtree of the game's current node, and
+		 * allocates its positions.
+		 *
+		 * @param dealNodes
+		 *            the first deal's nodes array
+		 * @param depth
+		 *            the number of positions on the path, this one included
+		 * @return the first deal's nodes array, possibly grown
+		 */
+		private Node[] walkFirst(Node[] dealNodes, final int depth) {
+			Node node = game.getCurrentNode();
+			if (node.bType == 0) {
+				// Chance : resolved by the deal
+				game.choseChanceAction();
+				dealNodes = walkFirst(dealNodes, depth);
+				game.back();
+				return dealNodes;
+			}
+			if (depth > maxDepth)
+				maxDepth = depth;
+			final int pos = nbPositions++;
+			if (pos == types.length) {
+				types = Arrays.copyOf(types, 2 * pos);
+				players = Arrays.copyOf(players, 2 * pos);
+				nbActions = Arrays.copyOf(nbActions, 2 * pos);
+				firstChild = Arrays.copyOf(firstChild, 2 * pos);
+			}
+			if (pos == dealNodes.length)
+				dealNodes = Arrays.copyOf(dealNodes, 2 * pos);
+			dealNodes[pos] = node;
+			types[pos] = node.bType;
+			if (node.bType == 2) {
+				players[pos] = -1;
+				return dealNodes;
+			}
+			final int n = nbActions[pos] = node.nbActions;
+			players[pos] = node.player;
+			final int first = firstChild[pos] = nbChildren;
+			nbChildren += n;
+			if (nbChildren > children.length)
+				children = Arrays.copyOf(children,
+						Math.max(2 * children.length, nbChildren));
+			for (int a = 0; a < n; a++) {
+				children[first + a] = nbPositions;
+				game.onPlayerActionChosen(a);
+				dealNodes = walkFirst(dealNodes, depth + 1);
+				game.back();
+			}
+			return dealNodes;
+		}
+
+		/**
+		 * Walks another deal's subtree of the game's current node, checking
+		 * its shape against the first deal's.
+		 *
+		 * @param offset
+		 *            the deal's offset in the nodes array
+		 */
+		private void walk(final int offset) {
+			final Node node = game.getCurrentNode();
+			if (node.bType == 0) {
+				game.choseChanceAction();
+				walk(offset);
+				game.back();
+				return;
+			}
+			final int pos = position++;
+			checkArgument(pos < nbPositions && types[pos] == node.bType,
+					"The game's tree shape depends on the deal");
+			nodes[offset + pos] = node;
+			if (node.bType == 2)
+				return;
+			checkArgument(players[pos] == node.player
+					&& nbActions[pos] == node.nbActions,
+					"The game's tree shape depends on the deal");
+			for (int a = 0; a < node.nbActions; a++) {
+				game.onPlayerActionChosen(a);
+				walk(offset);
+				game.back();
+			}
+		}
+	}
+}
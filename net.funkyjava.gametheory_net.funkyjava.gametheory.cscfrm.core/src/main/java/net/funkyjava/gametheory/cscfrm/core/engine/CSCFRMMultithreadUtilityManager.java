@@ -1,46 +1,358 @@
 package net.funkyjava.gametheory.cscfrm.core.engine;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 /**
- * An extension of {@link CSCFRMUtilityManager} that provides proper
- * synchronization for multithreading and the {@link #read(double[])} method to
- * copy current utility safely.
- * 
+ * An extension of {@link CSCFRMUtilityManager} that can be shared by several
+ * threads without a global lock. Utility is accumulated in stripes : each
+ * thread writes in its own stripe, protected by a sequence number that
+ * writers make odd while writing. Readers sum all stripes and start over when
+ * a writer updated one meanwhile, so {@link #read(double[])} always gets the
+ * average of complete iterations. Readers never block writers.
+ * <p>
+ * Like {@link java.util.concurrent.atomic.LongAdder}'s cells, a thread's
+ * stripe is picked from a per thread probe, and a writer that finds its stripe
+ * taken by another writer moves its probe to another stripe instead of waiting.
+ * With at least as many stripes as threads, the threads sharing a manager
+ * quickly settle on distinct stripes, whatever the probes of the threads
+ * created before them. With fewer stripes, writers keep moving between busy
+ * stripes.
+ * </p>
+ * <p>
+ * Readers that can afford a slightly stale utility, like the terminal nodes
+ * of cyclic steps games, can use {@link #readSnapshot(double[])} instead : a
+ * writer publishes an immutable snapshot of the average utility each time its
+ * stripe crosses a multiple of the snapshot interval, and reading it is a
+ * single volatile read and copy whatever the number of stripes.
+ * </p>
+ *
  * @author Pierre Mardon
  */
 public class CSCFRMMultithreadUtilityManager extends CSCFRMUtilityManager {
 
-	/** The i :). */
-	private int i;
+	/**
+	 * The number of longs of a stripe, a multiple of 16 so that two stripes
+	 * never share a cache line or an adjacent-line prefetch pair.
+	 */
+	private static final int stripeAlign = 16;
 
 	/**
-	 * The Constructor.
-	 * 
+	 * The increment between two threads initial probes, odd so that
+	 * consecutive probes map to distinct stripes.
+	 */
+	private static final int probeIncrement = 0x9e3779b9;
+
+	/** The source of the threads initial probes. */
+	private static final AtomicInteger nextProbe = new AtomicInteger();
+
+	/**
+	 * Each thread's probe, mapped to a stripe by each manager. Never zero so
+	 * that rehashing it never gets stuck.
+	 */
+	private static final ThreadLocal<int[]> probe = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			final int p = nextProbe.addAndGet(probeIncrement);
+			return new int[] { p == 0 ? 1 : p };
+		}
+	};
+
+	/**
+	 * The stripes. A stripe's first long is its sequence number, the second
+	 * its iterations count, then come the raw bits of each player's utility
+	 * sum.
+	 */
+	private final AtomicLongArray stripes;
+
+	/** The number of longs of a stripe. */
+	private final int stripeLength;
+
+	/** The mask mapping a probe to a stripe. */
+	private final int stripeMask;
+
+	/** The iterations of a stripe between two snapshots, zero for none. */
+	private final int snapshotInterval;
+
+	/** The last published average utility, never modified. */
+	private volatile double[] snapshot;
+
+	/**
+	 * The Constructor. Creates a stripe per available processor.
+	 *
 	 * @param nbPlayers
 	 *            the nb players
 	 */
 	public CSCFRMMultithreadUtilityManager(int nbPlayers) {
+		this(nbPlayers, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param nbPlayers
+	 *            the nb players
+	 * @param nbStripes
+	 *            the minimum number of stripes, rounded up to a power of two.
+	 *            Should be at least the number of threads sharing the manager.
+	 */
+	public CSCFRMMultithreadUtilityManager(int nbPlayers, int nbStripes) {
+		this(nbPlayers, nbStripes, 0);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param nbPlayers
+	 *            the nb players
+	 * @param nbStripes
+	 *            the minimum number of stripes, rounded up to a power of two.
+	 *            Should be at least the number of threads sharing the manager.
+	 * @param snapshotInterval
+	 *            the number of iterations a stripe accumulates between two
+	 *            snapshots publications, zero to read the stripes on each
+	 *            {@link #readSnapshot(double[])}
+	 */
+	public CSCFRMMultithreadUtilityManager(int nbPlayers, int nbStripes,
+			int snapshotInterval) {
 		super(nbPlayers);
+		checkArgument(snapshotInterval >= 0,
+				"The snapshot interval must be >= 0");
+		checkArgument(nbStripes > 0 && nbStripes <= 1 << 16,
+				"The number of stripes must be in [1, 65536]");
+		int stripesCount = Integer.highestOneBit(nbStripes);
+		if (stripesCount != nbStripes)
+			stripesCount <<= 1;
+		stripeMask = stripesCount - 1;
+		stripeLength = (2 + nbPlayers + stripeAlign - 1) / stripeAlign
+				* stripeAlign;
+		stripes = new AtomicLongArray(stripesCount * stripeLength);
+		this.snapshotInterval = snapshotInterval;
+		if (snapshotInterval > 0)
+			snapshot = new double[nbPlayers];
+	}
+
+	/**
+	 * Gets the number of stripes.
+	 *
+	 * @return the number of stripes
+	 */
+	public int getNbStripes() {
+		return stripeMask + 1;
+	}
+
+	/**
+	 * Gets the snapshot interval.
+	 *
+	 * @return the iterations a stripe accumulates between two snapshots, zero
+	 *         when there are no snapshots
+	 */
+	public int getSnapshotInterval() {
+		return snapshotInterval;
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see
 	 * net.funkyjava.cscfrm.engine.CSCFRMUtilityManager#addIterUtil(double[])
 	 */
 	@Override
-	public synchronized void addIterUtil(double[] iterUtil) {
-		super.addIterUtil(iterUtil);
+	public void addIterUtil(double[] iterUtil) {
+		addIterUtils(iterUtil, 1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager#addIterUtils
+	 * (double[], long)
+	 */
+	@Override
+	public void addIterUtils(double[] iterUtilSum, long nbIter) {
+		final AtomicLongArray stripes = this.stripes;
+		final int stripeMask = this.stripeMask;
+		final int[] threadProbe = probe.get();
+		int h = threadProbe[0];
+		int base = (h & stripeMask) * stripeLength;
+		long seq;
+		if (((seq = stripes.get(base)) & 1) != 0
+				|| !stripes.compareAndSet(base, seq, seq + 1)) {
+			// Contended stripe : move to another one, as Striped64 does
+			do {
+				h ^= h << 13;
+				h ^= h >>> 17;
+				h ^= h << 5;
+				base = (h & stripeMask) * stripeLength;
+				if (stripeMask == 0)
+					Thread.yield();
+			} while (((seq = stripes.get(base)) & 1) != 0
+					|| !stripes.compareAndSet(base, seq, seq + 1));
+			threadProbe[0] = h;
+		}
+		final long stripeIter = stripes.get(base + 1);
+		stripes.set(base + 1, stripeIter + nbIter);
+		int index;
+		for (int p = 0; p < nbPlayers; p++) {
+			index = base + 2 + p;
+			stripes.set(index, Double.doubleToRawLongBits(Double
+					.longBitsToDouble(stripes.get(index)) + iterUtilSum[p]));
+		}
+		stripes.set(base, seq + 2);
+		if (snapshotInterval > 0
+				&& (stripeIter + nbIter) / snapshotInterval != stripeIter
+						/ snapshotInterval)
+			publishSnapshot();
+	}
+
+	/**
+	 * Publishes a snapshot of the average utility. Concurrent publications
+	 * may leave an older one, that will be replaced by the next one.
+	 */
+	private void publishSnapshot() {
+		final double[] util = new double[nbPlayers];
+		read(util);
+		snapshot = util;
 	}
 
 	/**
-	 * Read the current utility in a synchronized way.
-	 * 
+	 * Read the last published average utility without reading the stripes.
+	 * It misses at most the iterations of a snapshot interval per stripe.
+	 * Falls back to {@link #read(double[])} when there are no snapshots.
+	 *
 	 * @param dest
 	 *            the destination array
 	 */
-	public synchronized void read(double[] dest) {
-		for (i = 0; i < nbPlayers; i++)
-			dest[i] = util[i];
+	public void readSnapshot(double[] dest) {
+		final double[] util = snapshot;
+		if (util == null) {
+			read(dest);
+			return;
+		}
+		System.arraycopy(util, 0, dest, 0, nbPlayers);
+	}
+
+	/**
+	 * Sums the stripes in a consistent way. Starts over when a stripe was
+	 * updated while being read, which keeps readers allocation free.
+	 *
+	 * @param sum
+	 *            the destination of the players utility sum
+	 * @return the number of iterations
+	 */
+	private long sum(final double[] sum) {
+		final AtomicLongArray stripes = this.stripes;
+		final int nbPlayers = this.nbPlayers;
+		long total;
+		long seq;
+		int p;
+		retry: for (;;) {
+			total = 0;
+			for (p = 0; p < nbPlayers; p++)
+				sum[p] = 0;
+			for (int base = 0; base < stripes.length(); base += stripeLength) {
+				while (((seq = stripes.get(base)) & 1) != 0)
+					Thread.yield();
+				total += stripes.get(base + 1);
+				for (p = 0; p < nbPlayers; p++)
+					sum[p] += Double.longBitsToDouble(stripes.get(base + 2 + p));
+				if (stripes.get(base) != seq)
+					continue retry;
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * Read the current utility in a consistent way, without blocking writers.
+	 *
+	 * @param dest
+	 *            the destination array
+	 */
+	public void read(double[] dest) {
+		final long total = sum(dest);
+		if (total == 0)
+			return;
+		for (int p = 0; p < nbPlayers; p++)
+			dest[p] /= total;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager#
+	 * setState(net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState)
+	 */
+	@Override
+	public void setState(CSCFRMState state) {
+		checkNotNull(state, "Cannot set a null state");
+		checkArgument(state.getGameUtilSum().length == nbPlayers,
+				"State's game util sum hasn't the right length, expected number of players");
+		// Not concurrent with training : everything goes in the first stripe
+		for (int i = 0; i < stripes.length(); i++)
+			if (i % stripeLength != 0)
+				stripes.set(i, 0);
+		stripes.set(1, state.getNbIter());
+		for (int p = 0; p < nbPlayers; p++)
+			stripes.set(2 + p,
+					Double.doubleToRawLongBits(state.getGameUtilSum()[p]));
+		if (snapshotInterval > 0)
+			publishSnapshot();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager#getState
+	 * ()
+	 */
+	@Override
+	public CSCFRMState getState() {
+		final double[] utilSum = new double[nbPlayers];
+		return new CSCFRMState(sum(utilSum), utilSum);
+	}
+
+	/**
+	 * Gets a consistent copy of the utility sum.
+	 *
+	 * @return the utility sum
+	 */
+	@Override
+	public double[] getUtilSum() {
+		final double[] utilSum = new double[nbPlayers];
+		sum(utilSum);
+		return utilSum;
+	}
+
+	/**
+	 * Gets a consistent copy of the average utility.
+	 *
+	 * @return the utility
+	 */
+	@Override
+	public double[] getUtil() {
+		final double[] util = new double[nbPlayers];
+		read(util);
+		return util;
+	}
+
+	/**
+	 * Gets the number of iterations. Each stripe's count is read atomically,
+	 * iterations published meanwhile may or may not be counted.
+	 *
+	 * @return the number of iterations
+	 */
+	@Override
+	public long getIter() {
+		final AtomicLongArray stripes = this.stripes;
+		long total = 0;
+		for (int base = 1; base < stripes.length(); base += stripeLength)
+			total += stripes.get(base);
+		return total;
 	}
 }
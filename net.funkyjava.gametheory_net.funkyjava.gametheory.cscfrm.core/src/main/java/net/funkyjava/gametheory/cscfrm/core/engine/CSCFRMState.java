@@ -16,6 +16,9 @@ public class CSCFRMState {
 	/** The game util. */
 	private final double[] gameUtilSum, gameUtil;
 
+	/** The weighting schedule, null when iterations are uniformly weighted. */
+	private final CSCFRMDiscounting discounting;
+
 	/**
 	 * The Constructor.
 	 * 
@@ -25,12 +28,29 @@ public class CSCFRMState {
 	 *            the game util sum
 	 */
 	public CSCFRMState(long nbIter, double[] gameUtilSum) {
+		this(nbIter, gameUtilSum, null);
+	}
+
+	/**
+	 * The Constructor.
+	 * 
+	 * @param nbIter
+	 *            the nb iter
+	 * @param gameUtilSum
+	 *            the game util sum
+	 * @param discounting
+	 *            the weighting schedule, null when iterations are uniformly
+	 *            weighted
+	 */
+	public CSCFRMState(long nbIter, double[] gameUtilSum,
+			CSCFRMDiscounting discounting) {
 		checkNotNull(gameUtilSum, "The game util sum cannot be null");
 		checkArgument(nbIter >= 0, "The number of iterations is negative");
 		checkArgument(gameUtilSum.length > 1, "Game util sum length is 0");
 		this.nbIter = nbIter;
 		this.gameUtilSum = gameUtilSum;
 		this.gameUtil = new double[gameUtilSum.length];
+		this.discounting = discounting;
 		if (nbIter > 0)
 			for (int i = 0; i < gameUtilSum.length; i++)
 				gameUtil[i] = gameUtilSum[i] / nbIter;
@@ -62,4 +82,14 @@ public class CSCFRMState {
 	public double[] getGameUtil() {
 		return gameUtil;
 	}
+
+	/**
+	 * Gets the weighting schedule.
+	 * 
+	 * @return the weighting schedule, null when iterations are uniformly
+	 *         weighted
+	 */
+	public CSCFRMDiscounting getDiscounting() {
+		return discounting;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * Chance-Sampling Counter Factual Regret Minimization engine walking a
+ * {@link CSCFRMGameTape} instead of the game. The game is compiled once when
+ * the engine is created; each iteration then samples a deal and walks the
+ * tape's arrays, without any call to the game. Its iterations are the ones of
+ * {@link CSCFRMEngine}, pruning apart : all actions are walked on every
+ * iteration, see {@link CSCFRMGameTape}. CFR+ and the discounting schedules
+ * are supported.
+ *
+ * @author Pierre Mardon
+ */
+public final class CSCFRMTapeEngine extends CSCFRMBaseEngine {
+
+	/** The tape. */
+	private final CSCFRMGameTape tape;
+
+	/** The realization weights, indexed by depth. */
+	private final double[][] realizationWeight;
+
+	/** The utility for each position, indexed by depth. */
+	private final double[][] util;
+
+	/** The player positions utility for each action, indexed by depth. */
+	private final double[][][] pNodesUtil;
+
+	/** The player nodes iteration strategies indexed by depth. */
+	private final double[][] strategies;
+
+	/** The player nodes regret deltas. */
+	private final double[] regretDeltas;
+
+	/** The current deal's offset in the tape's nodes. */
+	private int dealOffset;
+
+	/** The current iteration number. */
+	private long iteration;
+
+	/** The strategy weight of the current iteration. */
+	private double stratWeight;
+
+	/**
+	 * The Constructor. Compiles the game's tape.
+	 *
+	 * @param game
+	 *            the game
+	 */
+	public CSCFRMTapeEngine(CSCFRMChanceIndexedGame game) {
+		super(game);
+		tape = CSCFRMGameTape.compile(game);
+		final int depth = tape.maxDepth;
+		final int maxNbActions = game.getMaxNbPlActions();
+		realizationWeight = new double[depth][nbPlayers];
+		util = new double[depth][nbPlayers];
+		pNodesUtil = new double[depth][maxNbActions][nbPlayers];
+		strategies = new double[depth][maxNbActions];
+		regretDeltas = new double[maxNbActions];
+	}
+
+	/**
+	 * Creates a tape engine for a game that must be a
+	 * {@link CSCFRMChanceIndexedGame}.
+	 *
+	 * @param game
+	 *            the game
+	 * @return the engine
+	 */
+	static CSCFRMTapeEngine forGame(CSCFRMBaseGame game) {
+		checkArgument(game instanceof CSCFRMChanceIndexedGame,
+				"The game tape engine requires a chance-indexed game");
+		return new CSCFRMTapeEngine((CSCFRMChanceIndexedGame) game);
+	}
+
+	/**
+	 * Gets the tape.
+	 *
+	 * @return the tape
+	 */
+	public CSCFRMGameTape getTape() {
+		return tape;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#train()
+	 */
+	@Override
+	public void train() throws Exception {
+		iteration = nextIteration();
+		// CFR+ weights each iteration's strategy by the iteration number
+		stratWeight = cfrPlus ? iteration : 1;
+		if (discounting != null)
+			prepareDiscounting(iteration);
+		dealOffset = sampleDeal() * tape.nbPositions;
+		final double[] rootReal = realizationWeight[0];
+		for (int p = 0; p < nbPlayers; p++)
+			rootReal[p] = 1;
+		walk(0, 0);
+		addIterUtil(util[0]);
+		endIteration();
+	}
+
+	/**
+	 * Samples a deal according to the deals probabilities.
+	 *
+	 * @return the deal's index
+	 */
+	private int sampleDeal() {
+		final double[] cumulative = tape.cumulativeProbabilities;
+		final double r = rand.nextDouble() * cumulative[cumulative.length - 1];
+		int low = 0;
+		int high = cumulative.length - 1;
+		int mid;
+		while (low < high) {
+			mid = (low + high) >>> 1;
+			if (cumulative[mid] > r)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Walks the subtree of a position and writes its utility in {@link #util}
+	 * at its depth.
+	 *
+	 * @param position
+	 *            the position
+	 * @param depth
+	 *            the position's depth
+	 * @throws Exception
+	 *             interrupted while locking a node or reading a terminal
+	 *             utility
+	 */
+	private void walk(final int position, final int depth) throws Exception {
+		final CSCFRMGameTape tape = this.tape;
+		final Node node = tape.nodes[dealOffset + position];
+		final double[] nodeUtil = util[depth];
+		final int nbPlayers = this.nbPlayers;
+		if (tape.types[position] == 2) {
+			// Terminal
+			if (!readTerminalUtil || node.id < 0)
+				System.arraycopy(node.payoffs, 0, nodeUtil, 0, nbPlayers);
+			else
+				termUtils.read(node.id, nodeUtil);
+			return;
+		}
+		// Player
+		final int player = tape.players[position];
+		final int nbActions = tape.nbActions[position];
+		final int first = tape.firstChild[position];
+		final int nextDepth = depth + 1;
+		final double[] strat = strategies[depth];
+		final double[] real = realizationWeight[depth];
+		final double[] nextReal = realizationWeight[nextDepth];
+		final double[] nextUtil = util[nextDepth];
+		final double[][] actionsUtil = pNodesUtil[depth];
+		int a;
+		int p;
+		if (lockPlayersNodes)
+			lockNode(node);
+		if (discounting != null)
+			discount(node, iteration);
+		readStrategy(node, strat, nbActions);
+		addStrategy(node, strat, nbActions, stratWeight * real[player]);
+		for (p = 0; p < nbPlayers; p++)
+			nodeUtil[p] = 0;
+		for (a = 0; a < nbActions; a++) {
+			System.arraycopy(real, 0, nextReal, 0, nbPlayers);
+			nextReal[player] *= strat[a];
+			walk(tape.children[first + a], nextDepth);
+			for (p = 0; p < nbPlayers; p++)
+				nodeUtil[p] += strat[a] * (actionsUtil[a][p] = nextUtil[p]);
+		}
+		double weight = 1;
+		for (p = 0; p < nbPlayers; p++)
+			if (p != player)
+				weight *= real[p];
+		final double[] regretDeltas = this.regretDeltas;
+		for (a = 0; a < nbActions; a++)
+			regretDeltas[a] = weight
+					* (actionsUtil[a][player] - nodeUtil[player]);
+		addRegrets(node, regretDeltas, nbActions);
+		if (updateVisits)
+			addVisit(node, weight);
+		if (lockPlayersNodes)
+			node.unlock();
+	}
+}
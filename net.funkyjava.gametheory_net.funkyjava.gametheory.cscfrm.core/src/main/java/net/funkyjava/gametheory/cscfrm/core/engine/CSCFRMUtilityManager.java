@@ -76,6 +76,20 @@ public class CSCFRMUtilityManager {
 			util[i] = (utilSum[i] += iterUtil[i]) / iter;
 	}
 
+	/**
+	 * Adds the utility of several iterations at once.
+	 * 
+	 * @param iterUtilSum
+	 *            the sum of the iterations utility
+	 * @param nbIter
+	 *            the number of iterations
+	 */
+	public void addIterUtils(double[] iterUtilSum, long nbIter) {
+		iter += nbIter;
+		for (i = 0; i < nbPlayers; i++)
+			util[i] = (utilSum[i] += iterUtilSum[i]) / iter;
+	}
+
 	/**
 	 * Gets the utility sum.
 	 * 
@@ -0,0 +1,203 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * External-Sampling Monte Carlo Counter Factual Regret Minimization algorithm
+ * implementation. Each iteration runs one traversal per player : all the
+ * actions of the traversing player are walked while chance and opponents
+ * actions are sampled, so that an iteration doesn't walk the whole tree.
+ * Opponents sampled strategies are added to their strategy sum.
+ * <p>
+ * Player nodes are only locked while their data are read or updated, never
+ * while walking their subtree. As reach probabilities aren't computed, the
+ * realization weight sum of a node is increased by one on each traversing
+ * visit, which is its expectation.
+ * </p>
+ * <p>
+ * With {@link CSCFRMConfig#setVarianceReduction(boolean)}, the traverser's
+ * sampled utility at opponents nodes is corrected by their baselines.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class ESCFRMEngine extends CSCFRMBaseEngine {
+
+	/** The utility for each node, indexed by depth. */
+	private final double[][] util;
+
+	/** The player nodes utility for each action, indexed by depth. */
+	private final double[][][] pNodesUtil;
+
+	/** The player nodes iteration strategies indexed by depth. */
+	private final double[][] strategies;
+
+	/** The player nodes regret deltas. */
+	private final double[] regretDeltas;
+
+	/** The opponents nodes actions values when using baselines. */
+	private final double[] actionsValue;
+
+	/** The iteration utility. */
+	private final double[] iterUtil;
+
+	/** The current iteration number. */
+	private long iteration;
+
+	/** The strategy weight of the current iteration. */
+	private double stratWeight;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param game
+	 *            the game
+	 */
+	public ESCFRMEngine(CSCFRMBaseGame game) {
+		super(game);
+		final int depth = game.getMaxDepth();
+		util = new double[depth][nbPlayers];
+		pNodesUtil = new double[depth][game.getMaxNbPlActions()][nbPlayers];
+		strategies = new double[depth][game.getMaxNbPlActions()];
+		regretDeltas = new double[game.getMaxNbPlActions()];
+		actionsValue = new double[game.getMaxNbPlActions()];
+		iterUtil = new double[nbPlayers];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#
+	 * supportsVarianceReduction()
+	 */
+	@Override
+	protected boolean supportsVarianceReduction() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#train()
+	 */
+	@Override
+	public void train() throws Exception {
+		iteration = nextIteration();
+		// CFR+ weights each iteration's strategy by the iteration number
+		stratWeight = cfrPlus ? iteration : 1;
+		if (discounting != null)
+			prepareDiscounting(iteration);
+		for (int traverser = 0; traverser < nbPlayers; traverser++) {
+			game.onIterationStart();
+			walk(0, traverser);
+			iterUtil[traverser] = util[0][traverser];
+		}
+		addIterUtil(iterUtil);
+		endIteration();
+	}
+
+	/**
+	 * Walks the subtree of the game's current node and writes its sampled
+	 * utility in {@link #util} at the node's depth.
+	 *
+	 * @param depth
+	 *            the node's depth
+	 * @param traverser
+	 *            the traversing player
+	 * @throws Exception
+	 *             any exception that can be caused by a malformed game
+	 */
+	private void walk(final int depth, final int traverser) throws Exception {
+		final Node node = game.getCurrentNode();
+		final double[] nodeUtil = util[depth];
+		final int nextDepth = depth + 1;
+		int a;
+		int p;
+		switch (node.bType) {
+		case 2:
+			// Terminal
+			if (!readTerminalUtil || node.id < 0)
+				System.arraycopy(node.payoffs, 0, nodeUtil, 0, nbPlayers);
+			else
+				termUtils.read(node.id, nodeUtil);
+			return;
+		case 0:
+			// Chance
+			game.choseChanceAction();
+			walk(nextDepth, traverser);
+			game.back();
+			System.arraycopy(util[nextDepth], 0, nodeUtil, 0, nbPlayers);
+			return;
+		}
+		// Player
+		final int nbActions = node.nbActions;
+		final double[] strat = strategies[depth];
+		if (lockPlayersNodes)
+			lockNode(node);
+		if (discounting != null)
+			discount(node, iteration);
+		readStrategy(node, strat, nbActions);
+		if (node.player != traverser) {
+			addStrategy(node, strat, nbActions, stratWeight);
+			if (lockPlayersNodes)
+				node.unlock();
+			game.onPlayerActionChosen(a = sample(strat, nbActions));
+			walk(nextDepth, traverser);
+			game.back();
+			System.arraycopy(util[nextDepth], 0, nodeUtil, 0, nbPlayers);
+			if (!varianceReduction)
+				return;
+			// Only the traverser's utility is used
+			if (lockPlayersNodes)
+				lockNode(node);
+			nodeUtil[traverser] = baselineValues(node, traverser, strat,
+					nbActions, a, nodeUtil[traverser], strat[a], actionsValue);
+			if (lockPlayersNodes)
+				node.unlock();
+			return;
+		}
+		if (lockPlayersNodes)
+			node.unlock();
+		final double[][] actionsUtil = pNodesUtil[depth];
+		final double[] nextUtil = util[nextDepth];
+		for (p = 0; p < nbPlayers; p++)
+			nodeUtil[p] = 0;
+		for (a = 0; a < nbActions; a++) {
+			game.onPlayerActionChosen(a);
+			walk(nextDepth, traverser);
+			game.back();
+			for (p = 0; p < nbPlayers; p++)
+				nodeUtil[p] += strat[a] * (actionsUtil[a][p] = nextUtil[p]);
+		}
+		final double[] regretDeltas = this.regretDeltas;
+		for (a = 0; a < nbActions; a++)
+			regretDeltas[a] = actionsUtil[a][traverser] - nodeUtil[traverser];
+		if (lockPlayersNodes)
+			lockNode(node);
+		addRegrets(node, regretDeltas, nbActions);
+		if (updateVisits)
+			addVisit(node, 1);
+		if (lockPlayersNodes)
+			node.unlock();
+	}
+
+	/**
+	 * Samples an action from a strategy.
+	 *
+	 * @param strat
+	 *            the strategy
+	 * @param nbActions
+	 *            the number of actions
+	 * @return the sampled action
+	 */
+	private int sample(final double[] strat, final int nbActions) {
+		double r = rand.nextDouble();
+		final int last = nbActions - 1;
+		for (int a = 0; a < last; a++)
+			if ((r -= strat[a]) < 0)
+				return a;
+		return last;
+	}
+}
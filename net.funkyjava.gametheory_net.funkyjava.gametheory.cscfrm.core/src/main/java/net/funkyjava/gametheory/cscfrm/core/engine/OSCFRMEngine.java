@@ -0,0 +1,329 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMBaseGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+
+/**
+ * Outcome-Sampling Monte Carlo Counter Factual Regret Minimization algorithm
+ * implementation. Each iteration samples one trajectory per player, so that
+ * its cost is proportional to the game's depth. The traversing player samples
+ * its actions with an epsilon-exploration of its current strategy, see
+ * {@link CSCFRMConfig#setExplorationEpsilon(double)}, and regrets are updated
+ * with importance weights. Opponents strategy sums are updated with
+ * stochastically-weighted averaging, weighted by the acting player's own
+ * reach probability over the sampling probability.
+ * <p>
+ * Chance actions are sampled by the game according to their probabilities,
+ * so they cancel out of the importance weights. Player nodes are only locked
+ * while their data are read or updated. The realization weight sum of a node
+ * is increased by its importance-weighted realization weight on each
+ * traversing visit.
+ * </p>
+ * <p>
+ * With {@link CSCFRMConfig#setVarianceReduction(boolean)}, sampled values are
+ * corrected by the player nodes baselines (VR-MCCFR) : each walked player
+ * node estimates all its actions values, so that regrets of unsampled actions
+ * aren't just importance-weighted zeros.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class OSCFRMEngine extends CSCFRMBaseEngine {
+
+	/** The player nodes iteration strategies indexed by depth. */
+	private final double[][] strategies;
+
+	/** The player nodes regret deltas. */
+	private final double[] regretDeltas;
+
+	/** The player nodes actions values when using baselines. */
+	private final double[] actionsValue;
+
+	/** The terminal utility, read at the end of each trajectory. */
+	private final double[] terminalUtil;
+
+	/** The iteration utility. */
+	private final double[] iterUtil;
+
+	/**
+	 * Each opponent's own reach probability of the walked node, the
+	 * traverser's being unused.
+	 */
+	private final double[] playersReach;
+
+	/** The exploration epsilon. */
+	private double epsilon = CSCFRMConfig.defaultExplorationEpsilon;
+
+	/** The current iteration number. */
+	private long iteration;
+
+	/** The strategy weight of the current iteration. */
+	private double stratWeight;
+
+	/**
+	 * The traversing player's reach probability from the last walked node to
+	 * the terminal node.
+	 */
+	private double tailReach;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param game
+	 *            the game
+	 */
+	public OSCFRMEngine(CSCFRMBaseGame game) {
+		super(game);
+		strategies = new double[game.getMaxDepth()][game.getMaxNbPlActions()];
+		regretDeltas = new double[game.getMaxNbPlActions()];
+		actionsValue = new double[game.getMaxNbPlActions()];
+		terminalUtil = new double[nbPlayers];
+		iterUtil = new double[nbPlayers];
+		playersReach = new double[nbPlayers];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#
+	 * supportsVarianceReduction()
+	 */
+	@Override
+	protected boolean supportsVarianceReduction() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#setConfig
+	 * (net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig)
+	 */
+	@Override
+	public void setConfig(CSCFRMConfig config) {
+		super.setConfig(config);
+		epsilon = config.getExplorationEpsilon();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#train()
+	 */
+	@Override
+	public void train() throws Exception {
+		iteration = nextIteration();
+		// CFR+ weights each iteration's strategy by the iteration number
+		stratWeight = cfrPlus ? iteration : 1;
+		if (discounting != null)
+			prepareDiscounting(iteration);
+		for (int traverser = 0; traverser < nbPlayers; traverser++) {
+			game.onIterationStart();
+			for (int p = 0; p < nbPlayers; p++)
+				playersReach[p] = 1;
+			if (varianceReduction)
+				iterUtil[traverser] = walkBaselined(0, traverser, 1, 1);
+			else
+				walk(0, traverser, 1, 1, 1);
+		}
+		addIterUtil(iterUtil);
+		endIteration();
+	}
+
+	/**
+	 * Samples a trajectory from the game's current node and updates the player
+	 * nodes on the way back.
+	 *
+	 * @param depth
+	 *            the node's depth
+	 * @param traverser
+	 *            the traversing player
+	 * @param reach
+	 *            the traversing player's reach probability of the node
+	 * @param oppReach
+	 *            the opponents reach probability of the node
+	 * @param sampleProb
+	 *            the probability to sample the node
+	 * @return the traversing player's terminal utility divided by the
+	 *         trajectory's sampling probability
+	 * @throws Exception
+	 *             any exception that can be caused by a malformed game
+	 */
+	private double walk(final int depth, final int traverser,
+			final double reach, final double oppReach, final double sampleProb)
+			throws Exception {
+		final Node node = game.getCurrentNode();
+		int a;
+		double u;
+		switch (node.bType) {
+		case 2:
+			// Terminal
+			final double[] util;
+			if (!readTerminalUtil || node.id < 0)
+				util = node.payoffs;
+			else
+				termUtils.read(node.id, util = terminalUtil);
+			// Unbiased estimation of the traverser's utility
+			iterUtil[traverser] = util[traverser] * reach * oppReach
+					/ sampleProb;
+			tailReach = 1;
+			return util[traverser] / sampleProb;
+		case 0:
+			// Chance
+			game.choseChanceAction();
+			u = walk(depth + 1, traverser, reach, oppReach, sampleProb);
+			game.back();
+			return u;
+		}
+		// Player
+		final int nbActions = node.nbActions;
+		final double[] strat = strategies[depth];
+		if (lockPlayersNodes)
+			lockNode(node);
+		if (discounting != null)
+			discount(node, iteration);
+		readStrategy(node, strat, nbActions);
+		final int player = node.player;
+		if (player != traverser) {
+			final double ownReach = playersReach[player];
+			addStrategy(node, strat, nbActions, stratWeight * ownReach
+					/ sampleProb);
+			if (lockPlayersNodes)
+				node.unlock();
+			game.onPlayerActionChosen(a = sample(strat, nbActions, 0));
+			playersReach[player] = ownReach * strat[a];
+			u = walk(depth + 1, traverser, reach, oppReach * strat[a],
+					sampleProb * strat[a]);
+			playersReach[player] = ownReach;
+			game.back();
+			tailReach *= strat[a];
+			return u;
+		}
+		if (lockPlayersNodes)
+			node.unlock();
+		final double explore = epsilon / nbActions;
+		game.onPlayerActionChosen(a = sample(strat, nbActions, explore));
+		u = walk(depth + 1, traverser, reach * strat[a], oppReach, sampleProb
+				* (explore + (1 - epsilon) * strat[a]));
+		game.back();
+		final double w = u * oppReach;
+		final double tail = tailReach * strat[a];
+		final double[] regretDeltas = this.regretDeltas;
+		for (int b = 0; b < nbActions; b++)
+			regretDeltas[b] = -w * tail;
+		regretDeltas[a] += w * tailReach;
+		if (lockPlayersNodes)
+			lockNode(node);
+		addRegrets(node, regretDeltas, nbActions);
+		if (updateVisits)
+			addVisit(node, oppReach / sampleProb);
+		if (lockPlayersNodes)
+			node.unlock();
+		tailReach = tail;
+		return u;
+	}
+
+	/**
+	 * Samples a trajectory from the game's current node and updates the player
+	 * nodes on the way back, correcting the sampled values with the nodes
+	 * baselines.
+	 *
+	 * @param depth
+	 *            the node's depth
+	 * @param traverser
+	 *            the traversing player
+	 * @param oppReach
+	 *            the opponents reach probability of the node
+	 * @param sampleProb
+	 *            the probability to sample the node
+	 * @return the traversing player's estimated utility of the node
+	 * @throws Exception
+	 *             any exception that can be caused by a malformed game
+	 */
+	private double walkBaselined(final int depth, final int traverser,
+			final double oppReach, final double sampleProb) throws Exception {
+		final Node node = game.getCurrentNode();
+		int a;
+		double u;
+		switch (node.bType) {
+		case 2:
+			// Terminal
+			if (!readTerminalUtil || node.id < 0)
+				return node.payoffs[traverser];
+			termUtils.read(node.id, terminalUtil);
+			return terminalUtil[traverser];
+		case 0:
+			// Chance
+			game.choseChanceAction();
+			u = walkBaselined(depth + 1, traverser, oppReach, sampleProb);
+			game.back();
+			return u;
+		}
+		// Player
+		final int nbActions = node.nbActions;
+		final double[] strat = strategies[depth];
+		final int player = node.player;
+		final boolean traversing = player == traverser;
+		final double ownReach = playersReach[player];
+		if (lockPlayersNodes)
+			lockNode(node);
+		if (discounting != null)
+			discount(node, iteration);
+		readStrategy(node, strat, nbActions);
+		if (!traversing)
+			addStrategy(node, strat, nbActions, stratWeight * ownReach
+					/ sampleProb);
+		if (lockPlayersNodes)
+			node.unlock();
+		final double explore = traversing ? epsilon / nbActions : 0;
+		game.onPlayerActionChosen(a = sample(strat, nbActions, explore));
+		final double q = explore + (1 - explore * nbActions) * strat[a];
+		if (!traversing)
+			playersReach[player] = ownReach * strat[a];
+		u = walkBaselined(depth + 1, traverser, traversing ? oppReach
+				: oppReach * strat[a], sampleProb * q);
+		playersReach[player] = ownReach;
+		game.back();
+		final double[] actionsValue = this.actionsValue;
+		if (lockPlayersNodes)
+			lockNode(node);
+		u = baselineValues(node, traverser, strat, nbActions, a, u, q,
+				actionsValue);
+		if (traversing) {
+			final double w = oppReach / sampleProb;
+			final double[] regretDeltas = this.regretDeltas;
+			for (int b = 0; b < nbActions; b++)
+				regretDeltas[b] = w * (actionsValue[b] - u);
+			addRegrets(node, regretDeltas, nbActions);
+			if (updateVisits)
+				addVisit(node, w);
+		}
+		if (lockPlayersNodes)
+			node.unlock();
+		return u;
+	}
+
+	/**
+	 * Samples an action from a strategy mixed with the uniform distribution.
+	 *
+	 * @param strat
+	 *            the strategy
+	 * @param nbActions
+	 *            the number of actions
+	 * @param explore
+	 *            the probability added to each action, the strategy being
+	 *            multiplied by 1 - nbActions * explore
+	 * @return the sampled action
+	 */
+	private int sample(final double[] strat, final int nbActions,
+			final double explore) {
+		final double exploit = 1 - explore * nbActions;
+		double r = rand.nextDouble();
+		final int last = nbActions - 1;
+		for (int a = 0; a < last; a++)
+			if ((r -= explore + exploit * strat[a]) < 0)
+				return a;
+		return last;
+	}
+}
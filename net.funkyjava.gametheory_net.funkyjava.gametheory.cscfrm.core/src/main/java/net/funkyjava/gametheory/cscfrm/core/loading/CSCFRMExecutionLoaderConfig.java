@@ -15,6 +15,12 @@ public class CSCFRMExecutionLoaderConfig {
 	 */
 	private boolean loadVisitsAndRealWeight;
 
+	/**
+	 * Indicates if the loader should save regrets and strategy sums in single
+	 * precision
+	 */
+	private boolean floatPrecision;
+
 	/**
 	 * @param loadVisitsAndRealWeight
 	 *            indicates if the loader should save and load visits and
@@ -22,7 +28,22 @@ public class CSCFRMExecutionLoaderConfig {
 	 * 
 	 */
 	public CSCFRMExecutionLoaderConfig(boolean loadVisitsAndRealWeight) {
+		this(loadVisitsAndRealWeight, false);
+	}
+
+	/**
+	 * @param loadVisitsAndRealWeight
+	 *            indicates if the loader should save and load visits and
+	 *            realization weight
+	 * @param floatPrecision
+	 *            indicates if the loader should save regrets and strategy sums
+	 *            in single precision
+	 * 
+	 */
+	public CSCFRMExecutionLoaderConfig(boolean loadVisitsAndRealWeight,
+			boolean floatPrecision) {
 		this.loadVisitsAndRealWeight = loadVisitsAndRealWeight;
+		this.floatPrecision = floatPrecision;
 	}
 
 	/**
@@ -34,8 +55,18 @@ public class CSCFRMExecutionLoaderConfig {
 		return loadVisitsAndRealWeight;
 	}
 
+	/**
+	 * 
+	 * @return true when the loader should save regrets and strategy sums in
+	 *         single precision
+	 */
+	public boolean isFloatPrecision() {
+		return floatPrecision;
+	}
+
 	@Override
 	public String toString() {
-		return "visits" + (loadVisitsAndRealWeight ? "1" : "0");
+		return "visits" + (loadVisitsAndRealWeight ? "1" : "0")
+				+ (floatPrecision ? "-float" : "");
 	}
 }
@@ -0,0 +1,78 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CSCFRMDiscounting}.
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMDiscountingTest {
+
+	/**
+	 * Linear CFR's regrets factors telescope : the product of k / (k + 1)
+	 * from 1 to t is 1 / t, the exact terms and the integral approximation
+	 * alike.
+	 */
+	@Test
+	public void testLinear() {
+		final CSCFRMDiscounting linear = CSCFRMDiscounting.linear();
+		assertEquals(0.5, linear.positiveRegretsFactor(1, 2), 1e-15);
+		assertEquals(1d / 50, linear.negativeRegretsFactor(1, 50), 1e-15);
+		assertEquals(1d / 10000, linear.positiveRegretsFactor(1, 10000),
+				1e-3 / 10000);
+		assertEquals(10d / 10000, linear.positiveRegretsFactor(10, 10000),
+				1e-3 * 10 / 10000);
+		assertEquals(0.5, linear.strategyFactor(10, 20), 1e-15);
+		assertEquals(1, linear.strategyFactor(20, 20), 0);
+	}
+
+	/**
+	 * DCFR's factors : t^1.5 / (t^1.5 + 1) for positive regrets, 1/2 for
+	 * negative regrets and (t / (t + 1))^2 for strategy sums.
+	 */
+	@Test
+	public void testDcfr() {
+		final CSCFRMDiscounting dcfr = CSCFRMDiscounting.dcfr();
+		assertEquals(0.5, dcfr.positiveRegretsFactor(1, 2), 1e-15);
+		assertEquals(8d / 9, dcfr.positiveRegretsFactor(4, 5), 1e-15);
+		final double third = Math.pow(3, 1.5) / (Math.pow(3, 1.5) + 1);
+		assertEquals(third * 8 / 9, dcfr.positiveRegretsFactor(3, 5), 1e-15);
+		assertEquals(1d / 8, dcfr.negativeRegretsFactor(1, 4), 1e-15);
+		assertEquals("Halving more than 64 times is negligible", 0,
+				dcfr.negativeRegretsFactor(1, 100), 0);
+		assertEquals(0.25, dcfr.strategyFactor(10, 20), 1e-15);
+		assertEquals(1, dcfr.positiveRegretsFactor(7, 7), 0);
+	}
+
+	/**
+	 * Applying the factors of two consecutive ranges must be the same as
+	 * applying the factor of the whole range, as engines do lazily.
+	 */
+	@Test
+	public void testComposition() {
+		final CSCFRMDiscounting dcfr = CSCFRMDiscounting.dcfr();
+		final double whole = dcfr.positiveRegretsFactor(2, 5000);
+		final double split = dcfr.positiveRegretsFactor(2, 1000)
+				* dcfr.positiveRegretsFactor(1000, 5000);
+		assertEquals(whole, split, 1e-3 * whole);
+		assertEquals(dcfr.strategyFactor(3, 5000), dcfr.strategyFactor(3, 100)
+				* dcfr.strategyFactor(100, 5000), 1e-15);
+	}
+
+	/**
+	 * Schedules are compared by value, so that a resumed execution recognizes
+	 * the schedule of its saved state
+	 */
+	@Test
+	public void testEquality() {
+		assertEquals(CSCFRMDiscounting.dcfr(), new CSCFRMDiscounting(1.5, 0,
+				2));
+		assertEquals(CSCFRMDiscounting.dcfr().hashCode(),
+				new CSCFRMDiscounting(1.5, 0, 2).hashCode());
+		assertNotEquals(CSCFRMDiscounting.dcfr(), CSCFRMDiscounting.linear());
+	}
+}
@@ -0,0 +1,136 @@
+package net.funkyjava.gametheory.cscfrm.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CSCFRMMultithreadUtilityManager}.
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMMultithreadUtilityManagerTest {
+
+	private static final int nbThreads = 4;
+
+	private static final int nbAdds = 100000;
+
+	/**
+	 * Adds utilities from several threads, sharing stripes, while a reader
+	 * checks it always sees the average of complete iterations
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentAdds() throws Exception {
+		final CSCFRMMultithreadUtilityManager mgr = new CSCFRMMultithreadUtilityManager(
+				2, 2);
+		assertEquals("Unexpected number of stripes", 2, mgr.getNbStripes());
+		final AtomicBoolean inconsistent = new AtomicBoolean();
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				final double[] util = new double[2];
+				while (!done.get()) {
+					mgr.read(util);
+					// Each iteration adds 1 and -1
+					if (util[0] != -util[1])
+						inconsistent.set(true);
+				}
+			}
+		});
+		reader.start();
+		final Thread[] threads = new Thread[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			final double value = i + 1;
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					final double[] util = { value, -value };
+					for (int j = 0; j < nbAdds; j++)
+						mgr.addIterUtil(util);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		done.set(true);
+		reader.join();
+		assertTrue("A reader saw a partial iteration", !inconsistent.get());
+		assertEquals("Lost iterations", nbThreads * nbAdds, mgr.getIter());
+		final CSCFRMState state = mgr.getState();
+		assertEquals("Lost utility", nbAdds * (1 + 2 + 3 + 4),
+				state.getGameUtilSum()[0], 0);
+		assertEquals("Wrong average utility", 2.5, mgr.getUtil()[0], 1e-9);
+		mgr.setState(state);
+		assertEquals("State not restored", nbThreads * nbAdds, mgr.getIter());
+		assertEquals("State not restored", 2.5, mgr.getUtil()[0], 1e-9);
+	}
+
+	/**
+	 * Adds batches of iterations from more threads than stripes, as engines
+	 * flushing their utility batches do, expecting no iteration nor utility
+	 * to be lost
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentBatches() throws Exception {
+		final int batchSize = 7;
+		final CSCFRMMultithreadUtilityManager mgr = new CSCFRMMultithreadUtilityManager(
+				2, 2);
+		final Thread[] threads = new Thread[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					final double[] util = { batchSize, -batchSize };
+					for (int j = 0; j < nbAdds / batchSize; j++)
+						mgr.addIterUtils(util, batchSize);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		final long nbIter = nbThreads * (nbAdds / batchSize) * batchSize;
+		assertEquals("Lost batched iterations", nbIter, mgr.getIter());
+		assertEquals("Lost batched utility", nbIter,
+				mgr.getState().getGameUtilSum()[0], 0);
+	}
+
+	/**
+	 * Snapshots are published each time a stripe crosses a multiple of the
+	 * interval, and when a state is set
+	 */
+	@Test
+	public void testSnapshots() {
+		final CSCFRMMultithreadUtilityManager mgr = new CSCFRMMultithreadUtilityManager(
+				2, 1, 10);
+		final double[] util = new double[2];
+		for (int i = 0; i < 9; i++)
+			mgr.addIterUtil(new double[] { 1, -1 });
+		mgr.readSnapshot(util);
+		assertEquals("Published before the interval", 0, util[0], 0);
+		mgr.addIterUtil(new double[] { 1, -1 });
+		mgr.readSnapshot(util);
+		assertEquals("Not published at the interval", 1, util[0], 0);
+		mgr.addIterUtils(new double[] { 30, -30 }, 15);
+		mgr.readSnapshot(util);
+		assertEquals("Not published when a batch crosses the interval",
+				40d / 25, util[0], 1e-9);
+		mgr.setState(new CSCFRMState(4, new double[] { 2, -2 }));
+		mgr.readSnapshot(util);
+		assertEquals("Not published when setting the state", 0.5, util[0], 0);
+		mgr.read(util);
+		assertEquals("Snapshot and stripes differ", 0.5, util[0], 0);
+	}
+}
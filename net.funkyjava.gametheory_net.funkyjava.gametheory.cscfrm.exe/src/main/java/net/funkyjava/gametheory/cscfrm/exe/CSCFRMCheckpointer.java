@@ -0,0 +1,416 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoader;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.FlatStoreNodesProvider;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
+
+/**
+ * Saves an executor's games while it trains. Each game has a copy built once
+ * : a checkpoint copies the player nodes into it, then writes the copy with
+ * the game's loader. Training threads never wait for the file to be written.
+ * <p>
+ * When the game's player nodes are backed by a {@link FlatNodesStore} and the
+ * copy was built in its own store with the same segments offsets, see
+ * {@link FlatStoreNodesProvider#withStore(FlatNodesStore)}, the regrets and
+ * strategy sums are copied with a single array copy of the store, without
+ * locking nodes. Otherwise, or when the engines discount iterations, player
+ * nodes are copied one by one, locking each node.
+ * </p>
+ * <p>
+ * Checkpoints are fuzzy : nodes are copied at slightly different
+ * iterations, and a node updated during an array copy may be saved half
+ * updated. The state is read after the nodes were copied, and the copies
+ * pending discounts are applied up to its iteration. Engines buffering their
+ * deltas are refused, as their pending deltas would be missed.
+ * </p>
+ * <p>
+ * Checkpoints can be made on demand or scheduled on a background thread, see
+ * {@link #schedule(long, long, TimeUnit)}.
+ * </p>
+ *
+ * @author Pierre Mardon
+ *
+ * @param <PNode>
+ *            the player node type
+ */
+@Slf4j
+public class CSCFRMCheckpointer<PNode extends PlayerNode> implements
+		AutoCloseable {
+
+	/** The maximum interval between two checks of the schedule. */
+	private static final long maxPollNanos = TimeUnit.SECONDS.toNanos(1);
+
+	/** The trained games. */
+	private final List<? extends CSCFRMGame<PNode>> games;
+
+	/** The games copies. */
+	private final List<? extends CSCFRMGame<PNode>> copies;
+
+	/** The store of each game's player nodes, null to copy nodes one by one. */
+	private final FlatNodesStore[] stores;
+
+	/** The store of each copy's player nodes, null to copy nodes one by one. */
+	private final FlatNodesStore[] copiesStores;
+
+	/** An engine of each game. */
+	private final CSCFRMBaseEngine[] engines;
+
+	/** The loader of each game. */
+	private final List<CSCFRMExecutionLoader<PNode>> loaders;
+
+	/** The executor's metrics tracker. */
+	private final CSCFRMMetricsTracker metrics;
+
+	/** The background thread. */
+	private final ScheduledExecutorService service = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "CSCFRM checkpointer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/** The scheduled checks, null when not scheduled. */
+	private ScheduledFuture<?> schedule;
+
+	/** The number of iterations at the last checkpoint. */
+	private volatile long lastIter;
+
+	/** The time of the last checkpoint. */
+	private volatile long lastNanos;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param games
+	 *            the trained games
+	 * @param copies
+	 *            the games copies, built with nodes providers of the same
+	 *            player nodes type, not in the games stores
+	 * @param engines
+	 *            an engine of each game
+	 * @param loaders
+	 *            the loader of each game
+	 * @param metrics
+	 *            the executor's metrics tracker
+	 */
+	public CSCFRMCheckpointer(List<? extends CSCFRMGame<PNode>> games,
+			List<? extends CSCFRMGame<PNode>> copies,
+			CSCFRMBaseEngine[] engines,
+			List<CSCFRMExecutionLoader<PNode>> loaders,
+			CSCFRMMetricsTracker metrics) {
+		checkNotNull(games, "The games list is null");
+		checkNotNull(copies, "The copies list is null");
+		checkNotNull(engines, "The engines array is null");
+		checkNotNull(loaders, "The loaders list is null");
+		checkNotNull(metrics, "The metrics tracker is null");
+		checkArgument(copies.size() == games.size()
+				&& engines.length == games.size()
+				&& loaders.size() == games.size(),
+				"There must be one copy, one engine and one loader per game");
+		for (CSCFRMBaseEngine engine : engines)
+			checkArgument(!engine.isBufferingDeltas(),
+					"Checkpoints would miss the deltas buffered by the engines");
+		stores = new FlatNodesStore[games.size()];
+		copiesStores = new FlatNodesStore[games.size()];
+		for (int i = 0; i < games.size(); i++)
+			if (engines[i].getDiscounting() == null
+					&& sameSegments(games.get(i).getPlayerNodesIterator(),
+							copies.get(i).getPlayerNodesIterator())) {
+				stores[i] = games.get(i).getPlayerNodesIterator().next().store;
+				copiesStores[i] = copies.get(i).getPlayerNodesIterator()
+						.next().store;
+			}
+		this.games = games;
+		this.copies = copies;
+		this.engines = engines;
+		this.loaders = loaders;
+		this.metrics = metrics;
+		lastIter = metrics.iterations();
+		lastNanos = System.nanoTime();
+	}
+
+	/**
+	 * Gets the nodes provider with which the copies of games built with a
+	 * given provider must be built : when the provider is a
+	 * {@link FlatStoreNodesProvider} backed by a store, the same provider
+	 * backed by a new store of the same kind.
+	 *
+	 * @param provider
+	 *            the games nodes provider
+	 * @return the copies nodes provider
+	 */
+	@SuppressWarnings("unchecked")
+	static <PNode extends PlayerNode> NodesProvider<PNode> copiesProvider(
+			NodesProvider<PNode> provider) {
+		if (!(provider instanceof FlatStoreNodesProvider))
+			return provider;
+		final FlatStoreNodesProvider<PNode> flatProvider = (FlatStoreNodesProvider<PNode>) provider;
+		final FlatNodesStore store = flatProvider.getStore();
+		if (store == null)
+			return provider;
+		return flatProvider.withStore(new FlatNodesStore(store.getSize(),
+				store.floatPrecision, store.padded));
+	}
+
+	/**
+	 * Copies and saves all games on the calling thread. Training threads can
+	 * keep running.
+	 *
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public synchronized void checkpoint() throws IOException {
+		log.info("Checkpointing...");
+		final long start = System.nanoTime();
+		final long iter = metrics.iterations();
+		for (int i = 0; i < games.size(); i++)
+			if (stores[i] != null && !copiedBefore(i))
+				copyStore(stores[i], copiesStores[i]);
+		for (int i = 0; i < games.size(); i++) {
+			copy(games.get(i).getPlayerNodesIterator(), copies.get(i)
+					.getPlayerNodesIterator(), stores[i] == null);
+			final CSCFRMState state = engines[i].getState();
+			engines[i].flushDiscounting(copies.get(i)
+					.getPlayerNodesIterator(), state.getNbIter() + 1);
+			loaders.get(i).save(copies.get(i).getPlayerNodesIterator(), state);
+		}
+		lastIter = iter;
+		lastNanos = System.nanoTime();
+		metrics.checkpointed(lastNanos - start);
+		log.info("Checkpointed after {} iterations", iter);
+	}
+
+	/**
+	 * Copies and saves all games on the background thread.
+	 *
+	 * @return the checkpoint's future
+	 */
+	public Future<Void> checkpointInBackground() {
+		return service.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				checkpoint();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Schedules checkpoints on the background thread, each time a number of
+	 * iterations were executed or a period elapsed since the last checkpoint,
+	 * whichever comes first. Replaces the previous schedule.
+	 *
+	 * @param nbIter
+	 *            the number of iterations between two checkpoints, zero to
+	 *            only use the period
+	 * @param period
+	 *            the maximum time between two checkpoints, zero to only use
+	 *            the number of iterations
+	 * @param unit
+	 *            the period's unit
+	 */
+	public synchronized void schedule(final long nbIter, long period,
+			TimeUnit unit) {
+		checkNotNull(unit, "The time unit is null");
+		checkArgument(nbIter >= 0 && period >= 0,
+				"The iterations and period must be >= 0");
+		checkArgument(nbIter > 0 || period > 0,
+				"Provide a number of iterations or a period");
+		checkState(!service.isShutdown(), "The checkpointer is closed");
+		cancel();
+		final long periodNanos = unit.toNanos(period);
+		final long pollNanos = period > 0 ? Math.min(periodNanos,
+				maxPollNanos) : maxPollNanos;
+		log.info("Scheduling checkpoints every {} iterations or {} ms",
+				nbIter, TimeUnit.NANOSECONDS.toMillis(periodNanos));
+		schedule = service.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					if ((nbIter > 0 && metrics.iterations()
+							- lastIter >= nbIter)
+							|| (periodNanos > 0 && System.nanoTime()
+									- lastNanos >= periodNanos))
+						checkpoint();
+				} catch (Exception e) {
+					// Keep the schedule alive, the next checkpoint may work
+					log.error("Scheduled checkpoint failed", e);
+				}
+			}
+		}, pollNanos, pollNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Cancels the scheduled checkpoints. A running checkpoint completes.
+	 */
+	public synchronized void cancel() {
+		if (schedule == null)
+			return;
+		schedule.cancel(false);
+		schedule = null;
+	}
+
+	/**
+	 * Checks that player nodes are all backed by a store, and their copies by
+	 * another store with the same segments offsets.
+	 *
+	 * @param nodes
+	 *            the source nodes
+	 * @param copies
+	 *            the destination nodes
+	 * @return true when the copies data can be copied with the whole store
+	 */
+	private static boolean sameSegments(Iterator<? extends PlayerNode> nodes,
+			Iterator<? extends PlayerNode> copies) {
+		if (!nodes.hasNext())
+			return false;
+		PlayerNode node, copy;
+		FlatNodesStore store = null, copiesStore = null;
+		while (nodes.hasNext()) {
+			node = nodes.next();
+			copy = copies.next();
+			checkArgument(node.store == null || copy.store != node.store,
+					"The copies must not be built in the games store");
+			if (node.store == null || copy.store == null
+					|| node.offset != copy.offset)
+				return false;
+			if (store == null) {
+				store = node.store;
+				copiesStore = copy.store;
+			} else if (node.store != store || copy.store != copiesStore)
+				return false;
+		}
+		return store.floatPrecision == copiesStore.floatPrecision
+				&& store.padded == copiesStore.padded;
+	}
+
+	/**
+	 * Indicates whether a game's store was already copied by a previous game
+	 * of this checkpoint.
+	 *
+	 * @param game
+	 *            the game's index
+	 * @return true when a previous game has the same stores
+	 */
+	private boolean copiedBefore(int game) {
+		for (int i = 0; i < game; i++)
+			if (stores[i] == stores[game]
+					&& copiesStores[i] == copiesStores[game])
+				return true;
+		return false;
+	}
+
+	/**
+	 * Copies the allocated slots of a store into another one, without locking
+	 * player nodes.
+	 *
+	 * @param store
+	 *            the source store
+	 * @param copy
+	 *            the destination store
+	 */
+	private static void copyStore(FlatNodesStore store, FlatNodesStore copy) {
+		final int size = copy.getSize();
+		if (store.floatPrecision)
+			System.arraycopy(store.floatData, 0, copy.floatData, 0, size);
+		else
+			System.arraycopy(store.data, 0, copy.data, 0, size);
+	}
+
+	/**
+	 * Copies player nodes. Unless the regrets and strategy sums were copied
+	 * with the stores, each source node is locked while being copied.
+	 *
+	 * @param nodes
+	 *            the source nodes
+	 * @param copies
+	 *            the destination nodes
+	 * @param copyData
+	 *            true to copy the regrets and strategy sums
+	 * @throws IOException
+	 *             interrupted while locking a node
+	 */
+	private static void copy(Iterator<? extends PlayerNode> nodes,
+			Iterator<? extends PlayerNode> copies, boolean copyData)
+			throws IOException {
+		PlayerNode node, copy;
+		int a;
+		while (nodes.hasNext()) {
+			node = nodes.next();
+			copy = copies.next();
+			if (!copyData) {
+				copy.visits = node.visits;
+				copy.realWeightSum = node.realWeightSum;
+				continue;
+			}
+			try {
+				node.lock();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while locking a node to copy");
+			}
+			try {
+				for (a = 0; a < node.nbActions; a++) {
+					copy.setRegret(a, node.getRegret(a));
+					copy.setStrategySum(a, node.getStrategySum(a));
+				}
+				copy.visits = node.visits;
+				copy.realWeightSum = node.realWeightSum;
+				copy.discountIter = node.discountIter;
+			} finally {
+				node.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Stops the background thread without waiting for it, interrupting a
+	 * running checkpoint. For the executors emergency procedure : a failed
+	 * training thread may hold a node lock the checkpoint waits for.
+	 */
+	public void shutdownNow() {
+		// Not synchronized, a running checkpoint holds the monitor
+		service.shutdownNow();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() throws Exception {
+		cancel();
+		service.shutdown();
+		service.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+}
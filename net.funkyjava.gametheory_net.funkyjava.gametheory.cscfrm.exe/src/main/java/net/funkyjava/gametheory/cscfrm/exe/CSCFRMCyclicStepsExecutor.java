@@ -4,25 +4,32 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
-import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngineType;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMCtxExecutionLoaderProvider;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoader;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGame;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGameBuilder;
+import net.funkyjava.gametheory.cscfrm.model.random.CSCFRMRandom;
 import net.funkyjava.gametheory.cscfrm.model.game.cyclic.CSCFRMCyclicStepsGameBuilder;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.FlatStoreNodesProvider;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
 
 /**
@@ -34,13 +41,22 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
  * </p>
  * <p>
  * As the steps utility are sliding, iterations are performed one by one
- * randomly choosing the step to train.
+ * randomly choosing the step to train. Steps are chosen uniformly unless
+ * another {@link CSCFRMStepScheduler} is set, see
+ * {@link #setStepScheduler(CSCFRMStepScheduler, int)}. The statistics it
+ * relies on are exposed by {@link #getStepsStats()}.
  * </p>
  * <p>
  * All steps will be loaded / saved in a subcontext of the provided loader
  * according to {@link CSCFRMCyclicStepsGameBuilder#getUId()}.
  * </p>
  * <p>
+ * Training metrics are available from {@link #getMetrics()}. Besides fixed
+ * iterations counts, runs can be bounded by time or by a
+ * {@link CSCFRMStopCondition}. The steps can be saved while training with
+ * {@link #getCheckpointer()}.
+ * </p>
+ * <p>
  * As threads resources need to be released, don't forget to call
  * {@link #close()} once you're done with this executor.
  * </p>
@@ -66,7 +82,7 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	private final List<StepGame> games = new ArrayList<>();
 
 	/** The engines. */
-	private final CSCFRMEngine[][] engines;
+	private final CSCFRMBaseEngine[][] engines;
 
 	/** The number of threads. */
 	private final int nbThreads;
@@ -83,8 +99,14 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	/** The loader provider. */
 	private final CSCFRMCtxExecutionLoaderProvider<PNode> loader;
 
-	/** The sync object. */
-	private final Object syncObject = new Object();
+	/** The step games builders. */
+	private final List<CSCFRMGameBuilder<PNode, StepGame>> stepBuilders;
+
+	/** The nodes provider. */
+	private final NodesProvider<PNode> nodesProvider;
+
+	/** The checkpointer, null until it's requested. */
+	private volatile CSCFRMCheckpointer<PNode> checkpointer;
 
 	/** The executor service. */
 	private final ExecutorService service;
@@ -92,8 +114,24 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	/** The randoms for each thread to choose which step to train. */
 	private final Random[] rands;
 
-	/** The ended tasks count. */
-	private int endedTasks;
+	/** The engines terminal utility readers. */
+	private final MonothreadCyclicUtilReader[][] readers;
+
+	/** The step scheduler. */
+	private CSCFRMStepScheduler stepScheduler = CSCFRMStepSchedulers
+			.uniform();
+
+	/** The number of iterations between two step scheduler updates. */
+	private int schedulerUpdateIter = 10000;
+
+	/** The last steps statistics. */
+	private volatile CSCFRMStepsStats stepsStats;
+
+	/** Set to make the current run's threads stop after their iteration. */
+	private volatile boolean stopRequested;
+
+	/** The metrics tracker. */
+	private final CSCFRMMetricsTracker metrics;
 
 	/**
 	 * The Constructor.
@@ -116,6 +154,40 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 			NodesProvider<PNode> nodesProvider,
 			CSCFRMCtxExecutionLoaderProvider<PNode> loaderProvider,
 			CSCFRMExecutionLoaderConfig loaderConfig) throws IOException {
+		this(nbThreads, builder, nodesProvider, loaderProvider, loaderConfig,
+				new CSCFRMConfig());
+	}
+
+	/**
+	 * The Constructor.
+	 * 
+	 * @param nbThreads
+	 *            the nb threads
+	 * @param builder
+	 *            the builder
+	 * @param nodesProvider
+	 *            the nodes provider
+	 * @param loaderProvider
+	 *            the loader provider
+	 * @param loaderConfig
+	 *            the loader configuration
+	 * @param baseConfig
+	 *            the configuration whose engine type, exploration epsilon,
+	 *            CFR+ and discounting settings are used by all engines, and
+	 *            whose utility snapshot interval is used by the steps utility
+	 *            managers. The
+	 *            {@link CSCFRMEngineType#OUTCOME_SAMPLING} engine is advised
+	 *            for games with many steps.
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public CSCFRMCyclicStepsExecutor(int nbThreads,
+			CSCFRMCyclicStepsGameBuilder<PNode, StepGame> builder,
+			NodesProvider<PNode> nodesProvider,
+			CSCFRMCtxExecutionLoaderProvider<PNode> loaderProvider,
+			CSCFRMExecutionLoaderConfig loaderConfig, CSCFRMConfig baseConfig)
+			throws IOException {
+		checkNotNull(baseConfig, "The base configuration cannot be null");
 		checkArgument(nbThreads > 0, "The number of threads must be > 0");
 		checkNotNull(builder, "The builder cannot be null");
 		checkNotNull(nodesProvider, "The nodes provider cannot be null");
@@ -123,17 +195,20 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 		checkNotNull(loaderConfig, "The loader's configuration cannot be null");
 		log.info("Creating {} for steps game {}", getClass().getName(),
 				builder.getUId());
-		List<CSCFRMGameBuilder<PNode, StepGame>> stepBuilders = builder
-				.getBuilders();
+		stepBuilders = builder.getBuilders();
+		this.nodesProvider = nodesProvider;
 		nbStep = stepBuilders.size();
-		engines = new CSCFRMEngine[nbThreads][nbStep];
+		engines = new CSCFRMBaseEngine[nbThreads][nbStep];
+		readers = new MonothreadCyclicUtilReader[nbThreads][nbStep];
 		utils = new CSCFRMMultithreadUtilityManager[nbStep];
 		this.nbThreads = nbThreads;
 		this.nbPlayers = builder.getNbPlayers();
 		service = Executors.newFixedThreadPool(nbThreads);
 		rands = new Random[nbThreads];
+		// One stream per thread and per engine, split in order
+		final CSCFRMRandom masterRand = baseConfig.newMasterRandom();
 		for (int i = 0; i < nbThreads; i++)
-			rands[i] = new Random();
+			rands[i] = masterRand == null ? new Random() : masterRand.split();
 		log.debug("Setting positions permutations");
 		final int[][][] posPerms = new int[nbStep][nbStep][nbPlayers];
 		for (int fromStep = 0; fromStep < nbStep; fromStep++)
@@ -144,32 +219,46 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 		loader = loaderProvider.getSubCtxProvider(builder.getUId());
 		for (int step = 0; step < nbStep; step++) {
 			log.debug("Initializing step {}", step);
-			utils[step] = new CSCFRMMultithreadUtilityManager(nbPlayers);
-			CSCFRMConfig conf = new CSCFRMConfig(true, true, utils[step],
-					new MonothreadCyclicUtilReader(nbPlayers, utils,
-							posPerms[step]));
+			utils[step] = new CSCFRMMultithreadUtilityManager(nbPlayers,
+					nbThreads, baseConfig.getUtilitySnapshotInterval());
+			CSCFRMConfig conf = new CSCFRMConfig(baseConfig, true, true,
+					utils[step], readers[0][step] = new MonothreadCyclicUtilReader(
+							nbPlayers, utils, posPerms[step]));
 			games.add(stepBuilders.get(step).getGame(nodesProvider));
 			stepGamesLoaders.add(loader.getLoader(games.get(step).getUId(),
 					loaderConfig));
-			if (stepGamesLoaders.get(step).canLoad()) {
-				log.debug("Loading step {}", step);
-				stepGamesLoaders.get(step).loadPlayerNodes(
-						games.get(step).getPlayerNodesIterator());
-				utils[step].setState(stepGamesLoaders.get(step).loadState());
-			}
 			log.debug("Creating step {}'s engines", step);
-			engines[0][step] = new CSCFRMEngine(games.get(step));
+			engines[0][step] = baseConfig.getEngineType().newEngine(
+					games.get(step));
 			engines[0][step].setConfig(conf);
+			if (masterRand != null)
+				engines[0][step].setRandom(masterRand.split());
 			for (int thread = 1; thread < nbThreads; thread++) {
-				CSCFRMConfig conf2 = new CSCFRMConfig(true,
+				CSCFRMConfig conf2 = new CSCFRMConfig(baseConfig, true,
 						loaderConfig.isLoadVisitsAndRealWeight(), utils[step],
-						new MonothreadCyclicUtilReader(nbPlayers, utils,
-								posPerms[step]));
-				engines[thread][step] = new CSCFRMEngine(stepBuilders.get(step)
-						.getSharingGame(nodesProvider, games.get(step)));
+						readers[thread][step] = new MonothreadCyclicUtilReader(
+								nbPlayers, utils, posPerms[step]));
+				engines[thread][step] = baseConfig.getEngineType().newEngine(
+						stepBuilders.get(step).getSharingGame(nodesProvider,
+								games.get(step)));
 				engines[thread][step].setConfig(conf2);
+				if (masterRand != null)
+					engines[thread][step].setRandom(masterRand.split());
+			}
+			if (stepGamesLoaders.get(step).canLoad()) {
+				log.debug("Loading step {}", step);
+				stepGamesLoaders.get(step).loadPlayerNodes(
+						games.get(step).getPlayerNodesIterator());
+				final CSCFRMState state = stepGamesLoaders.get(step)
+						.loadState();
+				for (int thread = 0; thread < nbThreads; thread++)
+					engines[thread][step].setState(state);
+				engines[0][step].flushDiscounting(games.get(step)
+						.getPlayerNodesIterator());
 			}
 		}
+		metrics = new CSCFRMMetricsTracker(engines, utils, games);
+		updateStepsStats();
 		log.info(
 				"Created {} for steps game {} with {} players, {} threads and {} steps",
 				getClass().getName(), builder.getUId(), nbPlayers, nbThreads,
@@ -181,38 +270,47 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	 */
 	private class Task implements Runnable {
 
+		/** The thread's index. */
+		private final int thread;
+
 		/** The number of iterations to perform. */
-		private final int nbIter;
+		private final long nbIter;
 
 		/** The steps engines. */
-		private final CSCFRMEngine[] engines;
-
-		/** The number of engines. */
-		private final int nbEngines;
+		private final CSCFRMBaseEngine[] engines;
 
 		/** The thread's random. */
 		private final Random rand;
 
+		/** The run's ended tasks latch. */
+		private final CountDownLatch ended;
+
 		/** The i :). */
-		private int i;
+		private long i;
 
 		private int chosenStep;
 
 		/**
 		 * The Constructor.
 		 * 
+		 * @param thread
+		 *            the thread's index
 		 * @param nbIter
 		 *            the number of iterations to perform
 		 * @param engines
 		 *            the thread's engines
 		 * @param rand
 		 *            the threads random
+		 * @param ended
+		 *            the run's ended tasks latch
 		 */
-		public Task(int nbIter, CSCFRMEngine[] engines, Random rand) {
+		public Task(int thread, long nbIter, CSCFRMBaseEngine[] engines,
+				Random rand, CountDownLatch ended) {
+			this.thread = thread;
 			this.nbIter = nbIter;
 			this.engines = engines;
-			nbEngines = engines.length;
 			this.rand = rand;
+			this.ended = ended;
 		}
 
 		/*
@@ -222,27 +320,32 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 		 */
 		@Override
 		public void run() {
+			metrics.taskStarted(thread);
 			try {
-				for (i = 0; i < nbIter; i++) {
-					engines[chosenStep = rand.nextInt(nbEngines)].train();
+				final CSCFRMStepScheduler scheduler = stepScheduler;
+				int untilUpdate = schedulerUpdateIter;
+				for (i = 0; i < nbIter && !stopRequested; i++) {
+					engines[chosenStep = scheduler.nextStep(thread, rand)]
+							.train();
+					if (thread == 0 && --untilUpdate == 0) {
+						scheduler.update(updateStepsStats());
+						untilUpdate = schedulerUpdateIter;
+					}
 				}
+				for (chosenStep = 0; chosenStep < nbStep; chosenStep++)
+					engines[chosenStep].mergeDeltas();
 			} catch (Exception e) {
 				log.error(
 						"Task threw {} on step {}, calling emergency procedure to avoid dead locks on player nodes",
 						e, chosenStep);
 				threwException = true;
-				try {
-					close();
-				} catch (Exception e1) {
-					log.error("Thrown exception when closing service executor",
-							e1);
-				}
+				stopRequested = true;
+				// Unlock first, a checkpoint may be waiting for a node
 				unlockNodes(games.get(chosenStep).getPlayerNodesIterator());
+				emergencyClose();
 			}
-			synchronized (syncObject) {
-				endedTasks++;
-				syncObject.notifyAll();
-			}
+			metrics.taskEnded(thread);
+			ended.countDown();
 		}
 	}
 
@@ -257,26 +360,143 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	public synchronized void run(int nbIter) throws InterruptedException {
 		checkArgument(nbIter > 0, "The number of iterations must be > 0");
 		log.info("Running for {} iterations.", nbIter);
-		synchronized (syncObject) {
-			log.debug("Acquired internal lock");
-			endedTasks = 0;
-			int iter = nbIter / nbThreads;
-			int remainIter = nbIter % nbThreads;
-			log.debug("Executing task 0 ({} iter)", iter + remainIter);
-			service.execute(new Task(iter + remainIter, engines[0], rands[0]));
-			for (int i = 1; i < nbThreads; i++) {
-				log.debug("Executing task {} ({} iterations)", i, iter);
-				service.execute(new Task(iter, engines[i], rands[i]));
-			}
-			log.debug("Waiting for tasks to end");
-			while (endedTasks != nbThreads) {
-				syncObject.wait();
-				log.debug("Ended tasks : {}", endedTasks);
-			}
+		stepScheduler.update(updateStepsStats());
+		stopRequested = false;
+		final CountDownLatch ended = new CountDownLatch(nbThreads);
+		int iter = nbIter / nbThreads;
+		int remainIter = nbIter % nbThreads;
+		log.debug("Executing task 0 ({} iter)", iter + remainIter);
+		service.execute(new Task(0, iter + remainIter, engines[0], rands[0],
+				ended));
+		for (int i = 1; i < nbThreads; i++) {
+			log.debug("Executing task {} ({} iterations)", i, iter);
+			service.execute(new Task(i, iter, engines[i], rands[i], ended));
 		}
+		log.debug("Waiting for tasks to end");
+		ended.await();
 		log.info("End running {} iterations.", nbIter);
 	}
 
+	/**
+	 * Run training until a condition is met. The calling thread checks the
+	 * condition at each interval while the executor's threads keep training,
+	 * then threads stop after their current iteration.
+	 * 
+	 * @param condition
+	 *            the stop condition
+	 * @param checkInterval
+	 *            the interval between two checks of the condition
+	 * @param unit
+	 *            the check interval's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             relaying the condition's exception
+	 */
+	public synchronized long runUntil(CSCFRMStopCondition condition,
+			long checkInterval, TimeUnit unit) throws Exception {
+		checkNotNull(condition, "The stop condition cannot be null");
+		checkArgument(checkInterval > 0, "The check interval must be > 0");
+		log.info("Running until {}", condition);
+		final long startIter = metrics.iterations();
+		stepScheduler.update(updateStepsStats());
+		stopRequested = false;
+		final CountDownLatch ended = new CountDownLatch(nbThreads);
+		for (int i = 0; i < nbThreads; i++)
+			service.execute(new Task(i, Long.MAX_VALUE, engines[i], rands[i],
+					ended));
+		try {
+			while (!ended.await(checkInterval, unit))
+				if (condition.isMet(metrics.snapshot()))
+					break;
+		} finally {
+			stopRequested = true;
+			ended.await();
+		}
+		final long nbIter = metrics.iterations() - startIter;
+		log.info("End running {} iterations.", nbIter);
+		return nbIter;
+	}
+
+	/**
+	 * Run training for a given duration, give or take an iteration per
+	 * thread.
+	 * 
+	 * @param duration
+	 *            the duration
+	 * @param unit
+	 *            the duration's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             never thrown by the time condition
+	 */
+	public long runFor(long duration, TimeUnit unit) throws Exception {
+		checkArgument(duration > 0, "The duration must be > 0");
+		return runUntil(CSCFRMStopConditions.elapsed(duration, unit),
+				duration, unit);
+	}
+
+	/**
+	 * Sets the scheduler choosing the step each thread trains.
+	 * 
+	 * @param scheduler
+	 *            the scheduler
+	 * @param updateIter
+	 *            the number of iterations of the first thread between two
+	 *            updates of the scheduler and of the steps statistics
+	 */
+	public synchronized void setStepScheduler(CSCFRMStepScheduler scheduler,
+			int updateIter) {
+		checkNotNull(scheduler, "The step scheduler cannot be null");
+		checkArgument(updateIter > 0,
+				"The number of iterations between updates must be > 0");
+		log.info("Setting step scheduler {}, updated every {} iterations",
+				scheduler, updateIter);
+		stepScheduler = scheduler;
+		schedulerUpdateIter = updateIter;
+	}
+
+	/**
+	 * Gets the steps statistics, as computed at the last update of the step
+	 * scheduler.
+	 * 
+	 * @return the steps statistics
+	 */
+	public CSCFRMStepsStats getStepsStats() {
+		return stepsStats;
+	}
+
+	/**
+	 * Computes the steps statistics. Only called by the executor's thread or
+	 * by the first training thread.
+	 * 
+	 * @return the steps statistics
+	 */
+	private CSCFRMStepsStats updateStepsStats() {
+		final CSCFRMStepsStats previous = stepsStats;
+		final long[] iterations = new long[nbStep];
+		final double[][] stepsUtils = new double[nbStep][];
+		final double[] utilChanges = new double[nbStep];
+		final long[] reaches = new long[nbStep];
+		for (int step = 0; step < nbStep; step++) {
+			iterations[step] = utils[step].getIter();
+			stepsUtils[step] = utils[step].getUtil();
+			if (previous == null) {
+				utilChanges[step] = Double.POSITIVE_INFINITY;
+				continue;
+			}
+			final double[] prevUtil = previous.getUtil(step);
+			for (int p = 0; p < nbPlayers; p++)
+				utilChanges[step] = Math.max(utilChanges[step],
+						Math.abs(stepsUtils[step][p] - prevUtil[p]));
+		}
+		for (int thread = 0; thread < nbThreads; thread++)
+			for (int from = 0; from < nbStep; from++)
+				for (int to = 0; to < nbStep; to++)
+					reaches[to] += readers[thread][from].getReaches(to);
+		return stepsStats = new CSCFRMStepsStats(nbThreads, iterations,
+				stepsUtils, utilChanges, reaches);
+	}
+
 	/**
 	 * Save the games player nodes and the engines state.
 	 * 
@@ -289,13 +509,49 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 			return;
 		}
 		log.info("Saving...");
-		for (int step = 0; step < nbStep; step++)
+		final long start = System.nanoTime();
+		try {
+			for (int thread = 0; thread < nbThreads; thread++)
+				for (int step = 0; step < nbStep; step++)
+					engines[thread][step].mergeDeltas();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while merging the engines deltas");
+		}
+		for (int step = 0; step < nbStep; step++) {
+			engines[0][step].flushDiscounting(games.get(step)
+					.getPlayerNodesIterator());
 			stepGamesLoaders.get(step).save(
 					games.get(step).getPlayerNodesIterator(),
-					utils[step].getState());
+					engines[0][step].getState());
+		}
+		metrics.checkpointed(System.nanoTime() - start);
 		log.info("Saved!");
 	}
 
+	/**
+	 * Gets the checkpointer saving the steps while training, building it on
+	 * first call. It holds a copy of each step game, in their own store when
+	 * the nodes provider is a {@link FlatStoreNodesProvider}. Engines mustn't
+	 * buffer their deltas.
+	 * 
+	 * @return the checkpointer
+	 */
+	public synchronized CSCFRMCheckpointer<PNode> getCheckpointer() {
+		if (checkpointer == null) {
+			log.info("Building the steps copies for checkpoints");
+			final List<StepGame> copies = new ArrayList<>();
+			final NodesProvider<PNode> copiesProvider = CSCFRMCheckpointer
+					.copiesProvider(nodesProvider);
+			for (int step = 0; step < nbStep; step++)
+				copies.add(stepBuilders.get(step).getGame(copiesProvider));
+			checkpointer = new CSCFRMCheckpointer<PNode>(games, copies,
+					engines[0], stepGamesLoaders, metrics);
+		}
+		return checkpointer;
+	}
+
 	/**
 	 * Gets the games.
 	 * 
@@ -310,7 +566,7 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	 * 
 	 * @return the engines
 	 */
-	public CSCFRMEngine[] getEngines() {
+	public CSCFRMBaseEngine[] getEngines() {
 		return engines[0];
 	}
 
@@ -323,6 +579,15 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 		return loader;
 	}
 
+	/**
+	 * Gets the metrics tracker. Its games are the steps.
+	 * 
+	 * @return the metrics tracker
+	 */
+	public CSCFRMMetricsTracker getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Unlock player nodes to avoid dead-locks
 	 * 
@@ -335,6 +600,18 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 			nodes.next().unlock();
 	}
 
+	/**
+	 * Shuts down the executor service and the checkpointer without waiting
+	 * for them, when a task failed.
+	 */
+	private void emergencyClose() {
+		log.info("Shutting down executor service.");
+		if (checkpointer != null)
+			checkpointer.shutdownNow();
+		service.shutdown();
+		metrics.unregisterMBean();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -343,6 +620,9 @@ public class CSCFRMCyclicStepsExecutor<PNode extends PlayerNode, StepGame extend
 	@Override
 	public void close() throws Exception {
 		log.info("Shutting down executor service.");
+		if (checkpointer != null)
+			checkpointer.close();
 		service.shutdown();
+		metrics.unregisterMBean();
 	}
 }
@@ -0,0 +1,256 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+
+/**
+ * Immutable snapshot of an executor's training metrics, see
+ * {@link CSCFRMMetricsTracker#snapshot()}. Counters are cumulative since the
+ * executor's creation; rates between two snapshots can be computed with
+ * {@link #getIterationsPerSecondSince(CSCFRMMetrics)}.
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMMetrics {
+
+	/** The snapshot's time, from {@link System#nanoTime()}. */
+	private final long nanoTime;
+
+	/** The iterations ran by each thread. */
+	private final long[] threadsIterations;
+
+	/** The time each thread spent running tasks, in nanoseconds. */
+	private final long[] threadsBusyNanos;
+
+	/** The time each thread waited to lock player nodes, in nanoseconds. */
+	private final long[] threadsLockWaitNanos;
+
+	/** The utility of each game. */
+	private final double[][] utils;
+
+	/** The average of the player nodes maximum positive regret. */
+	private final double avgRegret;
+
+	/** The number of checkpoints. */
+	private final long nbCheckpoints;
+
+	/** The last checkpoint's duration, in nanoseconds. */
+	private final long lastCheckpointNanos;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param nanoTime
+	 *            the snapshot's time, from {@link System#nanoTime()}
+	 * @param threadsIterations
+	 *            the iterations ran by each thread
+	 * @param threadsBusyNanos
+	 *            the time each thread spent running tasks
+	 * @param threadsLockWaitNanos
+	 *            the time each thread waited to lock player nodes
+	 * @param utils
+	 *            the utility of each game
+	 * @param avgRegret
+	 *            the average of the player nodes maximum positive regret,
+	 *            {@link Double#NaN} when not computed
+	 * @param nbCheckpoints
+	 *            the number of checkpoints
+	 * @param lastCheckpointNanos
+	 *            the last checkpoint's duration
+	 */
+	public CSCFRMMetrics(long nanoTime, long[] threadsIterations,
+			long[] threadsBusyNanos, long[] threadsLockWaitNanos,
+			double[][] utils, double avgRegret, long nbCheckpoints,
+			long lastCheckpointNanos) {
+		this.nanoTime = nanoTime;
+		this.threadsIterations = threadsIterations;
+		this.threadsBusyNanos = threadsBusyNanos;
+		this.threadsLockWaitNanos = threadsLockWaitNanos;
+		this.utils = utils;
+		this.avgRegret = avgRegret;
+		this.nbCheckpoints = nbCheckpoints;
+		this.lastCheckpointNanos = lastCheckpointNanos;
+	}
+
+	/**
+	 * Gets the snapshot's time.
+	 *
+	 * @return the time, from {@link System#nanoTime()}
+	 */
+	public long getNanoTime() {
+		return nanoTime;
+	}
+
+	/**
+	 * Gets the number of threads.
+	 *
+	 * @return the number of threads
+	 */
+	public int getNbThreads() {
+		return threadsIterations.length;
+	}
+
+	/**
+	 * Gets the iterations ran by a thread.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 * @return the iterations
+	 */
+	public long getIterations(int thread) {
+		return threadsIterations[thread];
+	}
+
+	/**
+	 * Gets the iterations ran by all threads.
+	 *
+	 * @return the iterations
+	 */
+	public long getIterations() {
+		long res = 0;
+		for (long iterations : threadsIterations)
+			res += iterations;
+		return res;
+	}
+
+	/**
+	 * Gets the time a thread spent running tasks.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 * @return the time in nanoseconds
+	 */
+	public long getBusyNanos(int thread) {
+		return threadsBusyNanos[thread];
+	}
+
+	/**
+	 * Gets a thread's iterations per second while running tasks.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 * @return the iterations per second
+	 */
+	public double getIterationsPerSecond(int thread) {
+		if (threadsBusyNanos[thread] == 0)
+			return 0;
+		return threadsIterations[thread] * 1e9 / threadsBusyNanos[thread];
+	}
+
+	/**
+	 * Gets the sum of the threads iterations per second while running tasks.
+	 *
+	 * @return the iterations per second
+	 */
+	public double getIterationsPerSecond() {
+		double res = 0;
+		for (int t = 0; t < threadsIterations.length; t++)
+			res += getIterationsPerSecond(t);
+		return res;
+	}
+
+	/**
+	 * Gets the iterations per second between a previous snapshot and this
+	 * one, idle time included.
+	 *
+	 * @param previous
+	 *            the previous snapshot of the same executor
+	 * @return the iterations per second
+	 */
+	public double getIterationsPerSecondSince(CSCFRMMetrics previous) {
+		checkNotNull(previous, "The previous snapshot is null");
+		if (nanoTime == previous.nanoTime)
+			return 0;
+		return (getIterations() - previous.getIterations()) * 1e9
+				/ (nanoTime - previous.nanoTime);
+	}
+
+	/**
+	 * Gets the time a thread waited to lock player nodes. Always zero unless
+	 * {@link CSCFRMConfig#setLockWaitTiming(boolean)} was enabled.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 * @return the time in nanoseconds
+	 */
+	public long getLockWaitNanos(int thread) {
+		return threadsLockWaitNanos[thread];
+	}
+
+	/**
+	 * Gets the time all threads waited to lock player nodes.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getLockWaitNanos() {
+		long res = 0;
+		for (long nanos : threadsLockWaitNanos)
+			res += nanos;
+		return res;
+	}
+
+	/**
+	 * Gets the part of the threads busy time spent waiting for player nodes
+	 * locks.
+	 *
+	 * @return the lock wait ratio, between zero and one
+	 */
+	public double getLockWaitRatio() {
+		long busy = 0;
+		for (long nanos : threadsBusyNanos)
+			busy += nanos;
+		return busy == 0 ? 0 : (double) getLockWaitNanos() / busy;
+	}
+
+	/**
+	 * Gets the number of games. Only cyclic steps executors have more than
+	 * one.
+	 *
+	 * @return the number of games
+	 */
+	public int getNbGames() {
+		return utils.length;
+	}
+
+	/**
+	 * Gets the utility of a game.
+	 *
+	 * @param game
+	 *            the game's index
+	 * @return a copy of the players utility
+	 */
+	public double[] getUtil(int game) {
+		return utils[game].clone();
+	}
+
+	/**
+	 * Gets the average over all player nodes of their maximum positive
+	 * cumulative regret, divided by their game's iterations count. Goes to
+	 * zero as training converges. Only computed by
+	 * {@link CSCFRMMetricsTracker#snapshot(boolean)}.
+	 *
+	 * @return the average regret, {@link Double#NaN} when not computed
+	 */
+	public double getAvgRegret() {
+		return avgRegret;
+	}
+
+	/**
+	 * Gets the number of checkpoints.
+	 *
+	 * @return the number of checkpoints
+	 */
+	public long getNbCheckpoints() {
+		return nbCheckpoints;
+	}
+
+	/**
+	 * Gets the last checkpoint's duration.
+	 *
+	 * @return the duration in nanoseconds, zero when no checkpoint was made
+	 */
+	public long getLastCheckpointNanos() {
+		return lastCheckpointNanos;
+	}
+}
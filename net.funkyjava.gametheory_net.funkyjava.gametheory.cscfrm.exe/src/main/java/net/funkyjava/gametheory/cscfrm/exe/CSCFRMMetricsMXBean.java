@@ -0,0 +1,76 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+/**
+ * Management interface of an executor's training metrics, see
+ * {@link CSCFRMMetricsTracker#registerMBean(String)}. Each attribute is read
+ * from a new {@link CSCFRMMetrics} snapshot.
+ *
+ * @author Pierre Mardon
+ */
+public interface CSCFRMMetricsMXBean {
+
+	/**
+	 * Gets the iterations ran by all threads.
+	 *
+	 * @return the iterations
+	 */
+	long getIterations();
+
+	/**
+	 * Gets the sum of the threads iterations per second while running tasks.
+	 *
+	 * @return the iterations per second
+	 */
+	double getIterationsPerSecond();
+
+	/**
+	 * Gets each thread's iterations per second while running tasks.
+	 *
+	 * @return the iterations per second of each thread
+	 */
+	double[] getThreadsIterationsPerSecond();
+
+	/**
+	 * Gets the time all threads waited to lock player nodes.
+	 *
+	 * @return the time in milliseconds
+	 */
+	long getLockWaitMillis();
+
+	/**
+	 * Gets the part of the threads busy time spent waiting for player nodes
+	 * locks.
+	 *
+	 * @return the lock wait ratio
+	 */
+	double getLockWaitRatio();
+
+	/**
+	 * Gets the average over all player nodes of their maximum positive
+	 * cumulative regret, divided by their game's iterations count.
+	 *
+	 * @return the average regret
+	 */
+	double getAvgRegret();
+
+	/**
+	 * Gets the utility of the first game.
+	 *
+	 * @return the players utility
+	 */
+	double[] getUtil();
+
+	/**
+	 * Gets the number of checkpoints.
+	 *
+	 * @return the number of checkpoints
+	 */
+	long getNbCheckpoints();
+
+	/**
+	 * Gets the last checkpoint's duration.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	long getLastCheckpointMillis();
+}
@@ -0,0 +1,360 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+
+/**
+ * Tracks the training metrics of an executor : iterations and busy time of
+ * each thread, node locks wait time, games utility, average regret and
+ * checkpoints duration. Metrics can be polled with {@link #snapshot()} or
+ * exposed as a platform MBean with {@link #registerMBean(String)}. Polling
+ * doesn't lock player nodes and can be done while training. The average
+ * regret walks all player nodes, so it is only computed when asked for, by
+ * {@link #snapshot(boolean)} or {@link #getAvgRegret()}.
+ *
+ * @author Pierre Mardon
+ */
+@Slf4j
+public class CSCFRMMetricsTracker implements CSCFRMMetricsMXBean {
+
+	/** The MBeans domain. */
+	public static final String mBeanDomain = "net.funkyjava.gametheory.cscfrm";
+
+	/** The engines of each thread. */
+	private final CSCFRMBaseEngine[][] threadsEngines;
+
+	/** The utility manager of each game. */
+	private final CSCFRMUtilityManager[] utilMgrs;
+
+	/** The games. */
+	private final List<? extends CSCFRMGame<?>> games;
+
+	/** The time each thread spent running ended tasks. */
+	private final AtomicLongArray busyNanos;
+
+	/** The start time of each thread's running task, zero when idle. */
+	private final AtomicLongArray taskStarts;
+
+	/** The number of checkpoints. */
+	private final AtomicLong nbCheckpoints = new AtomicLong();
+
+	/** The last checkpoint's duration. */
+	private volatile long lastCheckpointNanos = 0;
+
+	/** The registered MBean's name, null when not registered. */
+	private ObjectName mBeanName;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param threadsEngines
+	 *            the engines of each thread
+	 * @param utilMgrs
+	 *            the utility manager of each game
+	 * @param games
+	 *            the games, sharing their nodes with all threads games
+	 */
+	CSCFRMMetricsTracker(CSCFRMBaseEngine[][] threadsEngines,
+			CSCFRMUtilityManager[] utilMgrs,
+			List<? extends CSCFRMGame<?>> games) {
+		this.threadsEngines = threadsEngines;
+		this.utilMgrs = utilMgrs;
+		this.games = games;
+		busyNanos = new AtomicLongArray(threadsEngines.length);
+		taskStarts = new AtomicLongArray(threadsEngines.length);
+	}
+
+	/**
+	 * Called by a thread when it starts a task.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 */
+	void taskStarted(int thread) {
+		taskStarts.set(thread, System.nanoTime());
+	}
+
+	/**
+	 * Called by a thread when its task ends.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 */
+	void taskEnded(int thread) {
+		busyNanos.addAndGet(thread, System.nanoTime() - taskStarts.get(thread));
+		taskStarts.set(thread, 0);
+	}
+
+	/**
+	 * Called when a checkpoint was made.
+	 *
+	 * @param nanos
+	 *            the checkpoint's duration
+	 */
+	void checkpointed(long nanos) {
+		lastCheckpointNanos = nanos;
+		nbCheckpoints.incrementAndGet();
+	}
+
+	/**
+	 * Takes a snapshot of the metrics, without the average regret.
+	 *
+	 * @return the snapshot
+	 */
+	public CSCFRMMetrics snapshot() {
+		return snapshot(false);
+	}
+
+	/**
+	 * Takes a snapshot of the metrics.
+	 *
+	 * @param withAvgRegret
+	 *            indicates whether the average regret must be computed, which
+	 *            walks all player nodes
+	 * @return the snapshot, whose average regret is {@link Double#NaN} when
+	 *         not computed
+	 */
+	public CSCFRMMetrics snapshot(boolean withAvgRegret) {
+		final int nbThreads = threadsEngines.length;
+		final long[] iterations = new long[nbThreads];
+		final long[] busy = new long[nbThreads];
+		final long[] lockWait = new long[nbThreads];
+		final long now = System.nanoTime();
+		long start;
+		for (int t = 0; t < nbThreads; t++) {
+			for (CSCFRMBaseEngine engine : threadsEngines[t]) {
+				iterations[t] += engine.getIterations();
+				lockWait[t] += engine.getLockWaitNanos();
+			}
+			busy[t] = busyNanos.get(t);
+			if ((start = taskStarts.get(t)) != 0)
+				busy[t] += now - start;
+		}
+		final double[][] utils = new double[utilMgrs.length][];
+		for (int g = 0; g < utilMgrs.length; g++)
+			utils[g] = readUtil(g);
+		return new CSCFRMMetrics(now, iterations, busy, lockWait, utils,
+				withAvgRegret ? avgRegret() : Double.NaN, nbCheckpoints.get(),
+				lastCheckpointNanos);
+	}
+
+	/**
+	 * Gets the iterations ran by all threads, without reading anything else.
+	 *
+	 * @return the number of iterations
+	 */
+	long iterations() {
+		long iterations = 0;
+		for (CSCFRMBaseEngine[] engines : threadsEngines)
+			for (CSCFRMBaseEngine engine : engines)
+				iterations += engine.getIterations();
+		return iterations;
+	}
+
+	/**
+	 * Reads a game's utility, synchronized with its threads when the utility
+	 * manager is shared.
+	 *
+	 * @param game
+	 *            the game's index
+	 * @return a copy of the utility
+	 */
+	private double[] readUtil(final int game) {
+		final CSCFRMUtilityManager utilMgr = utilMgrs[game];
+		if (!(utilMgr instanceof CSCFRMMultithreadUtilityManager))
+			return utilMgr.getUtil().clone();
+		final double[] res = new double[utilMgr.getUtil().length];
+		((CSCFRMMultithreadUtilityManager) utilMgr).read(res);
+		return res;
+	}
+
+	/**
+	 * Computes the average over all player nodes of their maximum positive
+	 * cumulative regret, divided by their game's iterations count.
+	 *
+	 * @return the average regret
+	 */
+	private double avgRegret() {
+		double sum = 0;
+		long nbNodes = 0;
+		double gameSum, max;
+		long iter;
+		PlayerNode node;
+		Iterator<? extends PlayerNode> it;
+		for (int g = 0; g < games.size(); g++) {
+			if ((iter = utilMgrs[g].getIter()) == 0)
+				continue;
+			gameSum = 0;
+			it = games.get(g).getPlayerNodesIterator();
+			while (it.hasNext()) {
+				node = it.next();
+				max = 0;
+				for (int a = 0; a < node.getNbActions(); a++)
+					max = Math.max(max, node.getRegret(a));
+				gameSum += max;
+				nbNodes++;
+			}
+			sum += gameSum / iter;
+		}
+		return nbNodes == 0 ? 0 : sum / nbNodes;
+	}
+
+	/**
+	 * Registers this tracker as a platform MBean named
+	 * {@value #mBeanDomain}:type=CSCFRMExecutor,name=<i>name</i>.
+	 *
+	 * @param name
+	 *            the name, typically the game's uid
+	 * @return the MBean's object name
+	 * @throws JMException
+	 *             the registration failed, for example because the name is
+	 *             already used
+	 */
+	public synchronized ObjectName registerMBean(String name)
+			throws JMException {
+		if (mBeanName != null)
+			unregisterMBean();
+		final ObjectName objectName = new ObjectName(mBeanDomain
+				+ ":type=CSCFRMExecutor,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+				objectName);
+		log.info("Registered metrics MBean {}", objectName);
+		return mBeanName = objectName;
+	}
+
+	/**
+	 * Unregisters the MBean when registered. Executors call it when closed.
+	 */
+	public synchronized void unregisterMBean() {
+		if (mBeanName == null)
+			return;
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(mBeanName))
+				server.unregisterMBean(mBeanName);
+		} catch (JMException e) {
+			log.warn("Failed to unregister metrics MBean {}", mBeanName, e);
+		}
+		mBeanName = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getIterations()
+	 */
+	@Override
+	public long getIterations() {
+		return iterations();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getIterationsPerSecond
+	 * ()
+	 */
+	@Override
+	public double getIterationsPerSecond() {
+		return snapshot().getIterationsPerSecond();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#
+	 * getThreadsIterationsPerSecond()
+	 */
+	@Override
+	public double[] getThreadsIterationsPerSecond() {
+		final CSCFRMMetrics metrics = snapshot();
+		final double[] res = new double[metrics.getNbThreads()];
+		for (int t = 0; t < res.length; t++)
+			res[t] = metrics.getIterationsPerSecond(t);
+		return res;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getLockWaitMillis
+	 * ()
+	 */
+	@Override
+	public long getLockWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(snapshot().getLockWaitNanos());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getLockWaitRatio
+	 * ()
+	 */
+	@Override
+	public double getLockWaitRatio() {
+		return snapshot().getLockWaitRatio();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getAvgRegret()
+	 */
+	@Override
+	public double getAvgRegret() {
+		return avgRegret();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getUtil()
+	 */
+	@Override
+	public double[] getUtil() {
+		return readUtil(0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#getNbCheckpoints
+	 * ()
+	 */
+	@Override
+	public long getNbCheckpoints() {
+		return nbCheckpoints.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetricsMXBean#
+	 * getLastCheckpointMillis()
+	 */
+	@Override
+	public long getLastCheckpointMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastCheckpointNanos);
+	}
+}
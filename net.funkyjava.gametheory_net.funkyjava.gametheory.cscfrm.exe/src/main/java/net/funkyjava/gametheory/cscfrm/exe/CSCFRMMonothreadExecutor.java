@@ -1,12 +1,18 @@
 package net.funkyjava.gametheory.cscfrm.exe;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
-import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngineType;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMCtxExecutionLoaderProvider;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoader;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
@@ -15,7 +21,11 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
 
 /**
  * Convenience class to execute CSCFRM algorithm on a given game, mono-threaded
- * way. Intends to be mono-threaded driven.
+ * way. Intends to be mono-threaded driven. The engine's type is read from the
+ * configuration, see {@link CSCFRMConfig#setEngineType(CSCFRMEngineType)}.
+ * Training metrics are available from {@link #getMetrics()}. Besides fixed
+ * iterations counts, runs can be bounded by time or by a
+ * {@link CSCFRMStopCondition}.
  * 
  * @author Pierre Mardon
  * 
@@ -27,6 +37,9 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
 @Slf4j
 public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extends CSCFRMGame<PNode>> {
 
+	/** The number of iterations between two clock reads of bounded runs. */
+	private static final int clockCheckIter = 64;
+
 	/** The game. */
 	final GameClass game;
 
@@ -34,7 +47,10 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 	final CSCFRMExecutionLoader<PNode> loader;
 
 	/** The engine. */
-	final CSCFRMEngine engine;
+	final CSCFRMBaseEngine engine;
+
+	/** The metrics tracker. */
+	final CSCFRMMetricsTracker metrics;
 
 	/**
 	 * The Constructor.
@@ -55,9 +71,17 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 			CSCFRMConfig config, CSCFRMExecutionLoaderConfig loaderConfig)
 			throws IOException {
 		log.info("Initializing for game {}", game.getUId());
-		engine = new CSCFRMEngine(this.game = game);
-		if (config != null)
+		engine = (config == null ? CSCFRMEngineType.CHANCE_SAMPLING : config
+				.getEngineType()).newEngine(this.game = game);
+		if (config != null) {
 			engine.setConfig(config);
+			if (config.getSeed() != null)
+				engine.setRandom(config.newMasterRandom());
+		}
+		metrics = new CSCFRMMetricsTracker(
+				new CSCFRMBaseEngine[][] { { engine } },
+				new CSCFRMUtilityManager[] { engine.getUtilManager() },
+				Collections.singletonList(game));
 		if (loaderProvider == null) {
 			loader = null;
 			return;
@@ -72,7 +96,8 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 		if (loader.canLoad()) {
 			log.debug("Loading game");
 			loader.loadPlayerNodes(game.getPlayerNodesIterator());
-			engine.getUtilManager().setState(loader.loadState());
+			engine.setState(loader.loadState());
+			engine.flushDiscounting(game.getPlayerNodesIterator());
 		}
 	}
 
@@ -87,14 +112,78 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 	public synchronized void run(int nbIter) throws Exception {
 		checkArgument(nbIter > 0, "The number of iterations must be > 0");
 		log.info("Running for {} iterations", nbIter);
-		final CSCFRMEngine engine = this.engine;
+		final CSCFRMBaseEngine engine = this.engine;
+		metrics.taskStarted(0);
 		try {
-			for (int i = 0; i < nbIter; i++)
-				engine.train();
+			engine.train(nbIter);
+			engine.mergeDeltas();
 		} catch (Exception e) {
 			log.error("Engine threw {}, check your game's implementation", e);
 			throw e;
+		} finally {
+			metrics.taskEnded(0);
+		}
+	}
+
+	/**
+	 * Run training until a condition is met. As the training thread checks
+	 * the condition itself, it should be cheap compared to the check
+	 * interval.
+	 * 
+	 * @param condition
+	 *            the stop condition
+	 * @param checkInterval
+	 *            the interval between two checks of the condition
+	 * @param unit
+	 *            the check interval's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             relaying engine's or condition's exception
+	 */
+	public synchronized long runUntil(CSCFRMStopCondition condition,
+			long checkInterval, TimeUnit unit) throws Exception {
+		checkNotNull(condition, "The stop condition cannot be null");
+		checkArgument(checkInterval > 0, "The check interval must be > 0");
+		log.info("Running until {}", condition);
+		final CSCFRMBaseEngine engine = this.engine;
+		final long intervalNanos = unit.toNanos(checkInterval);
+		long nbIter = 0;
+		metrics.taskStarted(0);
+		try {
+			long nextCheck = System.nanoTime() + intervalNanos;
+			do {
+				do {
+					engine.train(clockCheckIter);
+					nbIter += clockCheckIter;
+				} while (System.nanoTime() - nextCheck < 0);
+				nextCheck = System.nanoTime() + intervalNanos;
+			} while (!condition.isMet(metrics.snapshot()));
+			engine.mergeDeltas();
+		} catch (Exception e) {
+			log.error("Run threw {}, check your game's implementation", e);
+			throw e;
+		} finally {
+			metrics.taskEnded(0);
 		}
+		log.info("End running {} iterations", nbIter);
+		return nbIter;
+	}
+
+	/**
+	 * Run training for a given duration, give or take a few iterations.
+	 * 
+	 * @param duration
+	 *            the duration
+	 * @param unit
+	 *            the duration's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             relaying engine's exception
+	 */
+	public long runFor(long duration, TimeUnit unit) throws Exception {
+		checkArgument(duration > 0, "The duration must be > 0");
+		return runUntil(CSCFRMStopConditions.elapsed(duration, unit),
+				duration, unit);
 	}
 
 	/**
@@ -106,8 +195,17 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 	public synchronized void save() throws IOException {
 		if (loader != null) {
 			log.info("Saving {}...", game.getUId());
-			loader.save(game.getPlayerNodesIterator(), engine.getUtilManager()
-					.getState());
+			final long start = System.nanoTime();
+			try {
+				engine.mergeDeltas();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while merging the engine's deltas");
+			}
+			engine.flushDiscounting(game.getPlayerNodesIterator());
+			loader.save(game.getPlayerNodesIterator(), engine.getState());
+			metrics.checkpointed(System.nanoTime() - start);
 			log.info("Saved !");
 		}
 	}
@@ -135,8 +233,17 @@ public class CSCFRMMonothreadExecutor<PNode extends PlayerNode, GameClass extend
 	 * 
 	 * @return the engine
 	 */
-	public CSCFRMEngine getEngine() {
+	public CSCFRMBaseEngine getEngine() {
 		return engine;
 	}
 
+	/**
+	 * Gets the metrics tracker.
+	 * 
+	 * @return the metrics tracker
+	 */
+	public CSCFRMMetricsTracker getMetrics() {
+		return metrics;
+	}
+
 }
@@ -4,25 +4,43 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.extern.slf4j.Slf4j;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
-import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngineType;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMUtilityManager;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMCtxExecutionLoaderProvider;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoader;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGame;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMGameBuilder;
+import net.funkyjava.gametheory.cscfrm.model.random.CSCFRMRandom;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.FlatStoreNodesProvider;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
 
 /**
  * Multi-threaded executor. Thread safe while no change is performed on game,
- * loader or engines during run or saving.
+ * loader or engines during run or saving. The engines type is read from the
+ * configuration, see {@link CSCFRMConfig#setEngineType(CSCFRMEngineType)}. In
+ * hogwild mode, see {@link CSCFRMConfig#setHogwild(boolean)}, threads update
+ * player nodes without locking them. Training metrics are available from
+ * {@link #getMetrics()}. Runs are split statically between threads, or handed
+ * out by chunks when {@link CSCFRMConfig#setIterationsChunkSize(int)} is set.
+ * Runs can also be bounded by time or by a {@link CSCFRMStopCondition}, their
+ * iterations being always handed out by chunks. The game can be saved
+ * while training with {@link #getCheckpointer()}. The threads pool lives as
+ * long as the executor.
  * 
  * @author Pierre Mardon
  * 
@@ -41,23 +59,41 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 	/** The base game. */
 	private final GameClass baseGame;
 
+	/** The game builder. */
+	private final CSCFRMGameBuilder<PNode, GameClass> gameBuilder;
+
+	/** The nodes provider. */
+	private final NodesProvider<PNode> nodesProvider;
+
+	/** The checkpointer, null until it's requested. */
+	private volatile CSCFRMCheckpointer<PNode> checkpointer;
+
 	/** The loader. */
 	private final CSCFRMExecutionLoader<PNode> loader;
 
 	/** The engines. */
-	private final CSCFRMEngine[] engines;
+	private final CSCFRMBaseEngine[] engines;
 
 	/** The executor service. */
 	private final ExecutorService service;
 
-	/** The sync object. */
-	private final Object syncObject = new Object();
-
 	/** The number of threads. */
 	private final int nbThreads;
 
-	/** The ended tasks count. */
-	private int endedTasks;
+	/** The iterations chunk size, zero for a static split. */
+	private final int chunkSize;
+
+	/** The iterations chunk size of bounded runs. */
+	private final int boundedChunkSize;
+
+	/** The iterations of the current run not yet claimed by a thread. */
+	private final AtomicLong unclaimedIter = new AtomicLong();
+
+	/** Indicates whether engines update player nodes without locking them. */
+	private final boolean hogwild;
+
+	/** The metrics tracker. */
+	private final CSCFRMMetricsTracker metrics;
 
 	/**
 	 * The Constructor. The configuration must provide at least a multi-thread
@@ -100,22 +136,48 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 						+ " loader's configuration and engine's configuration don't match");
 		checkNotNull(nodesProvider, "The nodes provider is null");
 		this.nbThreads = nbThreads;
+		this.gameBuilder = gameBuilder;
+		this.nodesProvider = nodesProvider;
+		this.hogwild = config.isHogwild();
+		this.chunkSize = config.getIterationsChunkSize();
+		this.boundedChunkSize = chunkSize > 0 ? chunkSize : config
+				.getUtilityBatchSize();
 		service = Executors.newFixedThreadPool(nbThreads);
-		engines = new CSCFRMEngine[nbThreads];
-		engines[0] = new CSCFRMEngine(
+		engines = new CSCFRMBaseEngine[nbThreads];
+		engines[0] = config.getEngineType().newEngine(
 				baseGame = gameBuilder.getGame(nodesProvider));
 		engines[0].setConfig(config);
+		// One stream per thread's engine, split in order
+		final CSCFRMRandom masterRand = config.newMasterRandom();
+		if (masterRand != null)
+			engines[0].setRandom(masterRand.split());
 		loader = loaderProvider.getLoader(baseGame.getUId(), loaderConfig);
+		CSCFRMState state = null;
 		if (loader.canLoad()) {
 			loader.loadPlayerNodes(baseGame.getPlayerNodesIterator());
-			engines[0].getUtilManager().setState(loader.loadState());
+			engines[0].setState(state = loader.loadState());
+			engines[0].flushDiscounting(baseGame.getPlayerNodesIterator());
 		}
 		for (int i = 1; i < nbThreads; i++) {
-			engines[i] = new CSCFRMEngine(gameBuilder.getSharingGame(
-					nodesProvider, baseGame));
+			engines[i] = config.getEngineType().newEngine(
+					gameBuilder.getSharingGame(nodesProvider, baseGame));
 			engines[i].setConfig(config);
+			if (masterRand != null)
+				engines[i].setRandom(masterRand.split());
+			// Adopt the loaded discounting schedule
+			if (state != null)
+				engines[i].setState(state);
 		}
-		log.info("Created {} with {} threads", getClass().getName(), nbThreads);
+		final CSCFRMBaseEngine[][] threadsEngines = new CSCFRMBaseEngine[nbThreads][];
+		for (int i = 0; i < nbThreads; i++)
+			threadsEngines[i] = new CSCFRMBaseEngine[] { engines[i] };
+		metrics = new CSCFRMMetricsTracker(threadsEngines,
+				new CSCFRMUtilityManager[] { config.getUtilityManager() },
+				Collections.singletonList(baseGame));
+		log.info("Created {} with {} threads{}{}", getClass().getName(),
+				nbThreads, hogwild ? " in hogwild mode" : "",
+				chunkSize > 0 ? " claiming chunks of " + chunkSize
+						+ " iterations" : "");
 	}
 
 	/**
@@ -128,24 +190,81 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 	 */
 	public synchronized void run(int nbIter) throws InterruptedException {
 		log.info("Running for {} iterations.", nbIter);
-		synchronized (syncObject) {
-			log.debug("Acquired internal lock");
-			endedTasks = 0;
+		final CountDownLatch ended = new CountDownLatch(nbThreads);
+		if (chunkSize > 0) {
+			unclaimedIter.set(nbIter);
+			for (int i = 0; i < nbThreads; i++)
+				service.execute(new Task(i, 0, chunkSize, engines[i], ended));
+		} else {
 			int iter = nbIter / nbThreads;
 			int remainIter = nbIter % nbThreads;
 			log.debug("Executing task 0 ({} iterations)", iter + remainIter);
-			service.execute(new Task(iter + remainIter, engines[0]));
+			service.execute(new Task(0, iter + remainIter, 0, engines[0],
+					ended));
 			for (int i = 1; i < nbThreads; i++) {
 				log.debug("Executing task {} ({} iterations)", i, iter);
-				service.execute(new Task(iter, engines[i]));
-			}
-			log.debug("Waiting for tasks to end");
-			while (endedTasks != nbThreads) {
-				syncObject.wait();
-				log.debug("Ended tasks : {}", endedTasks);
+				service.execute(new Task(i, iter, 0, engines[i], ended));
 			}
 		}
+		log.debug("Waiting for tasks to end");
+		ended.await();
+		log.info("End running {} iterations.", nbIter);
+	}
+
+	/**
+	 * Run training until a condition is met. The calling thread checks the
+	 * condition at each interval while the executor's threads keep training,
+	 * then threads stop after their current chunk of iterations.
+	 * 
+	 * @param condition
+	 *            the stop condition
+	 * @param checkInterval
+	 *            the interval between two checks of the condition
+	 * @param unit
+	 *            the check interval's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             relaying the condition's exception
+	 */
+	public synchronized long runUntil(CSCFRMStopCondition condition,
+			long checkInterval, TimeUnit unit) throws Exception {
+		checkNotNull(condition, "The stop condition cannot be null");
+		checkArgument(checkInterval > 0, "The check interval must be > 0");
+		log.info("Running until {}", condition);
+		final long startIter = metrics.iterations();
+		final CountDownLatch ended = new CountDownLatch(nbThreads);
+		unclaimedIter.set(Long.MAX_VALUE);
+		for (int i = 0; i < nbThreads; i++)
+			service.execute(new Task(i, 0, boundedChunkSize, engines[i], ended));
+		try {
+			while (!ended.await(checkInterval, unit))
+				if (condition.isMet(metrics.snapshot()))
+					break;
+		} finally {
+			unclaimedIter.set(0);
+			ended.await();
+		}
+		final long nbIter = metrics.iterations() - startIter;
 		log.info("End running {} iterations.", nbIter);
+		return nbIter;
+	}
+
+	/**
+	 * Run training for a given duration, give or take a chunk of iterations
+	 * per thread.
+	 * 
+	 * @param duration
+	 *            the duration
+	 * @param unit
+	 *            the duration's unit
+	 * @return the number of iterations executed
+	 * @throws Exception
+	 *             never thrown by the time condition
+	 */
+	public long runFor(long duration, TimeUnit unit) throws Exception {
+		checkArgument(duration > 0, "The duration must be > 0");
+		return runUntil(CSCFRMStopConditions.elapsed(duration, unit),
+				duration, unit);
 	}
 
 	/**
@@ -160,11 +279,43 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 			return;
 		}
 		log.info("Saving...");
-		loader.save(baseGame.getPlayerNodesIterator(), engines[0]
-				.getUtilManager().getState());
+		final long start = System.nanoTime();
+		try {
+			for (CSCFRMBaseEngine engine : engines)
+				engine.mergeDeltas();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while merging the engines deltas");
+		}
+		engines[0].flushDiscounting(baseGame.getPlayerNodesIterator());
+		loader.save(baseGame.getPlayerNodesIterator(), engines[0].getState());
+		metrics.checkpointed(System.nanoTime() - start);
 		log.info("Saved!");
 	}
 
+	/**
+	 * Gets the checkpointer saving the game while training, building it on
+	 * first call. It holds a copy of the game, in its own store when the
+	 * nodes provider is a {@link FlatStoreNodesProvider}. Engines mustn't
+	 * buffer their deltas.
+	 * 
+	 * @return the checkpointer
+	 */
+	public synchronized CSCFRMCheckpointer<PNode> getCheckpointer() {
+		if (checkpointer == null) {
+			log.info("Building the game's copy for checkpoints");
+			checkpointer = new CSCFRMCheckpointer<PNode>(
+					Collections.singletonList(baseGame),
+					Collections.singletonList(gameBuilder
+							.getGame(CSCFRMCheckpointer
+									.copiesProvider(nodesProvider))),
+					new CSCFRMBaseEngine[] { engines[0] },
+					Collections.singletonList(loader), metrics);
+		}
+		return checkpointer;
+	}
+
 	/**
 	 * Gets the game.
 	 * 
@@ -179,7 +330,7 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 	 * 
 	 * @return the engine
 	 */
-	public CSCFRMEngine getEngine() {
+	public CSCFRMBaseEngine getEngine() {
 		return engines[0];
 	}
 
@@ -192,28 +343,56 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 		return loader;
 	}
 
+	/**
+	 * Gets the metrics tracker.
+	 * 
+	 * @return the metrics tracker
+	 */
+	public CSCFRMMetricsTracker getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Task class that will be executed by each executor thread.
 	 */
 	private class Task implements Runnable {
 
-		/** The nb iter. */
+		/** The thread's index. */
+		private final int thread;
+
+		/** The nb iter, ignored when claiming chunks. */
 		private final int nbIter;
 
+		/** The iterations chunk size, zero to run nbIter iterations. */
+		private final int chunk;
+
 		/** The engine. */
-		private final CSCFRMEngine engine;
+		private final CSCFRMBaseEngine engine;
+
+		/** The run's ended tasks latch. */
+		private final CountDownLatch ended;
 
 		/**
 		 * The Constructor.
 		 * 
+		 * @param thread
+		 *            the thread's index
 		 * @param nbIter
-		 *            the nb iter
+		 *            the nb iter, ignored when claiming chunks
+		 * @param chunk
+		 *            the iterations chunk size, zero to run nbIter iterations
 		 * @param engine
 		 *            the engine
+		 * @param ended
+		 *            the run's ended tasks latch
 		 */
-		public Task(int nbIter, CSCFRMEngine engine) {
+		public Task(int thread, int nbIter, int chunk,
+				CSCFRMBaseEngine engine, CountDownLatch ended) {
+			this.thread = thread;
 			this.nbIter = nbIter;
+			this.chunk = chunk;
 			this.engine = engine;
+			this.ended = ended;
 		}
 
 		/*
@@ -223,26 +402,29 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 		 */
 		@Override
 		public void run() {
+			metrics.taskStarted(thread);
 			try {
-				for (int i = 0; i < nbIter; i++)
-					engine.train();
+				if (chunk > 0) {
+					long unclaimed;
+					while ((unclaimed = unclaimedIter.getAndAdd(-chunk)) > 0)
+						engine.train((int) Math.min(chunk, unclaimed));
+				} else if (nbIter > 0)
+					engine.train(nbIter);
+				engine.mergeDeltas();
 			} catch (Exception e) {
 				log.error(
 						"Task threw {}, calling emergency procedure to avoid dead locks on player nodes",
 						e);
 				threwException = true;
-				try {
-					close();
-				} catch (Exception e1) {
-					log.error("Thrown exception when closing service executor",
-							e1);
-				}
-				unlockNodes(baseGame.getPlayerNodesIterator());
-			}
-			synchronized (syncObject) {
-				endedTasks++;
-				syncObject.notifyAll();
+				// Other threads stop after their current chunk
+				unclaimedIter.set(0);
+				// Unlock first, a checkpoint may be waiting for a node
+				if (!hogwild)
+					unlockNodes(baseGame.getPlayerNodesIterator());
+				emergencyClose();
 			}
+			metrics.taskEnded(thread);
+			ended.countDown();
 		}
 	}
 
@@ -258,6 +440,18 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 			nodes.next().unlock();
 	}
 
+	/**
+	 * Shuts down the executor service and the checkpointer without waiting
+	 * for them, when a task failed.
+	 */
+	private void emergencyClose() {
+		log.info("Shutting down executor service.");
+		if (checkpointer != null)
+			checkpointer.shutdownNow();
+		service.shutdown();
+		metrics.unregisterMBean();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -266,6 +460,9 @@ public class CSCFRMMultiThreadExecutor<PNode extends PlayerNode, GameClass exten
 	@Override
 	public void close() throws Exception {
 		log.info("Shutting down executor service.");
+		if (checkpointer != null)
+			checkpointer.close();
 		service.shutdown();
+		metrics.unregisterMBean();
 	}
 }
\ No newline at end of file
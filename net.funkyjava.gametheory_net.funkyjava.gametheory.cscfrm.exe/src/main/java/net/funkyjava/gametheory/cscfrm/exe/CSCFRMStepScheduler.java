@@ -0,0 +1,35 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import java.util.Random;
+
+/**
+ * Chooses the step each thread of a {@link CSCFRMCyclicStepsExecutor} trains
+ * on its next iteration. See {@link CSCFRMStepSchedulers} for the usual
+ * schedulers.
+ *
+ * @author Pierre Mardon
+ */
+public interface CSCFRMStepScheduler {
+
+	/**
+	 * Updates the scheduler. The executor calls it before each run, then
+	 * periodically from one of its threads while training. Never called
+	 * concurrently.
+	 *
+	 * @param stats
+	 *            the steps statistics
+	 */
+	void update(CSCFRMStepsStats stats);
+
+	/**
+	 * Chooses the next step a thread trains. Called concurrently by all
+	 * threads on each iteration, so it must be cheap.
+	 *
+	 * @param thread
+	 *            the thread's index
+	 * @param rand
+	 *            the thread's random
+	 * @return the step's index
+	 */
+	int nextStep(int thread, Random rand);
+}
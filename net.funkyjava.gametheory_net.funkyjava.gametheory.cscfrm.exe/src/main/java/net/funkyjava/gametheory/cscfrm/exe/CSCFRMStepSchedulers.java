@@ -0,0 +1,229 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Factory of the usual {@link CSCFRMStepScheduler}s. Schedulers are stateful
+ * and shouldn't be shared by several executors.
+ *
+ * @author Pierre Mardon
+ */
+public final class CSCFRMStepSchedulers {
+
+	private CSCFRMStepSchedulers() {
+	}
+
+	/**
+	 * Creates a scheduler choosing steps uniformly.
+	 *
+	 * @return the scheduler
+	 */
+	public static CSCFRMStepScheduler uniform() {
+		return new CSCFRMStepScheduler() {
+
+			/** The number of steps. */
+			private volatile int nbSteps;
+
+			@Override
+			public void update(CSCFRMStepsStats stats) {
+				nbSteps = stats.getNbSteps();
+			}
+
+			@Override
+			public int nextStep(int thread, Random rand) {
+				return rand.nextInt(nbSteps);
+			}
+
+			@Override
+			public String toString() {
+				return "uniform";
+			}
+		};
+	}
+
+	/**
+	 * Creates a scheduler choosing steps proportionally to how often they are
+	 * reached from terminal nodes. Steps that are never reached, like a first
+	 * step, need a minimum share of the iterations.
+	 *
+	 * @param minShare
+	 *            the share of the iterations spread uniformly over the
+	 *            steps, in [0, 1]
+	 * @return the scheduler
+	 */
+	public static CSCFRMStepScheduler reachProportional(double minShare) {
+		return new WeightedScheduler(minShare) {
+
+			@Override
+			protected boolean weights(CSCFRMStepsStats stats, double[] dest) {
+				boolean reached = false;
+				for (int step = 0; step < dest.length; step++)
+					reached |= (dest[step] = stats.getReaches(step)) > 0;
+				return reached;
+			}
+
+			@Override
+			public String toString() {
+				return "reach proportional, min share " + minShare;
+			}
+		};
+	}
+
+	/**
+	 * Creates a scheduler choosing steps proportionally to the change of
+	 * their utility between two updates, so that converged steps get fewer
+	 * iterations. Uniform until the second update.
+	 *
+	 * @param minShare
+	 *            the share of the iterations spread uniformly over the
+	 *            steps, in [0, 1]
+	 * @return the scheduler
+	 */
+	public static CSCFRMStepScheduler utilityChange(double minShare) {
+		return new WeightedScheduler(minShare) {
+
+			@Override
+			protected boolean weights(CSCFRMStepsStats stats, double[] dest) {
+				boolean changed = false;
+				double change;
+				for (int step = 0; step < dest.length; step++) {
+					change = stats.getUtilChange(step);
+					if (Double.isInfinite(change) || Double.isNaN(change))
+						return false;
+					changed |= (dest[step] = change) > 0;
+				}
+				return changed;
+			}
+
+			@Override
+			public String toString() {
+				return "utility change, min share " + minShare;
+			}
+		};
+	}
+
+	/**
+	 * Creates a scheduler cycling over the steps, each step being trained as
+	 * many times per cycle as its priority. Each thread has its own cycle.
+	 *
+	 * @param priorities
+	 *            the priority of each step, >= 0 and not all zero
+	 * @return the scheduler
+	 */
+	public static CSCFRMStepScheduler roundRobin(final int... priorities) {
+		checkNotNull(priorities, "The priorities are null");
+		int length = 0;
+		for (int priority : priorities) {
+			checkArgument(priority >= 0, "The priorities must be >= 0");
+			length += priority;
+		}
+		checkArgument(length > 0, "At least one priority must be > 0");
+		final int[] cycle = new int[length];
+		// Interleave the steps so that high priorities don't run in a row
+		final int[] given = new int[priorities.length];
+		for (int i = 0, step = 0; i < length; step = (step + 1)
+				% priorities.length)
+			if (given[step] < priorities[step]) {
+				given[step]++;
+				cycle[i++] = step;
+			}
+		return new CSCFRMStepScheduler() {
+
+			/** Each thread's position in the cycle. */
+			private volatile int[] positions = new int[0];
+
+			@Override
+			public void update(CSCFRMStepsStats stats) {
+				checkState(stats.getNbSteps() == priorities.length,
+						"Expected %s priorities, one per step",
+						stats.getNbSteps());
+				if (positions.length != stats.getNbThreads())
+					positions = new int[stats.getNbThreads()];
+			}
+
+			@Override
+			public int nextStep(int thread, Random rand) {
+				final int[] positions = this.positions;
+				final int pos = positions[thread];
+				positions[thread] = pos + 1 == cycle.length ? 0 : pos + 1;
+				return cycle[pos];
+			}
+
+			@Override
+			public String toString() {
+				return "round robin, priorities " + Arrays.toString(priorities);
+			}
+		};
+	}
+
+	/**
+	 * Scheduler drawing steps from weights computed on each update, mixed
+	 * with a uniform share.
+	 */
+	private static abstract class WeightedScheduler implements
+			CSCFRMStepScheduler {
+
+		/** The uniform share. */
+		protected final double minShare;
+
+		/** The steps cumulative probabilities, the last one being 1. */
+		private volatile double[] cumulative;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param minShare
+		 *            the uniform share
+		 */
+		protected WeightedScheduler(double minShare) {
+			checkArgument(minShare >= 0 && minShare <= 1,
+					"The minimum share must be in [0, 1]");
+			this.minShare = minShare;
+		}
+
+		/**
+		 * Computes the steps weights.
+		 *
+		 * @param stats
+		 *            the steps statistics
+		 * @param dest
+		 *            the destination array, one weight >= 0 per step
+		 * @return false when the weights can't be computed yet, the steps
+		 *         being then chosen uniformly
+		 */
+		protected abstract boolean weights(CSCFRMStepsStats stats,
+				double[] dest);
+
+		@Override
+		public void update(CSCFRMStepsStats stats) {
+			final int nbSteps = stats.getNbSteps();
+			final double[] weights = new double[nbSteps];
+			final boolean weighted = weights(stats, weights);
+			double total = 0;
+			for (int step = 0; step < nbSteps; step++)
+				total += weights[step];
+			final double[] cumulative = new double[nbSteps];
+			double sum = 0;
+			for (int step = 0; step < nbSteps; step++) {
+				sum += weighted ? minShare / nbSteps + (1 - minShare)
+						* weights[step] / total : 1d / nbSteps;
+				cumulative[step] = sum;
+			}
+			cumulative[nbSteps - 1] = 1;
+			this.cumulative = cumulative;
+		}
+
+		@Override
+		public int nextStep(int thread, Random rand) {
+			final double[] cumulative = this.cumulative;
+			final int index = Arrays.binarySearch(cumulative,
+					rand.nextDouble());
+			return index >= 0 ? index : -index - 1;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable statistics of the steps of a {@link CSCFRMCyclicStepsExecutor},
+ * given to its {@link CSCFRMStepScheduler}. Reach counts are read without
+ * synchronization from the engines terminal utility readers, so they are
+ * estimates.
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMStepsStats {
+
+	/** The number of threads. */
+	private final int nbThreads;
+
+	/** The iterations of each step. */
+	private final long[] iterations;
+
+	/** The utility of each step. */
+	private final double[][] utils;
+
+	/** The utility change of each step since the previous statistics. */
+	private final double[] utilChanges;
+
+	/** The number of times each step was reached from a terminal node. */
+	private final long[] reaches;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param nbThreads
+	 *            the number of threads
+	 * @param iterations
+	 *            the iterations of each step
+	 * @param utils
+	 *            the utility of each step
+	 * @param utilChanges
+	 *            the utility change of each step since the previous
+	 *            statistics
+	 * @param reaches
+	 *            the number of times each step was reached from a terminal
+	 *            node
+	 */
+	public CSCFRMStepsStats(int nbThreads, long[] iterations,
+			double[][] utils, double[] utilChanges, long[] reaches) {
+		checkArgument(nbThreads > 0, "The number of threads must be > 0");
+		checkNotNull(iterations, "The iterations array is null");
+		checkNotNull(utils, "The utilities array is null");
+		checkNotNull(utilChanges, "The utility changes array is null");
+		checkNotNull(reaches, "The reaches array is null");
+		checkArgument(utils.length == iterations.length
+				&& utilChanges.length == iterations.length
+				&& reaches.length == iterations.length,
+				"All arrays must have one element per step");
+		this.nbThreads = nbThreads;
+		this.iterations = iterations;
+		this.utils = utils;
+		this.utilChanges = utilChanges;
+		this.reaches = reaches;
+	}
+
+	/**
+	 * Gets the number of threads.
+	 *
+	 * @return the number of threads
+	 */
+	public int getNbThreads() {
+		return nbThreads;
+	}
+
+	/**
+	 * Gets the number of steps.
+	 *
+	 * @return the number of steps
+	 */
+	public int getNbSteps() {
+		return iterations.length;
+	}
+
+	/**
+	 * Gets the number of iterations of a step.
+	 *
+	 * @param step
+	 *            the step
+	 * @return the step's iterations
+	 */
+	public long getIterations(int step) {
+		return iterations[step];
+	}
+
+	/**
+	 * Gets the utility of a step.
+	 *
+	 * @param step
+	 *            the step
+	 * @return a copy of the step's players utility
+	 */
+	public double[] getUtil(int step) {
+		return utils[step].clone();
+	}
+
+	/**
+	 * Gets the maximum change of a step's players utility since the previous
+	 * statistics.
+	 *
+	 * @param step
+	 *            the step
+	 * @return the utility change, infinite for the first statistics
+	 */
+	public double getUtilChange(int step) {
+		return utilChanges[step];
+	}
+
+	/**
+	 * Gets the number of times a step was reached from the terminal nodes of
+	 * the steps, including itself.
+	 *
+	 * @param step
+	 *            the step
+	 * @return the step's reach count
+	 */
+	public long getReaches(int step) {
+		return reaches[step];
+	}
+}
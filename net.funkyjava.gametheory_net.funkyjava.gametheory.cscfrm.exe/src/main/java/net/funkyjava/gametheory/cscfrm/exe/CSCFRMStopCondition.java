@@ -0,0 +1,23 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+/**
+ * Condition ending an executor's <code>runUntil</code>. Multithread executors
+ * check it at a regular interval from the thread that called
+ * <code>runUntil</code>, while their threads keep training. See
+ * {@link CSCFRMStopConditions} for the usual conditions.
+ *
+ * @author Pierre Mardon
+ */
+public interface CSCFRMStopCondition {
+
+	/**
+	 * Checks whether the run must stop.
+	 *
+	 * @param metrics
+	 *            the executor's metrics at the time of the check
+	 * @return true to stop the run
+	 * @throws Exception
+	 *             any exception, stopping the run
+	 */
+	boolean isMet(CSCFRMMetrics metrics) throws Exception;
+}
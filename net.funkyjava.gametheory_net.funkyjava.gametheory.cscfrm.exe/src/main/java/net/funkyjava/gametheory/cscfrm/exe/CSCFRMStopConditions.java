@@ -0,0 +1,117 @@
+package net.funkyjava.gametheory.cscfrm.exe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory of the usual {@link CSCFRMStopCondition}s. Conditions comparing
+ * successive checks are stateful and shouldn't be shared by several runs.
+ *
+ * @author Pierre Mardon
+ */
+public final class CSCFRMStopConditions {
+
+	private CSCFRMStopConditions() {
+	}
+
+	/**
+	 * Creates a condition met once a duration elapsed since its creation.
+	 *
+	 * @param duration
+	 *            the duration
+	 * @param unit
+	 *            the duration's unit
+	 * @return the condition
+	 */
+	public static CSCFRMStopCondition elapsed(final long duration,
+			final TimeUnit unit) {
+		checkArgument(duration >= 0, "The duration must be >= 0");
+		checkNotNull(unit, "The time unit cannot be null");
+		final long end = System.nanoTime() + unit.toNanos(duration);
+		return new CSCFRMStopCondition() {
+
+			@Override
+			public boolean isMet(CSCFRMMetrics metrics) {
+				return metrics.getNanoTime() - end >= 0;
+			}
+
+			@Override
+			public String toString() {
+				return "elapsed " + unit.toMillis(duration) + " ms";
+			}
+		};
+	}
+
+	/**
+	 * Creates a condition met when no player's utility of a game moved by more
+	 * than a tolerance since the previous check. Never met on the first check.
+	 *
+	 * @param game
+	 *            the game's index, see {@link CSCFRMMetrics#getUtil(int)}
+	 * @param tolerance
+	 *            the tolerance
+	 * @return the condition
+	 */
+	public static CSCFRMStopCondition utilityStable(final int game,
+			final double tolerance) {
+		checkArgument(game >= 0, "The game index must be >= 0");
+		checkArgument(tolerance >= 0, "The tolerance must be >= 0");
+		return new CSCFRMStopCondition() {
+
+			/** The utility at the previous check. */
+			private double[] previous;
+
+			@Override
+			public boolean isMet(CSCFRMMetrics metrics) {
+				final double[] util = metrics.getUtil(game);
+				final double[] previous = this.previous;
+				this.previous = util;
+				if (previous == null)
+					return false;
+				for (int p = 0; p < util.length; p++)
+					if (Math.abs(util[p] - previous[p]) > tolerance)
+						return false;
+				return true;
+			}
+
+			@Override
+			public String toString() {
+				return "game " + game + " utility stable within " + tolerance;
+			}
+		};
+	}
+
+	/**
+	 * Creates a condition met when any of the given conditions is met. All
+	 * conditions are checked each time, so that stateful ones stay up to
+	 * date.
+	 *
+	 * @param conditions
+	 *            the conditions
+	 * @return the condition
+	 */
+	public static CSCFRMStopCondition anyOf(
+			final CSCFRMStopCondition... conditions) {
+		checkArgument(conditions.length > 0, "No condition provided");
+		for (CSCFRMStopCondition condition : conditions)
+			checkNotNull(condition, "A condition is null");
+		return new CSCFRMStopCondition() {
+
+			@Override
+			public boolean isMet(CSCFRMMetrics metrics) throws Exception {
+				boolean met = false;
+				for (CSCFRMStopCondition condition : conditions)
+					met |= condition.isMet(metrics);
+				return met;
+			}
+
+			@Override
+			public String toString() {
+				return "any of " + Arrays.toString(conditions);
+			}
+		};
+	}
+}
@@ -8,7 +8,9 @@ import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMTerminalUtilReader;
  * A MonothreadCyclicUtilReader is an {@link CSCFRMTerminalUtilReader} that
  * handles position changes between the current game and that targets other
  * games utilities, mapping terminal states ids to the utility managers indexes.
- * It's intended to be provided to one engine only.
+ * It's intended to be provided to one engine only. It counts the reads of each
+ * target game. Utilities are read from the managers snapshots, see
+ * {@link CSCFRMMultithreadUtilityManager#readSnapshot(double[])}.
  * 
  * @author Pierre Mardon
  */
@@ -23,6 +25,9 @@ public class MonothreadCyclicUtilReader implements CSCFRMTerminalUtilReader {
 	/** The position mapping array. */
 	private final int[][] posMapping;
 
+	/** The number of reads of each target utility manager. */
+	private final long[] reaches;
+
 	/** A temp array. */
 	private final double[] tmp;
 
@@ -48,6 +53,7 @@ public class MonothreadCyclicUtilReader implements CSCFRMTerminalUtilReader {
 		checkArgument(nbPlayers > 1, "The number of players must be > 0");
 		this.nbPlayers = nbPlayers;
 		this.utils = utils;
+		reaches = new long[utils.length];
 		tmp = new double[nbPlayers];
 		this.posMapping = posMapping;
 	}
@@ -60,8 +66,21 @@ public class MonothreadCyclicUtilReader implements CSCFRMTerminalUtilReader {
 	 */
 	@Override
 	public void read(int id, double[] dest) throws InterruptedException {
-		utils[id].read(tmp);
+		utils[id].readSnapshot(tmp);
+		reaches[id]++;
 		for (fromPos = 0; fromPos < nbPlayers; fromPos++)
 			dest[fromPos] = tmp[posMapping[id][fromPos]];
 	}
+
+	/**
+	 * Gets the number of reads of a target game's utility. Another thread
+	 * than the engine's only gets an estimate.
+	 * 
+	 * @param id
+	 *            the target terminal state's id
+	 * @return the number of reads
+	 */
+	public long getReaches(int id) {
+		return reaches[id];
+	}
 }
@@ -197,6 +197,35 @@ public class WorkStation<PNode extends PlayerNode> {
 				builder, provider, loader, loaderConfig);
 	}
 
+	/**
+	 * Builds a cyclic steps executor whose engines use the algorithm settings
+	 * of a base configuration.
+	 * 
+	 * @param <GameClass>
+	 *            the step game type
+	 * @param builder
+	 *            the builder
+	 * @param loaderConfig
+	 *            the loader's configuration
+	 * @param nbThreads
+	 *            the number of threads
+	 * @param baseConfig
+	 *            the base configuration
+	 * @return the cyclic steps executor
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public <GameClass extends CSCFRMGame<PNode>> CSCFRMCyclicStepsExecutor<PNode, GameClass> buildCyclicStepsExecutor(
+			CSCFRMCyclicStepsGameBuilder<PNode, GameClass> builder,
+			CSCFRMExecutionLoaderConfig loaderConfig, int nbThreads,
+			CSCFRMConfig baseConfig) throws IOException {
+		checkArgument(nbThreads > 0, "The number of threads must be > 0");
+		checkNotNull(builder, "The builder cannot be null");
+		checkNotNull(loaderConfig, "The loader's configuration cannot be null");
+		return new CSCFRMCyclicStepsExecutor<PNode, GameClass>(nbThreads,
+				builder, provider, loader, loaderConfig, baseConfig);
+	}
+
 	/**
 	 * Builds a cyclic steps executor with
 	 * <code>Runtime.getRuntime().availableProcessors()</code> threads.
@@ -8,7 +8,9 @@ import java.util.Iterator;
 import java.util.Random;
 
 import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMFullGame;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.ChanceNode;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
@@ -27,7 +29,7 @@ import net.funkyjava.gametheory.cscfrm.util.game.helpers.ArraysIterator;
  */
 @Slf4j
 public class KuhnPoker<PNode extends PlayerNode> implements
-		CSCFRMFullGame<PNode> {
+		CSCFRMFullGame<PNode>, CSCFRMChanceIndexedGame, CSCFRMSeedableGame {
 
 	/**
 	 * The players nodes. The first index is the player's chance and the second
@@ -265,6 +267,48 @@ public class KuhnPoker<PNode extends PlayerNode> implements
 			p2Card = 2;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#getNbDeals
+	 * ()
+	 */
+	@Override
+	public int getNbDeals() {
+		// Three cards for the first player, two for the second
+		return 6;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#
+	 * getDealProbability(int)
+	 */
+	@Override
+	public double getDealProbability(int deal) {
+		return 1d / 6;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#
+	 * onIterationStart(int)
+	 */
+	@Override
+	public void onIterationStart(int deal) {
+		checkArgument(deal >= 0 && deal < 6, "Invalid deal %s", deal);
+		seq = Sequence.DISTRIBUTED_P2;
+		p1Card = deal / 2;
+		p2Card = deal % 2;
+		if (p1Card == 0)
+			p2Card++;
+		else if (p1Card == 1 && p2Card == 1)
+			p2Card = 2;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -593,4 +637,16 @@ public class KuhnPoker<PNode extends PlayerNode> implements
 	public void setDebug(boolean debug) {
 		this.debug = debug;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame#setRandom
+	 * (java.util.Random)
+	 */
+	@Override
+	public void setRandom(Random rand) {
+		this.rand = checkNotNull(rand, "The random cannot be null");
+	}
 }
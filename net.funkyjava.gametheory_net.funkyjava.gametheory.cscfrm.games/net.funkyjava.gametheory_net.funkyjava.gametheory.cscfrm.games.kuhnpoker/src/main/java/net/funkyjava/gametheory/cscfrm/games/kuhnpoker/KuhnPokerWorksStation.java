@@ -75,10 +75,28 @@ public class KuhnPokerWorksStation {
 	 */
 	public CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> buildMultithreadExecutor(
 			int nbThreads) throws IOException {
+		return buildMultithreadExecutor(nbThreads, new CSCFRMConfig());
+	}
+
+	/**
+	 * Builds a multithread executor whose engines use the algorithm settings of
+	 * a base configuration.
+	 * 
+	 * @param nbThreads
+	 *            the nb threads
+	 * @param baseConfig
+	 *            the base configuration
+	 * @return the multithread executor
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> buildMultithreadExecutor(
+			int nbThreads, CSCFRMConfig baseConfig) throws IOException {
 		return ws.buildMultithreadExecutor(
 				new KuhnPokerBuilder<DefaultPlayerNode>(), new CSCFRMConfig(
-						true, true, new CSCFRMMultithreadUtilityManager(2),
-						null), loaderConfig, nbThreads);
+						baseConfig, true, true,
+						new CSCFRMMultithreadUtilityManager(2), null),
+				loaderConfig, nbThreads);
 	}
 
 	/**
@@ -123,12 +141,32 @@ public class KuhnPokerWorksStation {
 	 */
 	public CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> buildSngExecutor(
 			int nbBlindsStack, int nbThreads) throws IOException {
+		return buildSngExecutor(nbBlindsStack, nbThreads, new CSCFRMConfig());
+	}
+
+	/**
+	 * Builds a sng executor whose engines use the algorithm settings of a base
+	 * configuration.
+	 * 
+	 * @param nbBlindsStack
+	 *            the nb blinds stack
+	 * @param nbThreads
+	 *            the nb threads
+	 * @param baseConfig
+	 *            the base configuration
+	 * @return the sng executor
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> buildSngExecutor(
+			int nbBlindsStack, int nbThreads, CSCFRMConfig baseConfig)
+			throws IOException {
 		if (nbBlindsStack < 2)
 			throw new IllegalArgumentException(
 					"Players must have at least 2 blinds each to start a SNG");
 		return ws.buildCyclicStepsExecutor(
 				new SNGKuhnPokerBuilder<DefaultPlayerNode>(nbBlindsStack),
-				loaderConfig);
+				loaderConfig, nbThreads, baseConfig);
 	}
 
 	/**
@@ -0,0 +1,83 @@
+package net.funkyjava.gametheory.cscfrm.games.kuhnpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMonothreadExecutor;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStopConditions;
+import net.funkyjava.gametheory.cscfrm.impl.exe.ExploitabilityStopCondition;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMBestResponse;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMExploitability;
+
+import org.junit.Test;
+
+/**
+ * Best response test class for {@link KuhnPoker}.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@Slf4j
+public class KuhnPokerBestResponseTest {
+
+	/**
+	 * The exploitability must fall while training, and the profile utility
+	 * must reach the game value -1/18.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExploitability() throws Exception {
+		final DefaultNodesProvider provider = new DefaultNodesProvider();
+		final KuhnPoker<DefaultPlayerNode> game = new KuhnPoker<>(provider);
+		final CSCFRMBestResponse br = new CSCFRMBestResponse(
+				new KuhnPoker<>(provider, game), null, new ForkJoinPool(2));
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>>(
+				game, null, new CSCFRMConfig(), null);
+		final CSCFRMExploitability uniform = br.compute();
+		log.info("Uniform strategies : {}", uniform);
+		assertTrue("Uniform strategies must be exploitable",
+				uniform.getExploitability() > 0.1);
+		exe.run(100000);
+		final CSCFRMExploitability trained = br.compute();
+		log.info("Trained strategies : {}", trained);
+		for (int p = 0; p < 2; p++)
+			assertTrue("A best response can't lose utility",
+					trained.getGain(p) > -1e-9);
+		assertTrue("Training didn't reduce the exploitability",
+				trained.getExploitability() < 0.01);
+		assertEquals("Unexpected game value", -1d / 18,
+				trained.getProfileUtil(0), 0.01);
+		assertEquals("The game must be zero-sum", 0, trained.getProfileUtil(0)
+				+ trained.getProfileUtil(1), 1e-9);
+	}
+
+	/**
+	 * Training until a target exploitability must stop once it's reached.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExploitabilityStopCondition() throws Exception {
+		final DefaultNodesProvider provider = new DefaultNodesProvider();
+		final KuhnPoker<DefaultPlayerNode> game = new KuhnPoker<>(provider);
+		final ExploitabilityStopCondition condition = new ExploitabilityStopCondition(
+				new CSCFRMBestResponse(new KuhnPoker<>(provider, game), null,
+						new ForkJoinPool(2)), 0.01);
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>>(
+				game, null, new CSCFRMConfig(), null);
+		final long iter = exe.runUntil(CSCFRMStopConditions.anyOf(condition,
+				CSCFRMStopConditions.elapsed(1, TimeUnit.MINUTES)), 50,
+				TimeUnit.MILLISECONDS);
+		log.info("Stopped after {} iterations : {}", iter, condition.getLast());
+		assertTrue("Target exploitability not reached", condition.getLast()
+				.getExploitability() < 0.01);
+	}
+}
@@ -0,0 +1,188 @@
+package net.funkyjava.gametheory.cscfrm.games.kuhnpoker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetrics;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMultiThreadExecutor;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.FlatNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoaderProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Training metrics test class for {@link KuhnPoker}.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@Slf4j
+public class KuhnPokerMetricsTest {
+
+	/**
+	 * The temporary folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Polls the metrics of a multithread executor directly and through the
+	 * platform MBean server.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultithreadMetrics() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setLockWaitTiming(true);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(2, config)) {
+			final ObjectName name = exe.getMetrics().registerMBean(
+					"KuhnPokerMetricsTest");
+			exe.run(10000);
+			final CSCFRMMetrics first = exe.getMetrics().snapshot(true);
+			assertTrue("Plain snapshots mustn't walk the nodes",
+					Double.isNaN(exe.getMetrics().snapshot().getAvgRegret()));
+			exe.run(100000);
+			exe.save();
+			final CSCFRMMetrics second = exe.getMetrics().snapshot(true);
+			log.info(
+					"{} iter/s, {} iter/s since first snapshot, lock wait ratio {}, average regret {} then {}",
+					second.getIterationsPerSecond(),
+					second.getIterationsPerSecondSince(first),
+					second.getLockWaitRatio(), first.getAvgRegret(),
+					second.getAvgRegret());
+			assertEquals(110000, second.getIterations());
+			assertEquals(2, second.getNbThreads());
+			for (int t = 0; t < 2; t++)
+				assertTrue(second.getIterationsPerSecond(t) > 0);
+			assertTrue(second.getLockWaitRatio() >= 0
+					&& second.getLockWaitRatio() <= 1);
+			assertTrue("The average regret must fall while training",
+					second.getAvgRegret() < first.getAvgRegret());
+			assertEquals(1, second.getNbCheckpoints());
+			assertEquals(exe.getEngine().getUtilManager().getUtil()[0],
+					second.getUtil(0)[0], 0);
+			assertEquals(110000L, ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(name, "Iterations"));
+			exe.close();
+			assertTrue("Closing must unregister the MBean", !ManagementFactory
+					.getPlatformMBeanServer().isRegistered(name));
+		}
+	}
+
+	/**
+	 * Checkpoints in background while training, then resumes from the last
+	 * checkpoint.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBackgroundCheckpoints() throws Exception {
+		final KuhnPokerWorksStation ws = new KuhnPokerWorksStation(folder
+				.getRoot().toPath());
+		final long nbIter;
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = ws
+				.buildMultithreadExecutor(2)) {
+			exe.getCheckpointer().schedule(0, 100, TimeUnit.MILLISECONDS);
+			exe.runFor(500, TimeUnit.MILLISECONDS);
+			exe.getCheckpointer().cancel();
+			final CSCFRMMetrics metrics = exe.getMetrics().snapshot();
+			log.info("{} checkpoints while training, last one took {} ns",
+					metrics.getNbCheckpoints(),
+					metrics.getLastCheckpointNanos());
+			assertTrue("No checkpoint while training",
+					metrics.getNbCheckpoints() > 0);
+			exe.getCheckpointer().checkpoint();
+			nbIter = exe.getEngine().getUtilManager().getIter();
+		}
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = ws
+				.buildMultithreadExecutor(2)) {
+			assertEquals("The last checkpoint wasn't loaded", nbIter, exe
+					.getEngine().getUtilManager().getIter());
+		}
+	}
+
+	/**
+	 * Checkpoints a game backed by a flat store : its copy must have its own
+	 * store, and the saved nodes must be the game's ones
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFlatStoreCheckpoints() throws Exception {
+		final FileChannelLoaderProvider<DefaultPlayerNode> loaderProvider = new FileChannelLoaderProvider<>(
+				folder.getRoot().toPath());
+		final FlatNodesProvider provider = new FlatNodesProvider(1);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = flatStoreExecutor(
+				provider, loaderProvider, new CSCFRMConfig())) {
+			final int size = provider.getStore().getSize();
+			exe.getCheckpointer();
+			assertEquals("The copy was built in the game's store", size,
+					provider.getStore().getSize());
+			exe.run(10000);
+			exe.getCheckpointer().checkpoint();
+			try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> loaded = flatStoreExecutor(
+					new FlatNodesProvider(1), loaderProvider,
+					new CSCFRMConfig())) {
+				final Iterator<DefaultPlayerNode> it = exe.getGame()
+						.getPlayerNodesIterator();
+				final Iterator<DefaultPlayerNode> loadedIt = loaded.getGame()
+						.getPlayerNodesIterator();
+				while (it.hasNext()) {
+					final DefaultPlayerNode node = it.next();
+					final DefaultPlayerNode loadedNode = loadedIt.next();
+					assertArrayEquals("Regrets weren't checkpointed",
+							node.getRegret(), loadedNode.getRegret(), 0);
+					assertArrayEquals("Strategy sums weren't checkpointed",
+							node.getStrategySum(),
+							loadedNode.getStrategySum(), 0);
+					assertEquals("Visits weren't checkpointed",
+							node.getVisitsCount(), loadedNode.getVisitsCount());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checkpoints would miss the engines buffered deltas
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBufferedDeltasCheckpointsRefused() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setDeltasMergeInterval(16);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = flatStoreExecutor(
+				new FlatNodesProvider(1), new FileChannelLoaderProvider<DefaultPlayerNode>(
+						folder.getRoot().toPath()), config)) {
+			exe.getCheckpointer();
+		}
+	}
+
+	private static CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> flatStoreExecutor(
+			FlatNodesProvider provider,
+			FileChannelLoaderProvider<DefaultPlayerNode> loaderProvider,
+			CSCFRMConfig baseConfig) throws IOException {
+		return new CSCFRMMultiThreadExecutor<>(2,
+				new KuhnPokerBuilder<DefaultPlayerNode>(), provider,
+				loaderProvider, new CSCFRMConfig(baseConfig, true, true,
+						new CSCFRMMultithreadUtilityManager(2), null),
+				new CSCFRMExecutionLoaderConfig(true));
+	}
+}
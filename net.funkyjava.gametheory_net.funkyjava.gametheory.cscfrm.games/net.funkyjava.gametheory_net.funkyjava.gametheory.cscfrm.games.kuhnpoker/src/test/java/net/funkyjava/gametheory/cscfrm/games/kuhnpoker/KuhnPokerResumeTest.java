@@ -0,0 +1,76 @@
+package net.funkyjava.gametheory.cscfrm.games.kuhnpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMDiscounting;
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMonothreadExecutor;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoaderProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Saving and resuming test class for {@link KuhnPoker} executions.
+ *
+ * @author Pierre Mardon
+ *
+ */
+public class KuhnPokerResumeTest {
+
+	private static final int nbIter = 1000;
+
+	/**
+	 * The temporary folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A DCFR execution resumed with a configuration that has no discounting
+	 * must go on discounting its iterations
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testResumeDcfr() throws Exception {
+		final FileChannelLoaderProvider<DefaultPlayerNode> loaderProvider = new FileChannelLoaderProvider<>(
+				folder.getRoot().toPath());
+		final CSCFRMExecutionLoaderConfig loaderConfig = new CSCFRMExecutionLoaderConfig(
+				true);
+		final CSCFRMConfig dcfrConfig = new CSCFRMConfig(false, true, null,
+				null);
+		dcfrConfig.setDiscounting(CSCFRMDiscounting.dcfr());
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new CSCFRMMonothreadExecutor<>(
+				new KuhnPoker<DefaultPlayerNode>(new DefaultNodesProvider()),
+				loaderProvider, dcfrConfig, loaderConfig);
+		exe.run(nbIter);
+		exe.save();
+
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> resumed = new CSCFRMMonothreadExecutor<>(
+				new KuhnPoker<DefaultPlayerNode>(new DefaultNodesProvider()),
+				loaderProvider, new CSCFRMConfig(false, true, null, null),
+				loaderConfig);
+		assertEquals("The saved schedule wasn't adopted",
+				CSCFRMDiscounting.dcfr(), resumed.getEngine()
+						.getDiscounting());
+		resumed.run(nbIter);
+		// Loading discounted all nodes up to the first resumed iteration, and
+		// each node is visited again near the end of the run
+		final Iterator<DefaultPlayerNode> it = resumed.getGame()
+				.getPlayerNodesIterator();
+		while (it.hasNext())
+			assertTrue("Resumed iterations weren't discounted",
+					it.next().discountIter > 2 * nbIter - 100);
+		assertEquals("The saved state lost the schedule",
+				CSCFRMDiscounting.dcfr(), resumed.getEngine().getState()
+						.getDiscounting());
+	}
+}
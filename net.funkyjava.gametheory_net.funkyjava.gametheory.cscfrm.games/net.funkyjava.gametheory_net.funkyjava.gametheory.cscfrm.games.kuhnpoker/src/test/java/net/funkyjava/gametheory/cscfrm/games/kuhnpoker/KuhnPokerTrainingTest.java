@@ -0,0 +1,721 @@
+package net.funkyjava.gametheory.cscfrm.games.kuhnpoker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMDiscounting;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMEngineType;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMMultithreadUtilityManager;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMCyclicStepsExecutor;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMonothreadExecutor;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMultiThreadExecutor;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStepScheduler;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStepSchedulers;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStepsStats;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStopConditions;
+import net.funkyjava.gametheory.cscfrm.impl.exe.SpinLockWorkStation;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.PaddedSpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.SpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.FlatNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.SpinLockNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoader;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMBestResponse;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMExploitability;
+import net.funkyjava.gametheory.cscfrm.util.game.validation.Valid;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Training test class for {@link KuhnPoker}. Each engine configuration is
+ * expected to converge to the game value -1/18. Checks specific to a feature
+ * rather than to training live next to its code, see CSCFRMDiscountingTest
+ * and CSCFRMMultithreadUtilityManagerTest.
+ *
+ * @author Pierre Mardon
+ *
+ */
+@Slf4j
+public class KuhnPokerTrainingTest {
+
+	private static final int nbIter = 100000;
+	private static final int nbVrIter = 2000;
+	private static final int nbVrSeeds = 10;
+
+	private static final double gameValue = -1d / 18;
+
+	/**
+	 * The exact utility of the average strategies after {@link #nbIter}
+	 * iterations stays within about 0.002 of the game value, outcome sampling
+	 * being the farthest.
+	 */
+	private static final double tolerance = 0.005;
+
+	/**
+	 * Two SNG trainings are compared by the average utility of their sampled
+	 * iterations, that deviates by up to about 0.006 after {@link #nbIter}
+	 * iterations for each of them.
+	 */
+	private static final double sngTolerance = 0.02;
+
+	/** The exploitability of the average strategies after 100k iterations. */
+	private static final double maxExploitability = 0.01;
+
+	/**
+	 * The temporary folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** The first step's first player utility of the 3 blinds SNG. */
+	private static double sngReference;
+
+	/**
+	 * Trains the reference SNG once for all tests.
+	 *
+	 * @throws Exception
+	 */
+	@BeforeClass
+	public static void trainSngReference() throws Exception {
+		sngReference = trainSng(new CSCFRMConfig());
+		log.info("Reference SNG Kuhn poker utility {}", sngReference);
+	}
+
+	/**
+	 * Gets a configuration for a monothread engine.
+	 *
+	 * @return the configuration
+	 */
+	static CSCFRMConfig monothreadConfig() {
+		return new CSCFRMConfig(false, true, null, null);
+	}
+
+	/**
+	 * Trains a classic Kuhn poker game on one thread and checks it converged.
+	 *
+	 * @param <PNode>
+	 *            the player nodes type
+	 * @param name
+	 *            the name of the trained configuration
+	 * @param provider
+	 *            the nodes provider
+	 * @param config
+	 *            the engine's configuration
+	 * @return the trained game
+	 * @throws Exception
+	 */
+	static <PNode extends PlayerNode> KuhnPoker<PNode> train(String name,
+			NodesProvider<PNode> provider, CSCFRMConfig config)
+			throws Exception {
+		final KuhnPoker<PNode> game = new KuhnPoker<>(provider);
+		final CSCFRMMonothreadExecutor<PNode, KuhnPoker<PNode>> exe = new CSCFRMMonothreadExecutor<PNode, KuhnPoker<PNode>>(
+				game, null, config, null);
+		exe.run(nbIter);
+		assertConverged(name, provider, game);
+		return game;
+	}
+
+	/**
+	 * Checks that the average strategies of a trained classic Kuhn poker game
+	 * reach the game value. Their exact utility is computed by a best
+	 * response, so that unlike the average utility of the sampled iterations,
+	 * it doesn't depend on the deals sampled by the training.
+	 *
+	 * @param <PNode>
+	 *            the player nodes type
+	 * @param name
+	 *            the name of the trained configuration
+	 * @param provider
+	 *            a nodes provider for the game's copy
+	 * @param game
+	 *            the trained game
+	 * @return the exploitability of the average strategies
+	 * @throws InterruptedException
+	 */
+	static <PNode extends PlayerNode> CSCFRMExploitability assertConverged(
+			String name, NodesProvider<PNode> provider, KuhnPoker<PNode> game)
+			throws InterruptedException {
+		final CSCFRMExploitability exploitability = new CSCFRMBestResponse(
+				new KuhnPoker<>(provider, game), null, new ForkJoinPool(1))
+				.compute();
+		log.info("{} Kuhn poker average strategies utility {}, {}", name,
+				exploitability.getProfileUtil(0), exploitability);
+		assertEquals(name + " training didn't converge", gameValue,
+				exploitability.getProfileUtil(0), tolerance);
+		return exploitability;
+	}
+
+	/**
+	 * Checks that a multithread execution ran all its iterations once and
+	 * converged.
+	 *
+	 * @param name
+	 *            the name of the trained configuration
+	 * @param exe
+	 *            the executor, that ran {@link #nbIter} iterations
+	 * @return the exploitability of the average strategies
+	 * @throws InterruptedException
+	 */
+	static CSCFRMExploitability assertConverged(
+			String name,
+			CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe)
+			throws InterruptedException {
+		assertEquals(name + " iterations were lost or repeated", nbIter, exe
+				.getEngine().getUtilManager().getIter());
+		return assertConverged(name, new DefaultNodesProvider(),
+				exe.getGame());
+	}
+
+	/**
+	 * Train with a flat nodes store
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFlatNodesProvider() throws Exception {
+		assertTrue("The flat store game is invalid", Valid.isValid(
+				new KuhnPoker<DefaultPlayerNode>(new FlatNodesProvider(1)),
+				nbIter));
+		final FlatNodesProvider provider = new FlatNodesProvider(1);
+		train("Flat store", provider, monothreadConfig());
+		assertEquals("Unexpected flat store size", 2 * (3 * (2 + 2 + 2 + 3 + 2)),
+				provider.getStore().getSize());
+	}
+
+	/**
+	 * Train with a cache line padded flat nodes store
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPaddedFlatNodesProvider() throws Exception {
+		final SpinLockNodesProvider provider = new SpinLockNodesProvider(
+				new FlatNodesStore(1, false, true));
+		final KuhnPoker<SpinLockPlayerNode> game = train("Padded flat store",
+				provider, monothreadConfig());
+		assertTrue("Padded stores need padded nodes", game
+				.getPlayerNodesIterator().next() instanceof PaddedSpinLockPlayerNode);
+		// Each node's segment fits in a line, followed by a padding line
+		assertEquals("Unexpected padded flat store size", 3 * 5 * 16,
+				provider.getStore().getSize());
+	}
+
+	/**
+	 * Train with several threads locking spin lock nodes, built by a
+	 * {@link SpinLockWorkStation}
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSpinLockWorkStation() throws Exception {
+		try (final CSCFRMMultiThreadExecutor<SpinLockPlayerNode, KuhnPoker<SpinLockPlayerNode>> exe = new SpinLockWorkStation(
+				"KuhnPokerSpinLock").buildMultithreadExecutor(
+				new KuhnPokerBuilder<SpinLockPlayerNode>(), new CSCFRMConfig(
+						true, true, new CSCFRMMultithreadUtilityManager(2),
+						null), new CSCFRMExecutionLoaderConfig(true), 2)) {
+			exe.run(nbIter);
+			assertConverged("Spin lock", new SpinLockNodesProvider(),
+					exe.getGame());
+		}
+	}
+
+	/**
+	 * Train with a single precision flat nodes store, then save and load it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFloatPrecisionFlatNodesProvider() throws Exception {
+		final KuhnPoker<DefaultPlayerNode> game = train("Single precision",
+				new FlatNodesProvider(1, true), monothreadConfig());
+		// Single precision files round-trip single precision stores exactly
+		final KuhnPoker<DefaultPlayerNode> loaded = new KuhnPoker<>(
+				new FlatNodesProvider(1, true));
+		try (final FileChannelLoader<DefaultPlayerNode> loader = new FileChannelLoader<DefaultPlayerNode>(
+				folder.getRoot().toPath().resolve("float"),
+				new CSCFRMExecutionLoaderConfig(false, true))) {
+			loader.save(game.getPlayerNodesIterator(), new CSCFRMState(nbIter,
+					new double[] { gameValue, -gameValue }));
+			loader.loadPlayerNodes(loaded.getPlayerNodesIterator());
+		}
+		final Iterator<DefaultPlayerNode> it = game.getPlayerNodesIterator();
+		final Iterator<DefaultPlayerNode> loadedIt = loaded
+				.getPlayerNodesIterator();
+		while (it.hasNext()) {
+			final DefaultPlayerNode node = it.next();
+			final DefaultPlayerNode loadedNode = loadedIt.next();
+			assertArrayEquals("Regrets don't round-trip", node.getRegret(),
+					loadedNode.getRegret(), 0);
+			assertArrayEquals("Strategy sums don't round-trip",
+					node.getStrategySum(), loadedNode.getStrategySum(), 0);
+		}
+		assertFalse("Loaded game has more nodes", loadedIt.hasNext());
+	}
+
+	/**
+	 * Train with CFR+, whose cumulative regrets are never negative
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCfrPlus() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setCfrPlus(true);
+		final Iterator<DefaultPlayerNode> it = train("CFR+",
+				new DefaultNodesProvider(), config).getPlayerNodesIterator();
+		DefaultPlayerNode node;
+		while (it.hasNext()) {
+			node = it.next();
+			for (int a = 0; a < node.nbActions; a++)
+				assertTrue("A CFR+ regret is negative", node.getRegret(a) >= 0);
+		}
+	}
+
+	/**
+	 * Train with Linear CFR
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testLinearCfr() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setDiscounting(CSCFRMDiscounting.linear());
+		train("Linear CFR", new DefaultNodesProvider(), config);
+	}
+
+	/**
+	 * Train with DCFR on a single precision flat store
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testDcfr() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setDiscounting(CSCFRMDiscounting.dcfr());
+		train("DCFR", new FlatNodesProvider(1, true), config);
+	}
+
+	/**
+	 * Train with regret-based pruning
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPruning() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setPruning(-100, 10);
+		train("Pruning", new DefaultNodesProvider(), config);
+	}
+
+	/**
+	 * Between two full traversals, the regrets of the pruned actions must not
+	 * change
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPrunedActionsSkipped() throws Exception {
+		final int interval = 1000;
+		final double threshold = -100;
+		final CSCFRMConfig config = monothreadConfig();
+		config.setPruning(threshold, interval);
+		final KuhnPoker<DefaultPlayerNode> game = new KuhnPoker<>(
+				new DefaultNodesProvider());
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>>(
+				game, null, config, null);
+		// The last iteration is a full traversal
+		exe.run(nbIter);
+		final List<double[]> regrets = new ArrayList<>();
+		long visits = 0;
+		Iterator<DefaultPlayerNode> it = game.getPlayerNodesIterator();
+		while (it.hasNext()) {
+			final DefaultPlayerNode node = it.next();
+			regrets.add(node.getRegret().clone());
+			visits += node.getVisitsCount();
+		}
+		exe.run(interval - 1);
+		it = game.getPlayerNodesIterator();
+		int nbPruned = 0;
+		for (double[] before : regrets) {
+			final DefaultPlayerNode node = it.next();
+			final double[] after = node.getRegret();
+			visits -= node.getVisitsCount();
+			boolean positive = false;
+			for (int a = 0; a < before.length; a++)
+				positive |= before[a] > 0;
+			for (int a = 0; a < before.length; a++) {
+				// Out of the regret matching strategy and under the threshold
+				if (positive && before[a] < threshold) {
+					nbPruned++;
+					assertEquals("A pruned action was walked", before[a],
+							after[a], 0);
+				}
+			}
+		}
+		log.info("{} pruned actions", nbPruned);
+		assertTrue("No action was pruned", nbPruned > 0);
+		assertTrue("No node was visited", visits < 0);
+	}
+
+	/**
+	 * Trains with several threads and gets the exploitability of the average
+	 * strategies.
+	 *
+	 * @param nbThreads
+	 *            the number of threads
+	 * @param config
+	 *            the base configuration of the engines
+	 * @return the exploitability
+	 * @throws Exception
+	 */
+	static double trainExploitability(int nbThreads, CSCFRMConfig config)
+			throws Exception {
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(nbThreads, config)) {
+			exe.run(nbIter);
+			return assertConverged(
+					nbThreads + " threads, hogwild " + config.isHogwild(), exe)
+					.getExploitability();
+		}
+	}
+
+	/**
+	 * Train with several threads in hogwild mode, expecting strategies as
+	 * little exploitable as when locking nodes
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testHogwild() throws Exception {
+		final double locked = trainExploitability(2, new CSCFRMConfig());
+		assertTrue("Locked strategies are too exploitable",
+				locked < maxExploitability);
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setHogwild(true);
+		for (int nbThreads = 1; nbThreads <= 4; nbThreads *= 2)
+			assertTrue("Hogwild strategies are more exploitable than locked ones",
+					trainExploitability(nbThreads, config) < locked
+							+ maxExploitability / 2);
+	}
+
+	/**
+	 * Train with buffered deltas, on one thread with a flat store and on
+	 * several threads
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testDeltasBuffering() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setDeltasMergeInterval(10);
+		train("Buffered deltas", new FlatNodesProvider(), config);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(2, config)) {
+			exe.run(nbIter);
+			assertConverged("Multithread buffered deltas", exe);
+		}
+	}
+
+	/**
+	 * Train CFR+ with small utility batches on several threads
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testUtilityBatches() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setCfrPlus(true);
+		config.setUtilityBatchSize(7);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(3, config)) {
+			exe.run(nbIter);
+			assertConverged("Batched utility", exe);
+		}
+	}
+
+	/**
+	 * Train on several threads claiming iterations by chunks, in two runs that
+	 * aren't multiples of the chunk size
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testIterationsChunks() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setIterationsChunkSize(1000);
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(3, config)) {
+			exe.run(nbIter / 2 + 1);
+			exe.run(nbIter / 2 - 1);
+			assertConverged("Chunked iterations", exe);
+		}
+	}
+
+	/**
+	 * Train until the utility is stable, and check it converged
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRunUntil() throws Exception {
+		try (final CSCFRMMultiThreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildMultithreadExecutor(2)) {
+			final long iter = exe.runUntil(CSCFRMStopConditions.anyOf(
+					CSCFRMStopConditions.utilityStable(0, 0.002),
+					CSCFRMStopConditions.elapsed(1, TimeUnit.MINUTES)), 200,
+					TimeUnit.MILLISECONDS);
+			assertEquals("Unexpected number of iterations", iter, exe
+					.getEngine().getUtilManager().getIter());
+			log.info("Stopped after {} iterations", iter);
+			assertConverged("Training until utility stability",
+					new DefaultNodesProvider(), exe.getGame());
+		}
+	}
+
+	/**
+	 * Train a SNG for a given time
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSngRunFor() throws Exception {
+		try (final CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildSngExecutor(3, 2)) {
+			final long start = System.nanoTime();
+			final long iter = exe.runFor(300, TimeUnit.MILLISECONDS);
+			assertTrue("Run stopped too early",
+					System.nanoTime() - start >= TimeUnit.MILLISECONDS
+							.toNanos(300));
+			assertTrue("No iteration executed", iter > 0);
+			assertEquals("Unexpected number of iterations", iter, exe
+					.getMetrics().snapshot().getIterations());
+		}
+	}
+
+	/**
+	 * Train with the external sampling engine
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExternalSampling() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setEngineType(CSCFRMEngineType.EXTERNAL_SAMPLING);
+		train("External sampling", new FlatNodesProvider(), config);
+	}
+
+	/**
+	 * Train with the outcome sampling engine
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testOutcomeSampling() throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setEngineType(CSCFRMEngineType.OUTCOME_SAMPLING);
+		train("Outcome sampling", new DefaultNodesProvider(), config);
+	}
+
+	/**
+	 * Train the sampling engines with and without variance reduction on the
+	 * same seeds and iterations budget. Outcome sampling, that samples the
+	 * traverser's actions, must get less exploitable average strategies.
+	 * External sampling walks all of them and only gets baselines for chance
+	 * and opponents nodes, so it's only expected not to get much worse.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testVarianceReduction() throws Exception {
+		final double[] plain = new double[2], reduced = new double[2];
+		final CSCFRMEngineType[] types = { CSCFRMEngineType.EXTERNAL_SAMPLING,
+				CSCFRMEngineType.OUTCOME_SAMPLING };
+		for (int i = 0; i < types.length; i++) {
+			for (long seed = 0; seed < nbVrSeeds; seed++) {
+				plain[i] += seededExploitability(types[i], seed, false);
+				reduced[i] += seededExploitability(types[i], seed, true);
+			}
+			log.info("{} Kuhn poker mean exploitability {}, variance reduced {}",
+					types[i], plain[i] / nbVrSeeds, reduced[i] / nbVrSeeds);
+		}
+		assertTrue("Variance reduction made external sampling worse",
+				reduced[0] < 1.5 * plain[0]);
+		assertTrue("Variance reduction didn't help outcome sampling",
+				reduced[1] < plain[1]);
+	}
+
+	/**
+	 * Trains a classic Kuhn poker game for {@link #nbVrIter} seeded iterations
+	 * and gets the exploitability of the average strategies.
+	 *
+	 * @param type
+	 *            the engine type
+	 * @param seed
+	 *            the seed
+	 * @param varianceReduction
+	 *            whether to enable variance reduction
+	 * @return the exploitability
+	 * @throws Exception
+	 */
+	private static double seededExploitability(CSCFRMEngineType type,
+			long seed, boolean varianceReduction) throws Exception {
+		final CSCFRMConfig config = monothreadConfig();
+		config.setEngineType(type);
+		config.setSeed(seed);
+		config.setVarianceReduction(varianceReduction);
+		final CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new CSCFRMMonothreadExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>>(
+				new KuhnPoker<DefaultPlayerNode>(new DefaultNodesProvider()),
+				null, config, null);
+		exe.run(nbVrIter);
+		return new CSCFRMBestResponse(new KuhnPoker<>(
+				new DefaultNodesProvider(), exe.getGame()), null,
+				new ForkJoinPool(1)).compute().getExploitability();
+	}
+
+	/**
+	 * A chance sampling engine has no baselines to reduce its variance
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testVarianceReductionRefused() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setVarianceReduction(true);
+		train("Variance reduced chance sampling", new DefaultNodesProvider(),
+				config);
+	}
+
+	/**
+	 * Train twice with the same seed, expecting the same strategies
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSeed() throws Exception {
+		final List<Iterator<DefaultPlayerNode>> nodes = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			final CSCFRMConfig config = monothreadConfig();
+			config.setEngineType(CSCFRMEngineType.OUTCOME_SAMPLING);
+			config.setSeed(42L);
+			nodes.add(train("Seeded", new DefaultNodesProvider(), config)
+					.getPlayerNodesIterator());
+		}
+		while (nodes.get(0).hasNext())
+			assertArrayEquals("Seeded trainings differ", nodes.get(0).next()
+					.getStrategySum(), nodes.get(1).next().getStrategySum(), 0);
+	}
+
+	/**
+	 * Train with the game tape engine
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGameTape() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setEngineType(CSCFRMEngineType.GAME_TAPE);
+		train("Game tape", new DefaultNodesProvider(), config);
+	}
+
+	/**
+	 * Train a SNG with the outcome sampling engine
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSngOutcomeSampling() throws Exception {
+		final CSCFRMConfig config = new CSCFRMConfig();
+		config.setEngineType(CSCFRMEngineType.OUTCOME_SAMPLING);
+		final double util = trainSng(config);
+		log.info("Outcome sampling SNG Kuhn poker utility {}", util);
+		assertEquals("Outcome sampling SNG training didn't converge",
+				sngReference, util, sngTolerance);
+	}
+
+	/**
+	 * Train a 5 blinds SNG with each step scheduler, the first one being the
+	 * uniform reference
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSngStepSchedulers() throws Exception {
+		double reference = Double.NaN;
+		final CSCFRMStepScheduler[] schedulers = {
+				CSCFRMStepSchedulers.uniform(),
+				CSCFRMStepSchedulers.reachProportional(0.2),
+				CSCFRMStepSchedulers.utilityChange(0.2), null };
+		for (CSCFRMStepScheduler scheduler : schedulers) {
+			try (final CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+					.buildSngExecutor(5, 2)) {
+				final int nbSteps = exe.getStepsStats().getNbSteps();
+				if (scheduler == null) {
+					// The first step twice as often as the others
+					final int[] priorities = new int[nbSteps];
+					Arrays.fill(priorities, 1);
+					priorities[0] = 2;
+					scheduler = CSCFRMStepSchedulers.roundRobin(priorities);
+				}
+				exe.setStepScheduler(scheduler, 1000);
+				exe.run(nbIter);
+				final CSCFRMStepsStats stats = exe.getStepsStats();
+				long reaches = 0;
+				for (int step = 0; step < nbSteps; step++) {
+					log.info(
+							"Step {} : {} iterations, reached {} times, utility change {}",
+							step, stats.getIterations(step),
+							stats.getReaches(step), stats.getUtilChange(step));
+					reaches += stats.getReaches(step);
+				}
+				assertTrue("No step was reached", reaches > 0);
+				final double util = exe.getEngines()[0].getUtilManager()
+						.getUtil()[0];
+				log.info("{} SNG Kuhn poker utility {}", scheduler, util);
+				if (Double.isNaN(reference)) {
+					reference = util;
+					continue;
+				}
+				assertEquals(scheduler + " SNG training didn't converge",
+						reference, util, sngTolerance);
+			}
+		}
+	}
+
+	/**
+	 * Trains a 3 blinds SNG Kuhn poker game and gets the first step's first
+	 * player utility.
+	 *
+	 * @param baseConfig
+	 *            the base configuration of the engines
+	 * @return the first step's first player utility
+	 * @throws Exception
+	 */
+	static double trainSng(CSCFRMConfig baseConfig) throws Exception {
+		try (final CSCFRMCyclicStepsExecutor<DefaultPlayerNode, KuhnPoker<DefaultPlayerNode>> exe = new KuhnPokerWorksStation()
+				.buildSngExecutor(3, 1, baseConfig)) {
+			exe.run(nbIter);
+			return exe.getEngines()[0].getUtilManager().getUtil()[0];
+		}
+	}
+
+}
@@ -5,12 +5,17 @@ package net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.PushFoldEquityMatrix.nbHoleCards;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
 
 import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
 import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMFullGame;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.ChanceNode;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
@@ -22,7 +27,13 @@ import net.funkyjava.gametheory.gameutil.cards.Deck52Cards;
 import net.funkyjava.gametheory.gameutil.cards.IntCardsSpec;
 import net.funkyjava.gametheory.gameutil.poker.he.handeval.Holdem7CardsEvaluator;
 
+import org.apache.commons.math3.random.RandomGeneratorFactory;
+
 /**
+ * Heads-up no-limit hold'em push/fold game. Once an equity matrix is set, the
+ * game is also a {@link CSCFRMChanceIndexedGame} : a deal is a pair of hole
+ * cards classes and an all-in result.
+ * 
  * @author Pierre Mardon
  * @param <PNode>
  *            the player node type
@@ -30,7 +41,7 @@ import net.funkyjava.gametheory.gameutil.poker.he.handeval.Holdem7CardsEvaluator
  */
 @Slf4j
 public class NLHEHUPushFold<PNode extends PlayerNode> implements
-		CSCFRMFullGame<PNode> {
+		CSCFRMFullGame<PNode>, CSCFRMSeedableGame, CSCFRMChanceIndexedGame {
 
 	private static String[] holeCardsStr = new String[169];
 
@@ -66,7 +77,7 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 	private final TerminalNode sbWinsAllIn, bbWinsAllIn, sbFold, bbFold, tie;
 	private final ChanceNode distribSbCards, distribBbCards, distribBoard;
 	private final PNode[] sbChoice, bbChoice;
-	private final Random rand = new Random();
+	private Random rand = new Random();
 
 	private static enum Sequence {
 		ROOT, DISTRIBUTED_P1, DISTRIBUTED_P2, SB_FOLDED, SB_PUSHED, BB_FOLDED, BB_CALLED, ALL_IN_RESULT
@@ -82,6 +93,12 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 	private int p1Cards, p2Cards;
 	private int allInResult;
 
+	/** The deals hole cards and all-in result, null until a matrix is set. */
+	private int[] dealsSbCards, dealsBbCards, dealsResults;
+
+	/** The deals probabilities. */
+	private double[] dealsProbabilities;
+
 	/**
 	 * Constructor for not-sng game
 	 * 
@@ -160,7 +177,10 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 		this.deck = new Deck52Cards(deckOffset);
 		this.uid = source.uid;
 		this.eval = eval;
-
+		this.dealsSbCards = source.dealsSbCards;
+		this.dealsBbCards = source.dealsBbCards;
+		this.dealsResults = source.dealsResults;
+		this.dealsProbabilities = source.dealsProbabilities;
 	}
 
 	/**
@@ -305,24 +325,12 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 
 	private void fillCardsHands() {
 		final IntCardsSpec spec = eval.getCardsSpec();
-		int r1, r2;
 		for (int i = deckOffset; i < deckOffset + 52; i++) {
 			for (int j = deckOffset; j < deckOffset + 52; j++) {
 				if (i == j)
 					continue;
-				r1 = spec.getStandardRank(i);
-				r2 = spec.getStandardRank(j);
-				if (r1 == r2) {
-					cardsHands[i - deckOffset][j - deckOffset] = r1 * 13 + r2;
-					continue;
-				}
-				if (spec.sameColor(i, j)) {
-					cardsHands[i - deckOffset][j - deckOffset] = Math.max(r1,
-							r2) * 13 + Math.min(r1, r2);
-					continue;
-				}
-				cardsHands[i - deckOffset][j - deckOffset] = Math.min(r1, r2)
-						* 13 + Math.max(r1, r2);
+				cardsHands[i - deckOffset][j - deckOffset] = PushFoldEquityMatrix
+						.holeCardsIndex(spec, i, j);
 			}
 		}
 
@@ -690,6 +698,158 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 		return sb.toString();
 	}
 
+	/**
+	 * Gets the small blind player's nodes indexed by hole cards. Empty when the
+	 * game is an immediate all-in.
+	 * 
+	 * @return the small blind player's nodes
+	 */
+	PlayerNode[] getSbChoice() {
+		return sbChoice;
+	}
+
+	/**
+	 * Gets the big blind player's nodes indexed by hole cards. Empty when the
+	 * big blind player has no choice.
+	 * 
+	 * @return the big blind player's nodes
+	 */
+	PlayerNode[] getBbChoice() {
+		return bbChoice;
+	}
+
+	/**
+	 * Gets the terminal node reached when the small blind player folds.
+	 * 
+	 * @return the node, null when the game is an immediate all-in
+	 */
+	TerminalNode getSbFold() {
+		return sbFold;
+	}
+
+	/**
+	 * Gets the terminal node reached when the big blind player folds.
+	 * 
+	 * @return the node, null when the big blind player has no choice
+	 */
+	TerminalNode getBbFold() {
+		return bbFold;
+	}
+
+	/**
+	 * Gets the terminal node reached when the small blind player wins the
+	 * all-in.
+	 * 
+	 * @return the node
+	 */
+	TerminalNode getSbWinsAllIn() {
+		return sbWinsAllIn;
+	}
+
+	/**
+	 * Gets the terminal node reached when the big blind player wins the
+	 * all-in.
+	 * 
+	 * @return the node
+	 */
+	TerminalNode getBbWinsAllIn() {
+		return bbWinsAllIn;
+	}
+
+	/**
+	 * Gets the terminal node reached when the all-in is a tie.
+	 * 
+	 * @return the node
+	 */
+	TerminalNode getTie() {
+		return tie;
+	}
+
+	/**
+	 * Sets the equity matrix from which the deals are built. A deal is a pair
+	 * of hole cards classes and an all-in result, whose probability is the
+	 * number of the pair's combinations times the result's probability. Deals
+	 * of probability zero are skipped.
+	 * 
+	 * @param matrix
+	 *            the equity matrix
+	 */
+	public void setEquityMatrix(PushFoldEquityMatrix matrix) {
+		checkNotNull(matrix, "The equity matrix is null");
+		final int maxNbDeals = 3 * nbHoleCards * nbHoleCards;
+		final int[] sbCards = new int[maxNbDeals];
+		final int[] bbCards = new int[maxNbDeals];
+		final int[] results = new int[maxNbDeals];
+		final double[] probas = new double[maxNbDeals];
+		int nbDeals = 0;
+		double combos, win, tie;
+		for (int i = 0; i < nbHoleCards; i++)
+			for (int j = 0; j < nbHoleCards; j++) {
+				if ((combos = matrix.getCombos(i, j)) == 0)
+					continue;
+				win = matrix.getWin(i, j);
+				tie = matrix.getTie(i, j);
+				for (int result = -1; result <= 1; result++) {
+					final double proba = combos
+							* (result > 0 ? win : result == 0 ? tie : 1 - win
+									- tie);
+					if (proba <= 0)
+						continue;
+					sbCards[nbDeals] = i;
+					bbCards[nbDeals] = j;
+					results[nbDeals] = result;
+					probas[nbDeals++] = proba;
+				}
+			}
+		dealsSbCards = Arrays.copyOf(sbCards, nbDeals);
+		dealsBbCards = Arrays.copyOf(bbCards, nbDeals);
+		dealsResults = Arrays.copyOf(results, nbDeals);
+		dealsProbabilities = Arrays.copyOf(probas, nbDeals);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#getNbDeals
+	 * ()
+	 */
+	@Override
+	public int getNbDeals() {
+		checkState(dealsProbabilities != null, "No equity matrix was set");
+		return dealsProbabilities.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#
+	 * getDealProbability(int)
+	 */
+	@Override
+	public double getDealProbability(int deal) {
+		checkState(dealsProbabilities != null, "No equity matrix was set");
+		return dealsProbabilities[deal];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame#
+	 * onIterationStart(int)
+	 */
+	@Override
+	public void onIterationStart(int deal) {
+		checkState(dealsProbabilities != null, "No equity matrix was set");
+		checkArgument(deal >= 0 && deal < dealsProbabilities.length,
+				"Invalid deal %s", deal);
+		p1Cards = dealsSbCards[deal];
+		p2Cards = dealsBbCards[deal];
+		allInResult = dealsResults[deal];
+		ignoreChanceNodes = true;
+		seq = Sequence.DISTRIBUTED_P2;
+	}
+
 	/**
 	 * Sets debug boolean
 	 * 
@@ -699,4 +859,17 @@ public class NLHEHUPushFold<PNode extends PlayerNode> implements
 	public void setDebug(boolean debug) {
 		this.debug = debug;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.model.game.CSCFRMSeedableGame#setRandom
+	 * (java.util.Random)
+	 */
+	@Override
+	public void setRandom(Random rand) {
+		this.rand = checkNotNull(rand, "The random cannot be null");
+		deck.setRandom(RandomGeneratorFactory.createRandomGenerator(rand));
+	}
 }
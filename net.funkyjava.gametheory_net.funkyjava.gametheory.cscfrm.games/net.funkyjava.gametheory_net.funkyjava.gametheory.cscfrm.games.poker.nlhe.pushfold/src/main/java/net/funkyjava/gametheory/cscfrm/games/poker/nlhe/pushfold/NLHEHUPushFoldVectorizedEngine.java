@@ -0,0 +1,269 @@
+package net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold.PushFoldEquityMatrix.nbHoleCards;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.TerminalNode;
+
+/**
+ * Counter Factual Regret Minimization engine dedicated to
+ * {@link NLHEHUPushFold}. Instead of sampling hole cards and boards, each
+ * iteration walks the public tree once with both players full ranges : the
+ * counterfactual values of the 169 hole cards of a player are computed
+ * against the opponent's whole range with a {@link PushFoldEquityMatrix}, and
+ * all player nodes are updated. The iterations are exact, so that far less
+ * iterations are needed than with the chance-sampling engine.
+ * <p>
+ * Terminal utilities are read on each iteration, so that the engine can run
+ * SNG games. The CFR+ mode and the discounting schedules are supported. The
+ * engine is meant to be run by a single thread : player nodes are only locked
+ * while they're updated.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class NLHEHUPushFoldVectorizedEngine extends CSCFRMBaseEngine {
+
+	/** The small blind player's nodes. */
+	private final PlayerNode[] sbChoice;
+
+	/** The big blind player's nodes. */
+	private final PlayerNode[] bbChoice;
+
+	/** The terminal nodes. */
+	private final TerminalNode sbFold, bbFold, sbWinsAllIn, bbWinsAllIn, tie;
+
+	/** The chance probability of each hole cards pair. */
+	private final double[][] chance;
+
+	/** The small blind player's win probability for each hole cards pair. */
+	private final double[][] win;
+
+	/** The tie probability for each hole cards pair. */
+	private final double[][] tieProb;
+
+	/** The terminal nodes utilities. */
+	private final double[] sbFoldUtil, bbFoldUtil, sbWinsUtil, bbWinsUtil,
+			tieUtil;
+
+	/** The small blind player's push probability for each hole cards. */
+	private final double[] push = new double[nbHoleCards];
+
+	/** The big blind player's call probability for each hole cards. */
+	private final double[] call = new double[nbHoleCards];
+
+	/** The player nodes iteration strategy. */
+	private final double[] strat = new double[2];
+
+	/** The player nodes regret deltas. */
+	private final double[] regretDeltas = new double[2];
+
+	/** The iteration utility. */
+	private final double[] iterUtil;
+
+	/** The strategy weight of the current iteration. */
+	private double stratWeight;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param game
+	 *            the game
+	 * @param matrix
+	 *            the equity matrix
+	 */
+	public NLHEHUPushFoldVectorizedEngine(NLHEHUPushFold<?> game,
+			PushFoldEquityMatrix matrix) {
+		super(game);
+		checkNotNull(matrix, "The equity matrix is null");
+		sbChoice = game.getSbChoice();
+		bbChoice = game.getBbChoice();
+		sbFold = game.getSbFold();
+		bbFold = game.getBbFold();
+		sbWinsAllIn = game.getSbWinsAllIn();
+		bbWinsAllIn = game.getBbWinsAllIn();
+		tie = game.getTie();
+		iterUtil = new double[nbPlayers];
+		sbFoldUtil = new double[nbPlayers];
+		bbFoldUtil = new double[nbPlayers];
+		sbWinsUtil = new double[nbPlayers];
+		bbWinsUtil = new double[nbPlayers];
+		tieUtil = new double[nbPlayers];
+		chance = new double[nbHoleCards][nbHoleCards];
+		win = new double[nbHoleCards][nbHoleCards];
+		tieProb = new double[nbHoleCards][nbHoleCards];
+		double total = 0;
+		int i, j;
+		for (i = 0; i < nbHoleCards; i++)
+			for (j = 0; j < nbHoleCards; j++) {
+				total += chance[i][j] = matrix.getCombos(i, j);
+				win[i][j] = matrix.getWin(i, j);
+				tieProb[i][j] = matrix.getTie(i, j);
+			}
+		for (i = 0; i < nbHoleCards; i++)
+			for (j = 0; j < nbHoleCards; j++)
+				chance[i][j] /= total;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMBaseEngine#train()
+	 */
+	@Override
+	public void train() throws Exception {
+		final long iteration = nextIteration();
+		// CFR+ weights each iteration's strategy by the iteration number
+		stratWeight = cfrPlus ? iteration : 1;
+		if (discounting != null)
+			prepareDiscounting(iteration);
+		readUtil(sbFold, sbFoldUtil);
+		readUtil(bbFold, bbFoldUtil);
+		readUtil(sbWinsAllIn, sbWinsUtil);
+		readUtil(bbWinsAllIn, bbWinsUtil);
+		readUtil(tie, tieUtil);
+		readStrategies(sbChoice, push, iteration);
+		readStrategies(bbChoice, call, iteration);
+		final double[] push = this.push;
+		final double[] call = this.call;
+		final double[] regretDeltas = this.regretDeltas;
+		final double[] strat = this.strat;
+		double foldValue, pushValue, callValue, reach, eq0, eq1, w, lose;
+		double iterUtil0 = 0, iterUtil1 = 0;
+		double[] chanceRow, winRow, tieRow;
+		int i, j;
+		// Small blind player's counterfactual values and iteration utility
+		for (i = 0; i < nbHoleCards; i++) {
+			chanceRow = chance[i];
+			winRow = win[i];
+			tieRow = tieProb[i];
+			pushValue = reach = 0;
+			for (j = 0; j < nbHoleCards; j++) {
+				if ((w = chanceRow[j]) == 0)
+					continue;
+				reach += w;
+				lose = 1 - winRow[j] - tieRow[j];
+				eq0 = winRow[j] * sbWinsUtil[0] + lose * bbWinsUtil[0]
+						+ tieRow[j] * tieUtil[0];
+				eq1 = winRow[j] * sbWinsUtil[1] + lose * bbWinsUtil[1]
+						+ tieRow[j] * tieUtil[1];
+				pushValue += w * (call[j] * eq0 + (1 - call[j]) * bbFoldUtil[0]);
+				iterUtil1 += w
+						* push[i]
+						* (call[j] * eq1 + (1 - call[j]) * bbFoldUtil[1]);
+			}
+			foldValue = reach * sbFoldUtil[0];
+			iterUtil0 += push[i] * pushValue + (1 - push[i]) * foldValue;
+			iterUtil1 += (1 - push[i]) * reach * sbFoldUtil[1];
+			if (sbChoice.length == 0)
+				continue;
+			strat[0] = 1 - push[i];
+			strat[1] = push[i];
+			regretDeltas[0] = push[i] * (foldValue - pushValue);
+			regretDeltas[1] = (1 - push[i]) * (pushValue - foldValue);
+			update(sbChoice[i], reach);
+		}
+		// Big blind player's counterfactual values
+		for (j = 0; j < bbChoice.length; j++) {
+			callValue = reach = 0;
+			for (i = 0; i < nbHoleCards; i++) {
+				if ((w = chance[i][j] * push[i]) == 0)
+					continue;
+				reach += w;
+				lose = 1 - win[i][j] - tieProb[i][j];
+				callValue += w
+						* (win[i][j] * sbWinsUtil[1] + lose * bbWinsUtil[1] + tieProb[i][j]
+								* tieUtil[1]);
+			}
+			foldValue = reach * bbFoldUtil[1];
+			strat[0] = 1 - call[j];
+			strat[1] = call[j];
+			regretDeltas[0] = call[j] * (foldValue - callValue);
+			regretDeltas[1] = (1 - call[j]) * (callValue - foldValue);
+			update(bbChoice[j], reach);
+		}
+		iterUtil[0] = iterUtil0;
+		iterUtil[1] = iterUtil1;
+		addIterUtil(iterUtil);
+		endIteration();
+	}
+
+	/**
+	 * Reads a terminal node's utility.
+	 *
+	 * @param node
+	 *            the terminal node, null when unreachable
+	 * @param dest
+	 *            the destination array
+	 * @throws InterruptedException
+	 *             interrupted while reading the utility
+	 */
+	private void readUtil(final TerminalNode node, final double[] dest)
+			throws InterruptedException {
+		if (node == null)
+			for (int p = 0; p < nbPlayers; p++)
+				dest[p] = 0;
+		else if (!readTerminalUtil || node.id < 0)
+			System.arraycopy(node.payoffs, 0, dest, 0, nbPlayers);
+		else
+			termUtils.read(node.id, dest);
+	}
+
+	/**
+	 * Reads the second action's probability of each player node's iteration
+	 * strategy. When the player has no choice, the probability is one.
+	 *
+	 * @param nodes
+	 *            the player nodes
+	 * @param dest
+	 *            the destination array
+	 * @param iteration
+	 *            the current iteration
+	 * @throws InterruptedException
+	 *             interrupted while locking a node
+	 */
+	private void readStrategies(final PlayerNode[] nodes, final double[] dest,
+			final long iteration) throws InterruptedException {
+		if (nodes.length == 0) {
+			for (int i = 0; i < nbHoleCards; i++)
+				dest[i] = 1;
+			return;
+		}
+		final double[] strat = this.strat;
+		PlayerNode node;
+		for (int i = 0; i < nbHoleCards; i++) {
+			node = nodes[i];
+			if (lockPlayersNodes)
+				lockNode(node);
+			if (discounting != null)
+				discount(node, iteration);
+			readStrategy(node, strat, 2);
+			if (lockPlayersNodes)
+				node.unlock();
+			dest[i] = strat[1];
+		}
+	}
+
+	/**
+	 * Adds {@link #regretDeltas} and {@link #strat} to a player node.
+	 *
+	 * @param node
+	 *            the player node
+	 * @param reach
+	 *            the node's counterfactual reach probability
+	 * @throws InterruptedException
+	 *             interrupted while locking the node
+	 */
+	private void update(final PlayerNode node, final double reach)
+			throws InterruptedException {
+		if (lockPlayersNodes)
+			lockNode(node);
+		addRegrets(node, regretDeltas, 2);
+		addStrategy(node, strat, 2, stratWeight);
+		if (updateVisits)
+			addVisit(node, reach);
+		if (lockPlayersNodes)
+			node.unlock();
+	}
+}
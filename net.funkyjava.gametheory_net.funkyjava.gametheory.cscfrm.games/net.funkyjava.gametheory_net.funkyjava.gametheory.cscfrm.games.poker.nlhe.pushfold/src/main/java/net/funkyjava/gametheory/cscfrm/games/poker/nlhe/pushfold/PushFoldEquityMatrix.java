@@ -0,0 +1,268 @@
+package net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Random;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.gameutil.cards.IntCardsSpec;
+import net.funkyjava.gametheory.gameutil.poker.he.evaluators.HUPreflopEquityTables;
+import net.funkyjava.gametheory.gameutil.poker.he.handeval.Holdem7CardsEvaluator;
+
+/**
+ * All-in preflop equities of each of the 169 hole cards against each other,
+ * indexed like {@link NLHEHUPushFold}'s player nodes. For each pair, holds the
+ * number of card combinations without shared card, and the probabilities that
+ * the first hand wins and ties.
+ *
+ * @author Pierre Mardon
+ */
+@Slf4j
+public final class PushFoldEquityMatrix {
+
+	/** The number of hole cards, suits isomorphism removed. */
+	public static final int nbHoleCards = 169;
+
+	/** The combinations count for each pair of hole cards. */
+	private final double[][] combos;
+
+	/** The first hand's win probability for each pair of hole cards. */
+	private final double[][] win;
+
+	/** The tie probability for each pair of hole cards. */
+	private final double[][] tie;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param combos
+	 *            the combinations count for each pair of hole cards
+	 * @param win
+	 *            the first hand's win probability for each pair of hole cards
+	 * @param tie
+	 *            the tie probability for each pair of hole cards
+	 */
+	public PushFoldEquityMatrix(double[][] combos, double[][] win,
+			double[][] tie) {
+		checkMatrix(combos, "combinations");
+		checkMatrix(win, "win");
+		checkMatrix(tie, "tie");
+		this.combos = combos;
+		this.win = win;
+		this.tie = tie;
+	}
+
+	private static void checkMatrix(double[][] matrix, String name) {
+		checkNotNull(matrix, "The %s matrix is null", name);
+		checkArgument(matrix.length == nbHoleCards,
+				"The %s matrix must have %s rows", name, nbHoleCards);
+		for (int i = 0; i < nbHoleCards; i++)
+			checkArgument(matrix[i] != null
+					&& matrix[i].length == nbHoleCards,
+					"The %s matrix must have %s columns", name, nbHoleCards);
+	}
+
+	/**
+	 * Gets the index of two hole cards : rank * 13 + rank for pairs, highest
+	 * rank * 13 + lowest rank for suited cards, and lowest rank * 13 + highest
+	 * rank for offsuit cards.
+	 *
+	 * @param spec
+	 *            the cards specifications
+	 * @param card1
+	 *            the first card
+	 * @param card2
+	 *            the second card
+	 * @return the hole cards index
+	 */
+	public static int holeCardsIndex(IntCardsSpec spec, int card1, int card2) {
+		final int r1 = spec.getStandardRank(card1);
+		final int r2 = spec.getStandardRank(card2);
+		if (r1 == r2)
+			return r1 * 13 + r2;
+		if (spec.sameColor(card1, card2))
+			return Math.max(r1, r2) * 13 + Math.min(r1, r2);
+		return Math.min(r1, r2) * 13 + Math.max(r1, r2);
+	}
+
+	/**
+	 * Lists the card combinations of each hole cards index.
+	 *
+	 * @param spec
+	 *            the cards specifications
+	 * @return the combinations, indexed by hole cards index
+	 */
+	private static int[][][] listCombos(IntCardsSpec spec) {
+		final int offset = spec.getOffset();
+		final int[] counts = new int[nbHoleCards];
+		final int[][][] res = new int[nbHoleCards][][];
+		for (int c1 = offset; c1 < offset + 52; c1++)
+			for (int c2 = c1 + 1; c2 < offset + 52; c2++)
+				counts[holeCardsIndex(spec, c1, c2)]++;
+		for (int i = 0; i < nbHoleCards; i++) {
+			res[i] = new int[counts[i]][];
+			counts[i] = 0;
+		}
+		int index;
+		for (int c1 = offset; c1 < offset + 52; c1++)
+			for (int c2 = c1 + 1; c2 < offset + 52; c2++)
+				res[index = holeCardsIndex(spec, c1, c2)][counts[index]++] = new int[] {
+						c1, c2 };
+		return res;
+	}
+
+	/**
+	 * Builds the matrix from computed or loaded preflop equity tables. The
+	 * equities are exact.
+	 *
+	 * @param tables
+	 *            the tables
+	 * @return the matrix
+	 */
+	public static PushFoldEquityMatrix fromPreflopTables(
+			HUPreflopEquityTables tables) {
+		checkNotNull(tables, "The tables are null");
+		final IntCardsSpec spec = tables.getCardsSpec();
+		final int[][][] holeCombos = listCombos(spec);
+		final double[][] combos = new double[nbHoleCards][nbHoleCards];
+		final double[][] win = new double[nbHoleCards][nbHoleCards];
+		final double[][] tie = new double[nbHoleCards][nbHoleCards];
+		int[] wlt;
+		double total;
+		for (int i = 0; i < nbHoleCards; i++)
+			for (int j = 0; j < nbHoleCards; j++) {
+				for (int[] h1 : holeCombos[i])
+					for (int[] h2 : holeCombos[j]) {
+						if (h1[0] == h2[0] || h1[0] == h2[1]
+								|| h1[1] == h2[0] || h1[1] == h2[1])
+							continue;
+						wlt = tables.getPreflopWinLoseTie(h1, h2);
+						total = wlt[0] + wlt[1] + wlt[2];
+						checkState(total > 0,
+								"The preflop tables aren't computed nor loaded");
+						combos[i][j]++;
+						win[i][j] += wlt[0] / total;
+						tie[i][j] += wlt[2] / total;
+					}
+				if (combos[i][j] > 0) {
+					win[i][j] /= combos[i][j];
+					tie[i][j] /= combos[i][j];
+				}
+			}
+		return new PushFoldEquityMatrix(combos, win, tie);
+	}
+
+	/**
+	 * Builds the matrix by sampling boards. Combinations counts are exact.
+	 *
+	 * @param eval
+	 *            the hand evaluator
+	 * @param nbBoards
+	 *            the number of boards to sample for each pair of hole cards
+	 * @param rand
+	 *            the random to use
+	 * @return the matrix
+	 */
+	public static PushFoldEquityMatrix sample(Holdem7CardsEvaluator eval,
+			int nbBoards, Random rand) {
+		checkNotNull(eval, "The evaluator is null");
+		checkNotNull(rand, "The random is null");
+		checkArgument(nbBoards > 0, "The number of boards must be > 0");
+		log.info("Sampling push/fold equities with {} boards per hand",
+				nbBoards);
+		final IntCardsSpec spec = eval.getCardsSpec();
+		final int offset = spec.getOffset();
+		final int[][][] holeCombos = listCombos(spec);
+		final double[][] combos = new double[nbHoleCards][nbHoleCards];
+		final double[][] win = new double[nbHoleCards][nbHoleCards];
+		final double[][] tie = new double[nbHoleCards][nbHoleCards];
+		final int[] board = new int[5];
+		int[] h1;
+		int[] h2;
+		long used;
+		int card;
+		int res;
+		for (int i = 0; i < nbHoleCards; i++)
+			for (int j = i; j < nbHoleCards; j++) {
+				for (int[] c1 : holeCombos[i])
+					for (int[] c2 : holeCombos[j])
+						if (c1[0] != c2[0] && c1[0] != c2[1]
+								&& c1[1] != c2[0] && c1[1] != c2[1])
+							combos[i][j]++;
+				combos[j][i] = combos[i][j];
+				if (combos[i][j] == 0)
+					continue;
+				for (int b = 0; b < nbBoards; b++) {
+					do {
+						h1 = holeCombos[i][rand.nextInt(holeCombos[i].length)];
+						h2 = holeCombos[j][rand.nextInt(holeCombos[j].length)];
+						used = (1L << (h1[0] - offset))
+								| (1L << (h1[1] - offset));
+					} while ((used & (1L << (h2[0] - offset))) != 0
+							|| (used & (1L << (h2[1] - offset))) != 0);
+					used |= (1L << (h2[0] - offset)) | (1L << (h2[1] - offset));
+					for (int k = 0; k < 5; k++) {
+						do
+							card = rand.nextInt(52);
+						while ((used & (1L << card)) != 0);
+						used |= 1L << card;
+						board[k] = card + offset;
+					}
+					if ((res = eval.compare7CardsHands(h1, h2, board)) > 0)
+						win[i][j]++;
+					else if (res == 0)
+						tie[i][j]++;
+				}
+				tie[j][i] = tie[i][j] /= nbBoards;
+				if (i == j)
+					// Identical classes win as often as they lose
+					win[i][i] = (1 - tie[i][i]) / 2;
+				else {
+					win[i][j] /= nbBoards;
+					win[j][i] = 1 - win[i][j] - tie[i][j];
+				}
+			}
+		return new PushFoldEquityMatrix(combos, win, tie);
+	}
+
+	/**
+	 * Gets the combinations count of a pair of hole cards.
+	 *
+	 * @param holeCards
+	 *            the first hand's hole cards index
+	 * @param oppHoleCards
+	 *            the second hand's hole cards index
+	 * @return the combinations count
+	 */
+	public double getCombos(int holeCards, int oppHoleCards) {
+		return combos[holeCards][oppHoleCards];
+	}
+
+	/**
+	 * Gets the first hand's win probability.
+	 *
+	 * @param holeCards
+	 *            the first hand's hole cards index
+	 * @param oppHoleCards
+	 *            the second hand's hole cards index
+	 * @return the win probability
+	 */
+	public double getWin(int holeCards, int oppHoleCards) {
+		return win[holeCards][oppHoleCards];
+	}
+
+	/**
+	 * Gets the tie probability.
+	 *
+	 * @param holeCards
+	 *            the first hand's hole cards index
+	 * @param oppHoleCards
+	 *            the second hand's hole cards index
+	 * @return the tie probability
+	 */
+	public double getTie(int holeCards, int oppHoleCards) {
+		return tie[holeCards][oppHoleCards];
+	}
+}
@@ -0,0 +1,103 @@
+package net.funkyjava.gametheory.cscfrm.games.poker.nlhe.pushfold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMConfig;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMTapeEngine;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.gameutil.poker.he.handeval.twoplustwo.TwoPlusTwoEvaluator;
+
+import org.junit.Test;
+
+/**
+ * @author Pierre Mardon
+ *
+ */
+@Slf4j
+public class NLHEHUPushFoldVectorizedEngineTest {
+
+	private static final int nbIter = 2000;
+	private static final int nbTapeIter = 4000_000;
+
+	/**
+	 * @throws Exception
+	 *             unexpected exception
+	 */
+	@Test
+	public void testVectorizedEngine() throws Exception {
+		final TwoPlusTwoEvaluator eval = new TwoPlusTwoEvaluator();
+		final PushFoldEquityMatrix matrix = PushFoldEquityMatrix.sample(eval,
+				200, new Random(0));
+		// Identical hole cards classes win as often as they lose
+		for (int i = 0; i < PushFoldEquityMatrix.nbHoleCards; i++)
+			if (matrix.getCombos(i, i) > 0)
+				assertEquals(1 - matrix.getTie(i, i), 2 * matrix.getWin(i, i),
+						1e-12);
+		final NLHEHUPushFold<DefaultPlayerNode> game = new NLHEHUPushFold<>(
+				new DefaultNodesProvider(), 5, 10, 200, 200, eval);
+		final NLHEHUPushFoldVectorizedEngine engine = new NLHEHUPushFoldVectorizedEngine(
+				game, matrix);
+		engine.setConfig(new CSCFRMConfig());
+		final long start = System.currentTimeMillis();
+		for (int i = 0; i < nbIter; i++)
+			engine.train();
+		final double duration = System.currentTimeMillis() - start;
+		log.info("Executed {} iterations at {} iter/s", nbIter,
+				(nbIter / duration) * 1000);
+		log.info(game.getBinaryStrategiesString(0.5));
+		final double[] util = engine.getUtilManager().getUtil();
+		log.info("Game utility {} {}", util[0], util[1]);
+		assertEquals("The game must be zero-sum", 0, util[0] + util[1], 1e-9);
+		// AA
+		assertTrue(game.getSbChoice()[168].getAvgStrategy()[1] > 0.99);
+		assertTrue(game.getBbChoice()[168].getAvgStrategy()[1] > 0.99);
+		// 72o
+		assertTrue(game.getBbChoice()[5].getAvgStrategy()[1] < 0.05);
+	}
+
+	/**
+	 * The game tape engine, sampling deals indexed by hole cards classes, must
+	 * converge to the vectorized engine's utility.
+	 *
+	 * @throws Exception
+	 *             unexpected exception
+	 */
+	@Test
+	public void testGameTape() throws Exception {
+		final TwoPlusTwoEvaluator eval = new TwoPlusTwoEvaluator();
+		final PushFoldEquityMatrix matrix = PushFoldEquityMatrix.sample(eval,
+				50, new Random(0));
+		final NLHEHUPushFold<DefaultPlayerNode> vectorized = new NLHEHUPushFold<>(
+				new DefaultNodesProvider(), 5, 10, 200, 200, eval);
+		final NLHEHUPushFoldVectorizedEngine reference = new NLHEHUPushFoldVectorizedEngine(
+				vectorized, matrix);
+		reference.setConfig(new CSCFRMConfig());
+		for (int i = 0; i < nbIter; i++)
+			reference.train();
+		final NLHEHUPushFold<DefaultPlayerNode> game = new NLHEHUPushFold<>(
+				new DefaultNodesProvider(), 5, 10, 200, 200, eval);
+		game.setEquityMatrix(matrix);
+		final CSCFRMTapeEngine engine = new CSCFRMTapeEngine(game);
+		assertEquals("Deals are pairs of hole cards and an all-in result", 5,
+				engine.getTape().getNbPositions());
+		engine.setConfig(new CSCFRMConfig());
+		final long start = System.currentTimeMillis();
+		for (int i = 0; i < nbTapeIter; i++)
+			engine.train();
+		final double duration = System.currentTimeMillis() - start;
+		log.info("Executed {} tape iterations at {} iter/s", nbTapeIter,
+				(nbTapeIter / duration) * 1000);
+		final double expected = reference.getUtilManager().getUtil()[0];
+		final double util = engine.getUtilManager().getUtil()[0];
+		log.info("Tape utility {}, vectorized utility {}", util, expected);
+		assertEquals("Game tape training didn't converge", expected, util, 0.15);
+		// AA
+		assertTrue(game.getSbChoice()[168].getAvgStrategy()[1] > 0.99);
+		assertTrue(game.getBbChoice()[168].getAvgStrategy()[1] > 0.99);
+	}
+}
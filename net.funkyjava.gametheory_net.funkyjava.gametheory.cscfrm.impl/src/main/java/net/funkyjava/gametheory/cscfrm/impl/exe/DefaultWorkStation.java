@@ -7,6 +7,7 @@ import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMCtxExecutionLoaderProv
 import net.funkyjava.gametheory.cscfrm.exe.WorkStation;
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.DefaultNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.FlatNodesProvider;
 import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoaderProvider;
 import net.funkyjava.gametheory.cscfrm.impl.loading.none.NoneLoaderProvider;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
@@ -14,7 +15,8 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
 /**
  * The DefaultWorkStation is an implementation of {@link WorkStation} for
  * {@link DefaultPlayerNode}. Its {@link NodesProvider} will always be a
- * {@link DefaultNodesProvider}, and the
+ * {@link DefaultNodesProvider}, possibly backed by a flat store (see
+ * {@link FlatNodesProvider}), and the
  * {@link CSCFRMCtxExecutionLoaderProvider} may be a
  * {@link FileChannelLoaderProvider} or a {@link NoneLoaderProvider}, depending
  * of the chosen constructor.
@@ -38,7 +40,28 @@ public final class DefaultWorkStation extends WorkStation<DefaultPlayerNode> {
 	protected DefaultWorkStation(
 			CSCFRMCtxExecutionLoaderProvider<DefaultPlayerNode> loader,
 			int nbPlayers, String uid) throws IOException {
-		super(loader, new DefaultNodesProvider(), uid);
+		this(loader, nbPlayers, uid, new DefaultNodesProvider());
+	}
+
+	/**
+	 * The main constructor with a specific nodes provider.
+	 * 
+	 * @param loader
+	 *            the contextual loader
+	 * @param nbPlayers
+	 *            the number of players
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	protected DefaultWorkStation(
+			CSCFRMCtxExecutionLoaderProvider<DefaultPlayerNode> loader,
+			int nbPlayers, String uid, DefaultNodesProvider provider)
+			throws IOException {
+		super(loader, provider, uid);
 	}
 
 	/**
@@ -74,4 +97,43 @@ public final class DefaultWorkStation extends WorkStation<DefaultPlayerNode> {
 						workingDirectory), nbPlayers, uid);
 	}
 
+	/**
+	 * The constructor with no loading and a specific nodes provider.
+	 * 
+	 * @param nbPlayers
+	 *            the number of players
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public DefaultWorkStation(int nbPlayers, String uid,
+			DefaultNodesProvider provider) throws IOException {
+		this(new NoneLoaderProvider<DefaultPlayerNode>(), nbPlayers, uid,
+				provider);
+	}
+
+	/**
+	 * The constructor with {@link FileChannelLoaderProvider} and a specific
+	 * nodes provider.
+	 * 
+	 * @param workingDirectory
+	 *            the working directory
+	 * @param nbPlayers
+	 *            the number of players
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public DefaultWorkStation(Path workingDirectory, int nbPlayers,
+			String uid, DefaultNodesProvider provider) throws IOException {
+		this(new FileChannelLoaderProvider<DefaultPlayerNode>(
+				workingDirectory), nbPlayers, uid, provider);
+	}
+
 }
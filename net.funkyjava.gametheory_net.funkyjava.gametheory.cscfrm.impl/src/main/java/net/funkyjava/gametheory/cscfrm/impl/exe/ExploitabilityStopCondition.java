@@ -0,0 +1,79 @@
+package net.funkyjava.gametheory.cscfrm.impl.exe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMMetrics;
+import net.funkyjava.gametheory.cscfrm.exe.CSCFRMStopCondition;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMBestResponse;
+import net.funkyjava.gametheory.cscfrm.util.game.exploitability.CSCFRMExploitability;
+
+/**
+ * Stop condition met when the average strategies exploitability falls under a
+ * target. Each check computes a full best response, so the check interval
+ * must be long compared to the best response's computation time.
+ *
+ * @author Pierre Mardon
+ */
+@Slf4j
+public class ExploitabilityStopCondition implements CSCFRMStopCondition {
+
+	/** The best response calculator. */
+	private final CSCFRMBestResponse bestResponse;
+
+	/** The target exploitability. */
+	private final double target;
+
+	/** The last computed exploitability. */
+	private volatile CSCFRMExploitability last;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param bestResponse
+	 *            the best response calculator of the trained game
+	 * @param target
+	 *            the exploitability under which the run stops
+	 */
+	public ExploitabilityStopCondition(CSCFRMBestResponse bestResponse,
+			double target) {
+		checkNotNull(bestResponse, "The best response calculator is null");
+		checkArgument(target > 0, "The target exploitability must be > 0");
+		this.bestResponse = bestResponse;
+		this.target = target;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.gametheory.cscfrm.exe.CSCFRMStopCondition#isMet(net.funkyjava
+	 * .gametheory.cscfrm.exe.CSCFRMMetrics)
+	 */
+	@Override
+	public boolean isMet(CSCFRMMetrics metrics) throws Exception {
+		final CSCFRMExploitability expl = last = bestResponse.compute();
+		log.info("Exploitability after {} iterations : {}",
+				metrics.getIterations(), expl.getExploitability());
+		return expl.getExploitability() < target;
+	}
+
+	/**
+	 * Gets the last computed exploitability.
+	 *
+	 * @return the last exploitability, null before the first check
+	 */
+	public CSCFRMExploitability getLast() {
+		return last;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "exploitability < " + target;
+	}
+}
@@ -0,0 +1,105 @@
+package net.funkyjava.gametheory.cscfrm.impl.exe;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMCtxExecutionLoaderProvider;
+import net.funkyjava.gametheory.cscfrm.exe.WorkStation;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.SpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider.SpinLockNodesProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.filechannel.FileChannelLoaderProvider;
+import net.funkyjava.gametheory.cscfrm.impl.loading.none.NoneLoaderProvider;
+
+/**
+ * The SpinLockWorkStation is an implementation of {@link WorkStation} for
+ * {@link SpinLockPlayerNode}, to build executors whose threads lock player
+ * nodes without their monitor. Its nodes provider is a
+ * {@link SpinLockNodesProvider}, possibly backed by a flat store, and its
+ * loader provider a {@link FileChannelLoaderProvider} or a
+ * {@link NoneLoaderProvider}, depending of the chosen constructor.
+ *
+ * @author Pierre Mardon
+ */
+public final class SpinLockWorkStation extends
+		WorkStation<SpinLockPlayerNode> {
+
+	/**
+	 * The main constructor.
+	 *
+	 * @param loader
+	 *            the contextual loader
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	private SpinLockWorkStation(
+			CSCFRMCtxExecutionLoaderProvider<SpinLockPlayerNode> loader,
+			String uid, SpinLockNodesProvider provider) throws IOException {
+		super(loader, provider, uid);
+	}
+
+	/**
+	 * The constructor with no loading.
+	 *
+	 * @param uid
+	 *            the uid
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public SpinLockWorkStation(String uid) throws IOException {
+		this(uid, new SpinLockNodesProvider());
+	}
+
+	/**
+	 * The constructor with {@link FileChannelLoaderProvider}.
+	 *
+	 * @param workingDirectory
+	 *            the working directory
+	 * @param uid
+	 *            the uid
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public SpinLockWorkStation(Path workingDirectory, String uid)
+			throws IOException {
+		this(workingDirectory, uid, new SpinLockNodesProvider());
+	}
+
+	/**
+	 * The constructor with no loading and a specific nodes provider.
+	 *
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public SpinLockWorkStation(String uid, SpinLockNodesProvider provider)
+			throws IOException {
+		this(new NoneLoaderProvider<SpinLockPlayerNode>(), uid, provider);
+	}
+
+	/**
+	 * The constructor with {@link FileChannelLoaderProvider} and a specific
+	 * nodes provider.
+	 *
+	 * @param workingDirectory
+	 *            the working directory
+	 * @param uid
+	 *            the uid
+	 * @param provider
+	 *            the nodes provider
+	 * @throws IOException
+	 *             the IO exception
+	 */
+	public SpinLockWorkStation(Path workingDirectory, String uid,
+			SpinLockNodesProvider provider) throws IOException {
+		this(new FileChannelLoaderProvider<SpinLockPlayerNode>(
+				workingDirectory), uid, provider);
+	}
+
+}
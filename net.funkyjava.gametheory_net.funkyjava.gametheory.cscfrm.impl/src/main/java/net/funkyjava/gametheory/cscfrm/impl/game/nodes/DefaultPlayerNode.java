@@ -1,10 +1,12 @@
 package net.funkyjava.gametheory.cscfrm.impl.game.nodes;
 
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
 
 /**
- * The DefaultPlayerNode class.
+ * The DefaultPlayerNode class. Its lock relies on the node's monitor, see
+ * {@link SpinLockPlayerNode} for a lighter one.
  * 
  * @author Pierre Mardon
  */
@@ -27,6 +29,21 @@ public final class DefaultPlayerNode extends PlayerNode {
 		super(player, nbPlayerActions);
 	}
 
+	/**
+	 * Constructor for a node backed by a {@link FlatNodesStore}.
+	 * 
+	 * @param player
+	 *            the player index
+	 * @param nbPlayerActions
+	 *            the number of player actions
+	 * @param store
+	 *            the store
+	 */
+	public DefaultPlayerNode(int player, int nbPlayerActions,
+			FlatNodesStore store) {
+		super(player, nbPlayerActions, store);
+	}
+
 	@Override
 	public synchronized void lock() throws InterruptedException {
 		while (locked)
@@ -0,0 +1,34 @@
+package net.funkyjava.gametheory.cscfrm.impl.game.nodes;
+
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+
+/**
+ * {@link SpinLockPlayerNode} followed by a cache line of padding fields, for
+ * padded {@link FlatNodesStore}s. Nodes are allocated one after the other
+ * while the game is built, so that without padding the lock state, visits
+ * count, realization weight sum and discount iteration of a node share a
+ * cache line with the fields of the next one. Subclass fields are laid out
+ * after the inherited ones, so the padding always sits between two nodes.
+ * 
+ * @author Pierre Mardon
+ */
+public final class PaddedSpinLockPlayerNode extends SpinLockPlayerNode {
+
+	/** Padding, never read. */
+	long p0, p1, p2, p3, p4, p5, p6, p7;
+
+	/**
+	 * Constructor for a node backed by a padded {@link FlatNodesStore}.
+	 * 
+	 * @param player
+	 *            the player index
+	 * @param nbPlayerActions
+	 *            the number of player actions
+	 * @param store
+	 *            the store
+	 */
+	public PaddedSpinLockPlayerNode(int player, int nbPlayerActions,
+			FlatNodesStore store) {
+		super(player, nbPlayerActions, store);
+	}
+}
@@ -0,0 +1,96 @@
+package net.funkyjava.gametheory.cscfrm.impl.game.nodes;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+
+/**
+ * Player node whose lock is a compare-and-set on an int field instead of the
+ * node's monitor, see {@link DefaultPlayerNode}. A thread waiting for the lock
+ * spins, then yields a bounded number of times, so that short critical
+ * sections never inflate a monitor nor switch context. A thread still waiting
+ * after that marks the lock as contended and waits on the node's monitor, and
+ * the thread releasing a contended lock notifies one of them. Waiters thus
+ * don't burn a CPU when the holder is descheduled or when many threads
+ * contend for the same node.
+ * 
+ * @author Pierre Mardon
+ */
+public class SpinLockPlayerNode extends PlayerNode {
+
+	/** The number of spins before yielding. */
+	private static final int maxSpins = 64;
+
+	/** The number of yields before waiting on the node's monitor. */
+	private static final int maxYields = 16;
+
+	/** The lock state updater. */
+	private static final AtomicIntegerFieldUpdater<SpinLockPlayerNode> lockUpdater = AtomicIntegerFieldUpdater
+			.newUpdater(SpinLockPlayerNode.class, "lockState");
+
+	/**
+	 * The lock state : 0 when free, 1 when locked, 2 when locked and threads
+	 * may be waiting on the node's monitor.
+	 */
+	private volatile int lockState = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param player
+	 *            the player index
+	 * @param nbPlayerActions
+	 *            the number of player actions
+	 */
+	public SpinLockPlayerNode(int player, int nbPlayerActions) {
+		super(player, nbPlayerActions);
+	}
+
+	/**
+	 * Constructor for a node backed by a {@link FlatNodesStore}.
+	 * 
+	 * @param player
+	 *            the player index
+	 * @param nbPlayerActions
+	 *            the number of player actions
+	 * @param store
+	 *            the store
+	 */
+	public SpinLockPlayerNode(int player, int nbPlayerActions,
+			FlatNodesStore store) {
+		super(player, nbPlayerActions, store);
+	}
+
+	@Override
+	public void lock() throws InterruptedException {
+		if (lockUpdater.compareAndSet(this, 0, 1))
+			return;
+		for (int spins = 0; spins < maxSpins + maxYields; spins++) {
+			if (lockState == 0 && lockUpdater.compareAndSet(this, 0, 1))
+				return;
+			if (spins < maxSpins)
+				continue;
+			Thread.yield();
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+		// Whoever gets the lock from now on releases it as contended, and
+		// notifies a waiter
+		while (lockUpdater.getAndSet(this, 2) != 0) {
+			synchronized (this) {
+				while (lockState == 2)
+					wait();
+			}
+		}
+	}
+
+	@Override
+	public void unlock() {
+		if (lockUpdater.getAndSet(this, 0) == 2) {
+			synchronized (this) {
+				notify();
+			}
+		}
+	}
+}
@@ -1,10 +1,15 @@
 package net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultChanceNode;
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultTerminalNode;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.ChanceNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.TerminalNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.FlatStoreNodesProvider;
 import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
 
 
@@ -14,7 +19,55 @@ import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
  * 
  * @author Pierre Mardon
  */
-public class DefaultNodesProvider implements NodesProvider<DefaultPlayerNode> {
+public class DefaultNodesProvider implements
+		FlatStoreNodesProvider<DefaultPlayerNode> {
+
+	/** The store backing the player nodes, may be null. */
+	private final FlatNodesStore store;
+
+	/**
+	 * The Constructor. Player nodes will own their regret and strategy sum
+	 * arrays.
+	 */
+	public DefaultNodesProvider() {
+		this.store = null;
+	}
+
+	/**
+	 * The Constructor for player nodes backed by a {@link FlatNodesStore}. The
+	 * store can't be padded : padding the segments is pointless while the
+	 * nodes themselves are packed, see {@link SpinLockNodesProvider}.
+	 * 
+	 * @param store
+	 *            the store in which player nodes segments will be allocated
+	 */
+	public DefaultNodesProvider(FlatNodesStore store) {
+		this.store = checkNotNull(store, "The store cannot be null");
+		checkArgument(!store.padded,
+				"Padded stores require the spin lock nodes provider");
+	}
+
+	/**
+	 * Gets the store backing the player nodes.
+	 * 
+	 * @return the store, or null when player nodes own their arrays
+	 */
+	@Override
+	public FlatNodesStore getStore() {
+		return store;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.
+	 * FlatStoreNodesProvider#withStore
+	 * (net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore)
+	 */
+	@Override
+	public DefaultNodesProvider withStore(FlatNodesStore store) {
+		return new DefaultNodesProvider(store);
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -37,6 +90,8 @@ public class DefaultNodesProvider implements NodesProvider<DefaultPlayerNode> {
 	 */
 	@Override
 	public DefaultPlayerNode getPlayerNode(int player, int nbPlayerActions) {
+		if (store != null)
+			return new DefaultPlayerNode(player, nbPlayerActions, store);
 		return new DefaultPlayerNode(player, nbPlayerActions);
 	}
 
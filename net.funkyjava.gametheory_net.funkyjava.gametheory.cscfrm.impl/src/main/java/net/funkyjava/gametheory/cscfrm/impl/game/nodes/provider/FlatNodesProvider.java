@@ -0,0 +1,48 @@
+package net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider;
+
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
+
+/**
+ * {@link NodesProvider} whose player nodes all share one contiguous
+ * {@link FlatNodesStore}. On large games, this avoids millions of small arrays
+ * scattered across the heap and keeps the data of nodes created together next
+ * to each other.
+ * 
+ * @author Pierre Mardon
+ */
+public class FlatNodesProvider extends DefaultNodesProvider {
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the store, in slots. Each player node
+	 *            takes two slots per action.
+	 * @param floatPrecision
+	 *            true to store regrets and strategy sums in single precision
+	 */
+	public FlatNodesProvider(int initialCapacity, boolean floatPrecision) {
+		super(new FlatNodesStore(initialCapacity, floatPrecision));
+	}
+
+	/**
+	 * The Constructor for double precision.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the store, in slots. Each player node
+	 *            takes two slots per action.
+	 */
+	public FlatNodesProvider(int initialCapacity) {
+		super(new FlatNodesStore(initialCapacity));
+	}
+
+	/**
+	 * The Constructor for double precision with the store's default initial
+	 * capacity.
+	 */
+	public FlatNodesProvider() {
+		super(new FlatNodesStore());
+	}
+
+}
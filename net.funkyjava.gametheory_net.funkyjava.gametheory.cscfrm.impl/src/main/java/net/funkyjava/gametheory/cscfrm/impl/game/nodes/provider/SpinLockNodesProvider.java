@@ -0,0 +1,137 @@
+package net.funkyjava.gametheory.cscfrm.impl.game.nodes.provider;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.PaddedSpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.impl.game.nodes.SpinLockPlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.ChanceNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.TerminalNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.FlatStoreNodesProvider;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.NodesProvider;
+
+/**
+ * {@link NodesProvider} whose player nodes are {@link SpinLockPlayerNode}s, to
+ * reduce the locking overhead when multithreading. Chance and terminal nodes
+ * are the ones of the {@link DefaultNodesProvider}. With a padded
+ * {@link FlatNodesStore}, player nodes are {@link PaddedSpinLockPlayerNode}s so
+ * that neither their segments nor their fields share cache lines.
+ *
+ * @author Pierre Mardon
+ */
+public class SpinLockNodesProvider implements
+		FlatStoreNodesProvider<SpinLockPlayerNode> {
+
+	/** The provider of the chance and terminal nodes. */
+	private final DefaultNodesProvider defaultProvider = new DefaultNodesProvider();
+
+	/** The store backing the player nodes, may be null. */
+	private final FlatNodesStore store;
+
+	/**
+	 * The Constructor. Player nodes will own their regret and strategy sum
+	 * arrays.
+	 */
+	public SpinLockNodesProvider() {
+		this.store = null;
+	}
+
+	/**
+	 * The Constructor for player nodes backed by a {@link FlatNodesStore},
+	 * padded or not.
+	 *
+	 * @param store
+	 *            the store in which player nodes segments will be allocated
+	 */
+	public SpinLockNodesProvider(FlatNodesStore store) {
+		this.store = checkNotNull(store, "The store cannot be null");
+	}
+
+	/**
+	 * Gets the store backing the player nodes.
+	 *
+	 * @return the store, or null when player nodes own their arrays
+	 */
+	@Override
+	public FlatNodesStore getStore() {
+		return store;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see net.funkyjava.gametheory.cscfrm.model.game.nodes.provider.
+	 * FlatStoreNodesProvider#withStore
+	 * (net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore)
+	 */
+	@Override
+	public SpinLockNodesProvider withStore(FlatNodesStore store) {
+		return new SpinLockNodesProvider(store);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.cscfrm.game.nodes.provider.itf.NodesProvider#getChanceNode
+	 * ()
+	 */
+	@Override
+	public ChanceNode getChanceNode() {
+		return defaultProvider.getChanceNode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.cscfrm.game.nodes.provider.itf.NodesProvider#getPlayerNode
+	 * (int, int)
+	 */
+	@Override
+	public SpinLockPlayerNode getPlayerNode(int player, int nbPlayerActions) {
+		final FlatNodesStore store = this.store;
+		if (store != null && store.padded)
+			return new PaddedSpinLockPlayerNode(player, nbPlayerActions, store);
+		if (store != null)
+			return new SpinLockPlayerNode(player, nbPlayerActions, store);
+		return new SpinLockPlayerNode(player, nbPlayerActions);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.cscfrm.game.nodes.provider.itf.NodesProvider#getTerminalNode
+	 * (double[], int)
+	 */
+	@Override
+	public TerminalNode getTerminalNode(double[] payoffs, int id) {
+		return defaultProvider.getTerminalNode(payoffs, id);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.cscfrm.game.nodes.provider.itf.NodesProvider#getTerminalNode
+	 * (double[])
+	 */
+	@Override
+	public TerminalNode getTerminalNode(double[] payoffs) {
+		return defaultProvider.getTerminalNode(payoffs);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * net.funkyjava.cscfrm.game.nodes.provider.itf.NodesProvider#getTerminalNode
+	 * (int)
+	 */
+	@Override
+	public TerminalNode getTerminalNode(int id) {
+		return defaultProvider.getTerminalNode(id);
+	}
+
+}
@@ -16,6 +16,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMDiscounting;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoader;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
@@ -46,6 +47,21 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 	 */
 	private boolean updateVisitsAndWeight;
 
+	/** Indicates whether regrets and strategy sums are stored as floats. */
+	private boolean floatPrecision;
+
+	/** Configuration byte flag for visits and realization weight. */
+	private static final byte visitsFlag = 1;
+
+	/** Configuration byte flag for single precision values. */
+	private static final byte floatFlag = 2;
+
+	/** Configuration byte flag for a saved discounting schedule. */
+	private static final byte discountingFlag = 4;
+
+	/** Indicates whether the file holds a discounting schedule. */
+	private boolean hasDiscounting;
+
 	/** The Constant options. */
 	private final static Set<OpenOption> options = new HashSet<OpenOption>();
 
@@ -91,6 +107,7 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		this.path = path;
 		fileExists = Files.exists(path);
 		this.updateVisitsAndWeight = config.isLoadVisitsAndRealWeight();
+		this.floatPrecision = config.isFloatPrecision();
 		if (fileExists) {
 			checkArgument(!Files.isDirectory(path),
 					"The path %s is a directory !", path);
@@ -112,10 +129,12 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 	/**
 	 * Sets the offsets : before offset are written
 	 * <ul>
-	 * <li>A byte for the configuration</li>
+	 * <li>A byte for the configuration, see {@link #visitsFlag},
+	 * {@link #floatFlag} and {@link #discountingFlag}</li>
 	 * <li>An int for the number of players</li>
-	 * <li>Then the players double utilities</li>
 	 * <li>The number of iterations</li>
+	 * <li>Then the players double utilities</li>
+	 * <li>When there is one, the discounting schedule's alpha, beta and gamma</li>
 	 * </ul>
 	 * 
 	 * @throws IOException
@@ -125,17 +144,23 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		// Read nb of players
 		log.debug("Setting offset for file {}", path);
 		chan.position(0);
-		boolean updateVisitsAndWeight = readByte() != 0;
-		if (updateVisitsAndWeight != this.updateVisitsAndWeight) {
+		final byte flags = readByte();
+		boolean updateVisitsAndWeight = (flags & visitsFlag) != 0;
+		boolean floatPrecision = (flags & floatFlag) != 0;
+		if (updateVisitsAndWeight != this.updateVisitsAndWeight
+				|| floatPrecision != this.floatPrecision) {
 			log.error(
 					"Error reading the first bytes of the file {}. The read configuration differs from the one provided."
 							+ " It may be have been created another way and isn't valid for this use",
 					path);
 			throw new IOException("Wrong configuration read");
 		}
-		stateOffset = 1 + 4 + ((nbPlayers = readInt()) + 1) * 8;
-		log.debug("Read header, updateVisitsAndWeight = {}, nbPlayers = {}",
-				updateVisitsAndWeight, nbPlayers);
+		hasDiscounting = (flags & discountingFlag) != 0;
+		stateOffset = 1 + 4 + ((nbPlayers = readInt()) + 1) * 8
+				+ (hasDiscounting ? 3 * 8 : 0);
+		log.debug(
+				"Read header, updateVisitsAndWeight = {}, floatPrecision = {}, nbPlayers = {}",
+				updateVisitsAndWeight, floatPrecision, nbPlayers);
 	}
 
 	/*
@@ -158,10 +183,13 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		chan.position(stateOffset);
 		PlayerNode node;
 		int nbNodes = 0;
+		int a;
 		while (nodes.hasNext()) {
 			node = nodes.next();
-			read(node.regretSum);
-			read(node.stratSum);
+			for (a = 0; a < node.nbActions; a++)
+				node.setRegret(a, readValue());
+			for (a = 0; a < node.nbActions; a++)
+				node.setStrategySum(a, readValue());
 			if (updateVisitsAndWeight) {
 				node.realWeightSum = readDouble();
 				node.visits = readLong();
@@ -190,7 +218,12 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		final double[] util = new double[nbPlayers];
 		read(util);
 		log.debug("Read nb iter {}, util {}", nbIter, util);
-		return new CSCFRMState(nbIter, util);
+		if (!hasDiscounting)
+			return new CSCFRMState(nbIter, util);
+		final CSCFRMDiscounting discounting = new CSCFRMDiscounting(
+				readDouble(), readDouble(), readDouble());
+		log.debug("Read discounting {}", discounting);
+		return new CSCFRMState(nbIter, util, discounting);
 	}
 
 	/**
@@ -205,11 +238,19 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		log.debug("Writing CSCFRMState in {}, nb iter {}, util {}", path,
 				state.getNbIter(), state.getGameUtilSum());
 		final double[] util = state.getGameUtilSum();
+		final CSCFRMDiscounting discounting = state.getDiscounting();
 		chan.position(0);
-		write(updateVisitsAndWeight ? (byte) 1 : (byte) 0);
+		write((byte) ((updateVisitsAndWeight ? visitsFlag : 0)
+				| (floatPrecision ? floatFlag : 0) | (discounting != null ? discountingFlag
+				: 0)));
 		write(nbPlayers = util.length);
 		write(state.getNbIter());
 		write(util);
+		if (discounting != null) {
+			write(discounting.getAlpha());
+			write(discounting.getBeta());
+			write(discounting.getGamma());
+		}
 	}
 
 	/*
@@ -235,10 +276,13 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		chan.position(stateOffset);
 		PlayerNode node;
 		int nbNodes = 0;
+		int a;
 		while (nodes.hasNext()) {
 			node = nodes.next();
-			write(node.regretSum);
-			write(node.stratSum);
+			for (a = 0; a < node.nbActions; a++)
+				writeValue(node.getRegret(a));
+			for (a = 0; a < node.nbActions; a++)
+				writeValue(node.getStrategySum(a));
 			if (updateVisitsAndWeight) {
 				write(node.realWeightSum);
 				write(node.visits);
@@ -304,6 +348,13 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		return buffer.getDouble();
 	}
 
+	private double readValue() throws IOException {
+		if (!floatPrecision)
+			return readDouble();
+		read(4);
+		return buffer.getFloat();
+	}
+
 	private void read(double[] dest) throws IOException {
 		for (int i = 0; i < dest.length; i++)
 			dest[i] = readDouble();
@@ -337,6 +388,17 @@ public class FileChannelLoader<PNode extends PlayerNode> implements
 		writeBuffer(8);
 	}
 
+	private void writeValue(double value) throws IOException {
+		if (!floatPrecision) {
+			write(value);
+			return;
+		}
+		buffer.rewind();
+		buffer.limit(4);
+		buffer.putFloat((float) value);
+		writeBuffer(4);
+	}
+
 	private void write(double[] values) throws IOException {
 		for (int i = 0; i < values.length; i++)
 			write(values[i]);
@@ -0,0 +1,87 @@
+package net.funkyjava.gametheory.cscfrm.impl.game.nodes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SpinLockPlayerNode}.
+ * 
+ * @author Pierre Mardon
+ */
+public class SpinLockPlayerNodeTest {
+
+	private static final int nbThreads = 4;
+
+	private static final int nbLocks = 100000;
+
+	private long counter = 0;
+
+	/**
+	 * Increments a counter from several threads while holding the lock
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testMutualExclusion() throws Exception {
+		final SpinLockPlayerNode node = new SpinLockPlayerNode(0, 2);
+		final Thread[] threads = new Thread[nbThreads];
+		for (int i = 0; i < nbThreads; i++) {
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < nbLocks; j++) {
+							node.lock();
+							counter++;
+							node.unlock();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals("Lost increments", nbThreads * nbLocks, counter);
+	}
+
+	/**
+	 * A thread waiting for a lock held for long must stop yielding and wait,
+	 * and be woken up when the lock is released
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testWaiterWokenOnUnlock() throws Exception {
+		final SpinLockPlayerNode node = new SpinLockPlayerNode(0, 2);
+		node.lock();
+		final Thread waiter = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					node.lock();
+					counter++;
+					node.unlock();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		waiter.start();
+		for (int i = 0; i < 1000
+				&& waiter.getState() != Thread.State.WAITING; i++)
+			Thread.sleep(10);
+		assertEquals("The waiter didn't stop yielding", Thread.State.WAITING,
+				waiter.getState());
+		node.unlock();
+		waiter.join(10000);
+		assertFalse("The waiter wasn't woken up", waiter.isAlive());
+		assertEquals("The waiter didn't get the lock", 1, counter);
+	}
+}
@@ -11,9 +11,11 @@ import java.nio.file.Path;
 import java.util.Random;
 
 import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMDiscounting;
 import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMState;
 import net.funkyjava.gametheory.cscfrm.core.loading.CSCFRMExecutionLoaderConfig;
 import net.funkyjava.gametheory.cscfrm.impl.game.nodes.DefaultPlayerNode;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
 import net.funkyjava.gametheory.cscfrm.util.game.helpers.ArraysIterator;
 
 import org.junit.AfterClass;
@@ -194,6 +196,69 @@ public class FileChannelLoaderTest {
 		}
 	}
 
+	/**
+	 * Save nodes backed by a single precision store in a single precision file
+	 * and load them in array backed nodes
+	 * 
+	 * @throws Exception
+	 *             unexpected exception
+	 */
+	@Test
+	public void testFloatPrecisionFlatStore() throws Exception {
+		final FlatNodesStore store = new FlatNodesStore(1, true);
+		final DefaultPlayerNode[] flatNodes = new DefaultPlayerNode[NB_PLN];
+		for (int i = 0; i < NB_PLN; i++) {
+			flatNodes[i] = new DefaultPlayerNode(i, i + 2, store);
+			for (int j = 0; j < i + 2; j++) {
+				flatNodes[i].setRegret(j, rand.nextDouble());
+				flatNodes[i].setStrategySum(j, rand.nextDouble());
+			}
+		}
+		try (final FileChannelLoader<DefaultPlayerNode> loader = new FileChannelLoader<DefaultPlayerNode>(
+				folder.getRoot().toPath().resolve("float"),
+				new CSCFRMExecutionLoaderConfig(false, true))) {
+			loader.save(ArraysIterator.get(flatNodes), baseState);
+			loader.loadPlayerNodes(ArraysIterator.get(loadedNodes));
+		}
+		for (int i = 0; i < NB_PLN; i++) {
+			assertArrayEquals("Strat sum are not equals",
+					flatNodes[i].getStrategySum(), loadedNodes[i].stratSum, 0);
+			assertArrayEquals("Regret sum are not equals",
+					flatNodes[i].getRegret(), loadedNodes[i].regretSum, 0);
+			assertArrayEquals("Average strategies are not equals",
+					flatNodes[i].getAvgStrategy(),
+					loadedNodes[i].getAvgStrategy(), 1e-12);
+		}
+		resetLoadedNodes();
+	}
+
+	/**
+	 * Save and load a state with a discounting schedule
+	 * 
+	 * @throws Exception
+	 *             unexpected exception
+	 */
+	@Test
+	public void testDiscountingState() throws Exception {
+		final CSCFRMDiscounting discounting = CSCFRMDiscounting.dcfr();
+		try (final FileChannelLoader<DefaultPlayerNode> loader = new FileChannelLoader<DefaultPlayerNode>(
+				folder.getRoot().toPath().resolve("discounting"),
+				new CSCFRMExecutionLoaderConfig(true))) {
+			loader.save(ArraysIterator.get(baseNodes), new CSCFRMState(
+					baseState.getNbIter(), baseState.getGameUtilSum(),
+					discounting));
+			loader.loadPlayerNodes(ArraysIterator.get(loadedNodes));
+			final CSCFRMState state = loader.loadState();
+			assertEquals("Discounting schedule doesn't match", discounting,
+					state.getDiscounting());
+			assertEquals("Loaded nbIter doesn't match", baseState.getNbIter(),
+					state.getNbIter());
+		}
+		for (int j = 0; j < NB_PLN; j++)
+			checkEquals(loadedNodes[j], baseNodes[j], true);
+		resetLoadedNodes();
+	}
+
 	@SuppressWarnings("resource")
 	private void wrongConfigLoad(Path path, CSCFRMExecutionLoaderConfig conf)
 			throws IOException {
@@ -0,0 +1,38 @@
+package net.funkyjava.gametheory.cscfrm.model.game;
+
+/**
+ * Interface for games whose chance outcomes of an iteration can be enumerated
+ * as deals, and whose tree has the same shape for all deals : only the player
+ * nodes and terminal nodes reached differ. Such games can be compiled once
+ * into a flat tape that engines walk without calling the game.
+ * 
+ * @author Pierre Mardon
+ * 
+ */
+public interface CSCFRMChanceIndexedGame extends CSCFRMBaseGame {
+
+	/**
+	 * Gets the number of deals.
+	 * 
+	 * @return the number of deals
+	 */
+	int getNbDeals();
+
+	/**
+	 * Gets the probability of a deal.
+	 * 
+	 * @param deal
+	 *            the deal's index
+	 * @return the deal's probability
+	 */
+	double getDealProbability(int deal);
+
+	/**
+	 * Called before walking the game's tree for a given deal, instead of
+	 * {@link #onIterationStart()}.
+	 * 
+	 * @param deal
+	 *            the deal's index
+	 */
+	void onIterationStart(int deal);
+}
@@ -0,0 +1,23 @@
+package net.funkyjava.gametheory.cscfrm.model.game;
+
+import java.util.Random;
+
+import net.funkyjava.gametheory.cscfrm.model.random.CSCFRMRandom;
+
+/**
+ * A game whose chance draws use a pluggable random. Engines set their own
+ * random to their game, so that a seeded execution is reproducible.
+ *
+ * @author Pierre Mardon
+ */
+public interface CSCFRMSeedableGame {
+
+	/**
+	 * Sets the random used by the game's chance draws. It will only be used by
+	 * the thread training the game, so it can be a {@link CSCFRMRandom}.
+	 *
+	 * @param rand
+	 *            the random
+	 */
+	void setRandom(Random rand);
+}
@@ -0,0 +1,197 @@
+package net.funkyjava.gametheory.cscfrm.model.game.nodes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * Contiguous storage shared by player nodes. Instead of owning two small
+ * arrays, a player node backed by a store is given a segment of {@link #data}
+ * starting at its {@link Node#offset} : its cumulative regret for each action
+ * followed by its strategy sum for each action.
+ * <p>
+ * Segments are allocated while the game is built. The data array may be
+ * reallocated on each allocation, so it must always be read through
+ * {@link #data} and never cached across allocations.
+ * </p>
+ * <p>
+ * In single precision mode, values are stored in {@link #floatData} and
+ * {@link #data} is null. This halves the memory footprint and bandwidth when
+ * double precision isn't needed.
+ * </p>
+ * <p>
+ * In padded mode, each segment is rounded up to whole cache lines and
+ * followed by a cache line of padding, so that two segments never share a
+ * cache line whatever the array's alignment. Threads updating nodes created
+ * next to each other then don't invalidate each other's lines, at the cost of
+ * memory : worth it on games small enough for their hot nodes to be updated
+ * by several threads at once, not when the store must fit in memory. The
+ * nodes objects must be padded as well, see the spin lock nodes provider.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public final class FlatNodesStore {
+
+	/** The assumed cache line size, in bytes. */
+	public static final int cacheLineBytes = 64;
+
+	/**
+	 * The maximum number of slots. Some VMs reserve header words in arrays and
+	 * can't allocate one of {@link Integer#MAX_VALUE} elements.
+	 */
+	public static final int maxSize = Integer.MAX_VALUE - 8;
+
+	/** The nodes data in double precision mode, null otherwise. */
+	public double[] data;
+
+	/** The nodes data in single precision mode, null otherwise. */
+	public float[] floatData;
+
+	/** True when values are stored in single precision. */
+	public final boolean floatPrecision;
+
+	/** True when segments are padded to their own cache lines. */
+	public final boolean padded;
+
+	/** The number of slots in a cache line, zero when not padded. */
+	private final int lineSlots;
+
+	/** The number of slots already allocated. */
+	private int size = 0;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param initialCapacity
+	 *            the initial number of slots, should be around twice the total
+	 *            number of player actions of the game
+	 * @param floatPrecision
+	 *            true to store values in single precision
+	 * @param padded
+	 *            true to pad segments to their own cache lines
+	 */
+	public FlatNodesStore(int initialCapacity, boolean floatPrecision,
+			boolean padded) {
+		checkArgument(initialCapacity > 0 && initialCapacity <= maxSize,
+				"The initial capacity must be > 0 and <= %s", maxSize);
+		this.floatPrecision = floatPrecision;
+		this.padded = padded;
+		lineSlots = padded ? cacheLineBytes / (floatPrecision ? 4 : 8) : 0;
+		if (floatPrecision)
+			floatData = new float[initialCapacity];
+		else
+			data = new double[initialCapacity];
+	}
+
+	/**
+	 * The Constructor for an unpadded store.
+	 *
+	 * @param initialCapacity
+	 *            the initial number of slots, should be around twice the total
+	 *            number of player actions of the game
+	 * @param floatPrecision
+	 *            true to store values in single precision
+	 */
+	public FlatNodesStore(int initialCapacity, boolean floatPrecision) {
+		this(initialCapacity, floatPrecision, false);
+	}
+
+	/**
+	 * The Constructor for double precision.
+	 * 
+	 * @param initialCapacity
+	 *            the initial number of slots, should be around twice the total
+	 *            number of player actions of the game
+	 */
+	public FlatNodesStore(int initialCapacity) {
+		this(initialCapacity, false);
+	}
+
+	/**
+	 * The Constructor for double precision with a default initial capacity.
+	 */
+	public FlatNodesStore() {
+		this(1024);
+	}
+
+	/**
+	 * Allocates the segment of a new player node.
+	 *
+	 * @param nbActions
+	 *            the number of actions of the node
+	 * @return the offset of the segment
+	 * @throws IllegalArgumentException
+	 *             when the segment would end beyond {@link #maxSize}
+	 */
+	public synchronized int allocate(int nbActions) {
+		checkArgument(nbActions > 0, "The number of actions must be > 0");
+		final int offset = size;
+		long length = 2L * nbActions;
+		if (padded)
+			length = (length + lineSlots - 1) / lineSlots * lineSlots
+					+ lineSlots;
+		checkArgument(length <= maxSize - size,
+				"Flat nodes store capacity exceeded : %s slots allocated, "
+						+ "%s more requested, at most %s", size, length,
+				maxSize);
+		final int newSize = (int) (size + length);
+		final int capacity = floatPrecision ? floatData.length : data.length;
+		if (newSize > capacity) {
+			final int newCapacity = (int) Math.min(maxSize,
+					Math.max(newSize, 2L * capacity));
+			if (floatPrecision)
+				floatData = Arrays.copyOf(floatData, newCapacity);
+			else
+				data = Arrays.copyOf(data, newCapacity);
+		}
+		size = newSize;
+		return offset;
+	}
+
+	/**
+	 * Gets a value.
+	 * 
+	 * @param index
+	 *            the slot index
+	 * @return the value
+	 */
+	public double get(int index) {
+		return floatPrecision ? floatData[index] : data[index];
+	}
+
+	/**
+	 * Sets a value.
+	 * 
+	 * @param index
+	 *            the slot index
+	 * @param value
+	 *            the value
+	 */
+	public void set(int index, double value) {
+		if (floatPrecision)
+			floatData[index] = (float) value;
+		else
+			data[index] = value;
+	}
+
+	/**
+	 * Gets the number of allocated slots.
+	 *
+	 * @return the number of allocated slots
+	 */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	/**
+	 * Releases the unused capacity. Should be called when the game is built.
+	 */
+	public synchronized void trimToSize() {
+		if (floatPrecision) {
+			if (size < floatData.length)
+				floatData = Arrays.copyOf(floatData, size);
+		} else if (size < data.length)
+			data = Arrays.copyOf(data, size);
+	}
+}
@@ -19,6 +19,14 @@ public abstract class Node implements MinPublicNode {
 	/** For player nodes, the cumulative regret for each action. */
 	public double[] regretSum;
 
+	/**
+	 * For player nodes walked by a variance reduced sampling engine, each
+	 * player's baseline value of each action, indexed by
+	 * {@code player * nbActions + action}. Allocated by the engine on first
+	 * use, null otherwise.
+	 */
+	public double[] baselines;
+
 	/** For terminal nodes, the payoffs. */
 	public double[] payoffs;
 
@@ -34,6 +42,31 @@ public abstract class Node implements MinPublicNode {
 	/** For player nodes, the realization weight sum. */
 	public double realWeightSum = 0;
 
+	/** For player nodes, the number of actions. */
+	public int nbActions;
+
+	/**
+	 * For player nodes backed by a {@link FlatNodesStore}, the store. Null
+	 * when the node owns its {@link #regretSum} and {@link #stratSum} arrays,
+	 * which are null otherwise : like the other fields of this class, both
+	 * layouts' fields are kept in every node so that engines read them without
+	 * casts.
+	 */
+	public FlatNodesStore store;
+
+	/**
+	 * For player nodes backed by a {@link FlatNodesStore}, the offset of the
+	 * node's segment in the store.
+	 */
+	public int offset = -1;
+
+	/**
+	 * For player nodes, when the engine discounts iterations, the first
+	 * iteration whose discount wasn't applied yet to the regrets and strategy
+	 * sums. Zero when the node was never discounted.
+	 */
+	public long discountIter = 0;
+
 	/**
 	 * The Constructor for a chance node.
 	 */
@@ -57,6 +90,28 @@ public abstract class Node implements MinPublicNode {
 		bType = Type.PLAYER.getByteType();
 		stratSum = new double[nbPlayerAction];
 		regretSum = new double[nbPlayerAction];
+		nbActions = nbPlayerAction;
+		this.player = player;
+		payoffs = null;
+		id = -1;
+	}
+
+	/**
+	 * The Constructor for a player node backed by a {@link FlatNodesStore}.
+	 * 
+	 * @param player
+	 *            the player index
+	 * @param nbPlayerAction
+	 *            the number of player possible actions
+	 * @param store
+	 *            the store in which the node's segment will be allocated
+	 */
+	protected Node(int player, int nbPlayerAction, FlatNodesStore store) {
+		bType = Type.PLAYER.getByteType();
+		stratSum = regretSum = null;
+		nbActions = nbPlayerAction;
+		this.store = store;
+		offset = store.allocate(nbPlayerAction);
 		this.player = player;
 		payoffs = null;
 		id = -1;
@@ -20,21 +20,112 @@ public abstract class PlayerNode extends Node {
 	}
 
 	/**
-	 * Gets the strategy sum.
+	 * The Constructor for a player node backed by a {@link FlatNodesStore}.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param nbPlayerActions
+	 *            the nb player actions
+	 * @param store
+	 *            the store
+	 */
+	protected PlayerNode(int player, int nbPlayerActions, FlatNodesStore store) {
+		super(player, nbPlayerActions, store);
+	}
+
+	/**
+	 * Gets the strategy sum. For nodes backed by a {@link FlatNodesStore}, a
+	 * copy is returned.
 	 * 
 	 * @return the strategy sum
 	 */
 	public double[] getStrategySum() {
-		return stratSum;
+		if (stratSum != null)
+			return stratSum;
+		final double[] res = new double[nbActions];
+		for (int i = 0; i < nbActions; i++)
+			res[i] = store.get(offset + nbActions + i);
+		return res;
 	}
 
 	/**
-	 * Gets the cumulative regret array.
+	 * Gets the cumulative regret array. For nodes backed by a
+	 * {@link FlatNodesStore}, a copy is returned.
 	 * 
 	 * @return the regret array
 	 */
 	public double[] getRegret() {
-		return regretSum;
+		if (regretSum != null)
+			return regretSum;
+		final double[] res = new double[nbActions];
+		for (int i = 0; i < nbActions; i++)
+			res[i] = store.get(offset + i);
+		return res;
+	}
+
+	/**
+	 * Gets the strategy sum of an action.
+	 * 
+	 * @param action
+	 *            the action index
+	 * @return the strategy sum
+	 */
+	public double getStrategySum(int action) {
+		if (stratSum != null)
+			return stratSum[action];
+		return store.get(offset + nbActions + action);
+	}
+
+	/**
+	 * Sets the strategy sum of an action.
+	 * 
+	 * @param action
+	 *            the action index
+	 * @param value
+	 *            the strategy sum
+	 */
+	public void setStrategySum(int action, double value) {
+		if (stratSum != null)
+			stratSum[action] = value;
+		else
+			store.set(offset + nbActions + action, value);
+	}
+
+	/**
+	 * Gets the cumulative regret of an action.
+	 * 
+	 * @param action
+	 *            the action index
+	 * @return the cumulative regret
+	 */
+	public double getRegret(int action) {
+		if (regretSum != null)
+			return regretSum[action];
+		return store.get(offset + action);
+	}
+
+	/**
+	 * Sets the cumulative regret of an action.
+	 * 
+	 * @param action
+	 *            the action index
+	 * @param value
+	 *            the cumulative regret
+	 */
+	public void setRegret(int action, double value) {
+		if (regretSum != null)
+			regretSum[action] = value;
+		else
+			store.set(offset + action, value);
+	}
+
+	/**
+	 * Gets the number of actions.
+	 * 
+	 * @return the number of actions
+	 */
+	public int getNbActions() {
+		return nbActions;
 	}
 
 	/**
@@ -43,12 +134,8 @@ public abstract class PlayerNode extends Node {
 	 * @return the average strategy
 	 */
 	public double[] getAvgStrategy() {
-		double tot = 0;
-		for (int i = 0; i < stratSum.length; i++)
-			tot += stratSum[i];
-		final double[] res = new double[stratSum.length];
-		for (int i = 0; i < stratSum.length; i++)
-			res[i] = stratSum[i] / tot;
+		final double[] res = new double[nbActions];
+		readAvgStrategy(res);
 		return res;
 	}
 
@@ -60,10 +147,27 @@ public abstract class PlayerNode extends Node {
 	 */
 	public void readAvgStrategy(double[] dest) {
 		double tot = 0;
-		for (int i = 0; i < stratSum.length; i++)
-			tot += stratSum[i];
-		for (int i = 0; i < stratSum.length; i++)
-			dest[i] = stratSum[i] / tot;
+		if (stratSum != null) {
+			for (int i = 0; i < nbActions; i++)
+				tot += stratSum[i];
+			for (int i = 0; i < nbActions; i++)
+				dest[i] = stratSum[i] / tot;
+			return;
+		}
+		final int start = offset + nbActions;
+		if (store.floatPrecision) {
+			final float[] sums = store.floatData;
+			for (int i = 0; i < nbActions; i++)
+				tot += sums[start + i];
+			for (int i = 0; i < nbActions; i++)
+				dest[i] = sums[start + i] / tot;
+			return;
+		}
+		final double[] sums = store.data;
+		for (int i = 0; i < nbActions; i++)
+			tot += sums[start + i];
+		for (int i = 0; i < nbActions; i++)
+			dest[i] = sums[start + i] / tot;
 	}
 
 	/**
@@ -0,0 +1,36 @@
+package net.funkyjava.gametheory.cscfrm.model.game.nodes.provider;
+
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.FlatNodesStore;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+
+/**
+ * A {@link NodesProvider} whose player nodes may be backed by a
+ * {@link FlatNodesStore}. Executors use it to build the copies of a game in
+ * their own store : built in the same order, the copies segments have the
+ * same offsets as the game's ones, so copying the player nodes data is a
+ * single array copy.
+ *
+ * @author Pierre Mardon
+ *
+ * @param <PNode>
+ *            the players nodes type
+ */
+public interface FlatStoreNodesProvider<PNode extends PlayerNode> extends
+		NodesProvider<PNode> {
+
+	/**
+	 * Gets the store backing the player nodes.
+	 *
+	 * @return the store, or null when player nodes own their arrays
+	 */
+	FlatNodesStore getStore();
+
+	/**
+	 * Gets a provider of the same player nodes type, backed by another store.
+	 *
+	 * @param store
+	 *            the store in which player nodes segments will be allocated
+	 * @return the provider
+	 */
+	FlatStoreNodesProvider<PNode> withStore(FlatNodesStore store);
+}
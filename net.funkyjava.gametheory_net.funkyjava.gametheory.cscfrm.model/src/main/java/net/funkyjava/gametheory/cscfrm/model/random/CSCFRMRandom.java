@@ -0,0 +1,197 @@
+package net.funkyjava.gametheory.cscfrm.model.random;
+
+import java.util.Random;
+
+/**
+ * Fast splittable random, implementing the SplitMix64 algorithm of Java 8's
+ * SplittableRandom behind the {@link Random} interface so that it can be
+ * plugged wherever a random is expected. {@link #split()} derives an
+ * independent stream : from a master seed, executors give each thread and
+ * each game copy its own stream, and runs become reproducible.
+ * <p>
+ * Unlike {@link Random}, instances aren't thread-safe : each one must be used
+ * by a single thread.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMRandom extends Random {
+
+	private static final long serialVersionUID = -1946354285216557154L;
+
+	/** The gamma of the root streams. */
+	private static final long goldenGamma = 0x9e3779b97f4a7c15L;
+
+	/** The double unit. */
+	private static final double doubleUnit = 0x1.0p-53;
+
+	/** The seed, incremented by {@link #gamma} on each draw. */
+	private long seed;
+
+	/** The stream's odd increment. */
+	private long gamma;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public CSCFRMRandom(long seed) {
+		this(seed, goldenGamma);
+	}
+
+	/**
+	 * The Constructor for split streams.
+	 *
+	 * @param seed
+	 *            the seed
+	 * @param gamma
+	 *            the odd increment
+	 */
+	private CSCFRMRandom(long seed, long gamma) {
+		super(0);
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Creates a new random whose stream is independent of this one's. Splits
+	 * of splits are independent too.
+	 *
+	 * @return the new random
+	 */
+	public CSCFRMRandom split() {
+		return new CSCFRMRandom(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * Sets the seed, keeping the stream's increment.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	@Override
+	public void setSeed(long seed) {
+		// Also called by the super constructor, overridden right after
+		this.seed = seed;
+	}
+
+	/**
+	 * Advances the seed.
+	 *
+	 * @return the new seed
+	 */
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#next(int)
+	 */
+	@Override
+	protected int next(int bits) {
+		return (int) (mix64(nextSeed()) >>> (64 - bits));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#nextInt()
+	 */
+	@Override
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#nextInt(int)
+	 */
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		int r = mix32(nextSeed());
+		final int m = bound - 1;
+		if ((bound & m) == 0)
+			return r & m;
+		// Rejects the values that would bias the modulo
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0;)
+			u = mix32(nextSeed()) >>> 1;
+		return r;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#nextLong()
+	 */
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#nextDouble()
+	 */
+	@Override
+	public double nextDouble() {
+		return (mix64(nextSeed()) >>> 11) * doubleUnit;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Random#nextBoolean()
+	 */
+	@Override
+	public boolean nextBoolean() {
+		return mix32(nextSeed()) < 0;
+	}
+
+	/**
+	 * Murmur3-like 64 bits finalizer.
+	 *
+	 * @param z
+	 *            the seed
+	 * @return the mixed value
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * 32 bits variant of {@link #mix64(long)}.
+	 *
+	 * @param z
+	 *            the seed
+	 * @return the mixed value
+	 */
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	/**
+	 * Derives a split stream's increment, odd and with enough bit transitions.
+	 *
+	 * @param z
+	 *            the seed
+	 * @return the increment
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL
+				: z;
+	}
+}
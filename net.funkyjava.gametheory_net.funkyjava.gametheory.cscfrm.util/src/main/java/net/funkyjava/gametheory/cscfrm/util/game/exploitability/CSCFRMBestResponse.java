@@ -0,0 +1,475 @@
+package net.funkyjava.gametheory.cscfrm.util.game.exploitability;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lombok.extern.slf4j.Slf4j;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMGameTape;
+import net.funkyjava.gametheory.cscfrm.core.engine.CSCFRMTerminalUtilReader;
+import net.funkyjava.gametheory.cscfrm.model.game.CSCFRMChanceIndexedGame;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.Node;
+import net.funkyjava.gametheory.cscfrm.model.game.nodes.PlayerNode;
+
+/**
+ * Computes the exact best response of each player against the other players
+ * average strategies in a {@link CSCFRMChanceIndexedGame}, see
+ * {@link CSCFRMExploitability}. The game is compiled once into a
+ * {@link CSCFRMGameTape}; each computation then reads the player nodes
+ * average strategies and walks the tape, the deals being split between the
+ * tasks of a {@link ForkJoinPool}.
+ * <p>
+ * An information set is a player node : all the tape's positions and deals
+ * that reach the same node are solved together. The game must have perfect
+ * recall. The nodes can be trained while a computation runs, but the game
+ * instance given to the constructor must not be used by an engine while it
+ * compiles.
+ * </p>
+ *
+ * @author Pierre Mardon
+ */
+@Slf4j
+public class CSCFRMBestResponse {
+
+	/** The tape. */
+	private final CSCFRMGameTape tape;
+
+	/** The terminal utility reader, may be null. */
+	private final CSCFRMTerminalUtilReader utilReader;
+
+	/** The pool. */
+	private final ForkJoinPool pool;
+
+	/** The number of players. */
+	private final int nbPlayers;
+
+	/** The number of positions. */
+	private final int nbPositions;
+
+	/** The number of deals. */
+	private final int nbDeals;
+
+	/** The maximum number of player actions. */
+	private final int maxNbActions;
+
+	/** The number of deals under which a task isn't split. */
+	private final int threshold;
+
+	/**
+	 * For each player, the player's positions grouped by the number of the
+	 * player's positions above them.
+	 */
+	private final int[][][] levels;
+
+	/** The average strategies, indexed by deal * nbPositions + position. */
+	private final double[][] strategies;
+
+	/** The terminal utilities, indexed by deal * nbPositions + position. */
+	private final double[][] terminalUtils;
+
+	/**
+	 * The Constructor for games whose terminal nodes hold their payoffs, on a
+	 * new pool using all processors.
+	 *
+	 * @param game
+	 *            the game
+	 */
+	public CSCFRMBestResponse(CSCFRMChanceIndexedGame game) {
+		this(game, null, new ForkJoinPool());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param game
+	 *            the game
+	 * @param utilReader
+	 *            the reader for terminal nodes having an id, may be null when
+	 *            the terminal nodes hold their payoffs
+	 * @param pool
+	 *            the pool that will run the computations
+	 */
+	public CSCFRMBestResponse(CSCFRMChanceIndexedGame game,
+			CSCFRMTerminalUtilReader utilReader, ForkJoinPool pool) {
+		checkNotNull(pool, "The pool is null");
+		this.tape = CSCFRMGameTape.compile(game);
+		this.utilReader = utilReader;
+		this.pool = pool;
+		nbPlayers = game.getNbPlayers();
+		nbPositions = tape.getNbPositions();
+		nbDeals = tape.getNbDeals();
+		maxNbActions = game.getMaxNbPlActions();
+		threshold = Math.max(1, nbDeals / (8 * pool.getParallelism()));
+		strategies = new double[nbDeals * nbPositions][];
+		terminalUtils = new double[nbDeals * nbPositions][];
+		levels = new int[nbPlayers][][];
+		for (int p = 0; p < nbPlayers; p++)
+			levels[p] = computeLevels(p);
+		log.info("Best response calculator ready for game {}", game.getUId());
+	}
+
+	/**
+	 * Groups a player's positions by their number of the player's positions
+	 * above them. With perfect recall, all the positions of an information
+	 * set are at the same level, and the information sets below it are at
+	 * greater levels.
+	 *
+	 * @param player
+	 *            the player
+	 * @return the positions, indexed by level
+	 */
+	private int[][] computeLevels(final int player) {
+		final CSCFRMGameTape tape = this.tape;
+		final int[] level = new int[nbPositions];
+		final int[] counts = new int[nbPositions + 1];
+		int maxLevel = -1;
+		int pos, a, child, nextLevel;
+		// Children positions are greater than their parent's
+		for (pos = 0; pos < nbPositions; pos++) {
+			if (tape.getType(pos) != 1)
+				continue;
+			nextLevel = level[pos];
+			if (tape.getPlayer(pos) == player) {
+				counts[level[pos]]++;
+				maxLevel = Math.max(maxLevel, level[pos]);
+				nextLevel++;
+			}
+			for (a = 0; a < tape.getNbActions(pos); a++) {
+				child = tape.getChild(pos, a);
+				level[child] = nextLevel;
+			}
+		}
+		final int[][] res = new int[maxLevel + 1][];
+		for (int l = 0; l <= maxLevel; l++)
+			res[l] = new int[counts[l]];
+		Arrays.fill(counts, 0);
+		for (pos = 0; pos < nbPositions; pos++)
+			if (tape.getType(pos) == 1 && tape.getPlayer(pos) == player)
+				res[level[pos]][counts[level[pos]]++] = pos;
+		return res;
+	}
+
+	/**
+	 * Computes the profile and best response utilities of each player.
+	 *
+	 * @return the result
+	 * @throws InterruptedException
+	 *             interrupted while locking a node or reading a terminal
+	 *             utility
+	 */
+	public synchronized CSCFRMExploitability compute()
+			throws InterruptedException {
+		readSnapshot();
+		final double[] profileUtil = new double[nbPlayers];
+		final double[] bestResponseUtil = new double[nbPlayers];
+		final double[][] dealsUtil = new double[nbDeals][];
+		runOnDeals(new DealTask() {
+			@Override
+			public void run(int deal) {
+				dealsUtil[deal] = profileUtil(deal * nbPositions, 0);
+			}
+		});
+		int p, d;
+		for (d = 0; d < nbDeals; d++)
+			for (p = 0; p < nbPlayers; p++)
+				profileUtil[p] += tape.getDealProbability(d) * dealsUtil[d][p];
+		for (p = 0; p < nbPlayers; p++)
+			bestResponseUtil[p] = bestResponse(p);
+		return new CSCFRMExploitability(profileUtil, bestResponseUtil);
+	}
+
+	/**
+	 * Reads the average strategy of each player node, and the utility of
+	 * each terminal node.
+	 *
+	 * @throws InterruptedException
+	 *             interrupted while locking a node or reading a terminal
+	 *             utility
+	 */
+	private void readSnapshot() throws InterruptedException {
+		final Map<Node, double[]> read = new IdentityHashMap<>();
+		Node node;
+		double[] values;
+		int index, a;
+		double sum;
+		for (int deal = 0; deal < nbDeals; deal++)
+			for (int pos = 0; pos < nbPositions; pos++) {
+				index = deal * nbPositions + pos;
+				node = tape.getNode(deal, pos);
+				if ((values = read.get(node)) == null && node.bType == 2) {
+					values = new double[nbPlayers];
+					if (utilReader == null || node.id < 0)
+						System.arraycopy(node.payoffs, 0, values, 0, nbPlayers);
+					else
+						utilReader.read(node.id, values);
+					read.put(node, values);
+				} else if (values == null) {
+					values = new double[node.nbActions];
+					node.lock();
+					((PlayerNode) node).readAvgStrategy(values);
+					node.unlock();
+					sum = 0;
+					for (a = 0; a < values.length; a++)
+						sum += values[a];
+					// A node that was never reached plays uniformly
+					if (!(sum > 0))
+						Arrays.fill(values, 1d / values.length);
+					read.put(node, values);
+				}
+				if (node.bType == 2)
+					terminalUtils[index] = values;
+				else
+					strategies[index] = values;
+			}
+	}
+
+	/**
+	 * Computes the utilities of a position's subtree when all players follow
+	 * their average strategy.
+	 *
+	 * @param offset
+	 *            the deal's offset
+	 * @param position
+	 *            the position
+	 * @return the utilities
+	 */
+	private double[] profileUtil(final int offset, final int position) {
+		if (tape.getType(position) == 2)
+			return terminalUtils[offset + position];
+		final double[] strat = strategies[offset + position];
+		final double[] res = new double[nbPlayers];
+		double[] childUtil;
+		for (int a = 0; a < strat.length; a++) {
+			if (strat[a] == 0)
+				continue;
+			childUtil = profileUtil(offset, tape.getChild(position, a));
+			for (int p = 0; p < nbPlayers; p++)
+				res[p] += strat[a] * childUtil[p];
+		}
+		return res;
+	}
+
+	/**
+	 * Computes a player's best response utility. The player's information
+	 * sets are solved from the deepest level to the root.
+	 *
+	 * @param player
+	 *            the player
+	 * @return the best response utility
+	 */
+	private double bestResponse(final int player) {
+		final int size = nbDeals * nbPositions;
+		// The opponents and chance reach of each position, per deal
+		final double[] reach = new double[size];
+		// The best response value of the player's positions, once solved
+		final double[] values = new double[size];
+		// The value of each action of the player's positions being solved
+		final double[] actionValues = new double[size * maxNbActions];
+		runOnDeals(new DealTask() {
+			@Override
+			public void run(int deal) {
+				computeReach(player, deal, reach);
+			}
+		});
+		final int[][] levels = this.levels[player];
+		final Map<Node, double[]> infoSets = new IdentityHashMap<>();
+		for (int l = levels.length - 1; l >= 0; l--) {
+			final int[] positions = levels[l];
+			runOnDeals(new DealTask() {
+				@Override
+				public void run(int deal) {
+					final int offset = deal * nbPositions;
+					int pos, a;
+					for (int i = 0; i < positions.length; i++) {
+						pos = positions[i];
+						if (reach[offset + pos] == 0)
+							continue;
+						for (a = 0; a < tape.getNbActions(pos); a++)
+							actionValues[(offset + pos) * maxNbActions + a] = bestResponseValue(
+									player, offset, tape.getChild(pos, a),
+									values);
+					}
+				}
+			});
+			// Sum the actions values over each information set
+			infoSets.clear();
+			int deal, i, pos, index, a, nbActions;
+			double[] sums;
+			for (deal = 0; deal < nbDeals; deal++)
+				for (i = 0; i < positions.length; i++) {
+					pos = positions[i];
+					index = deal * nbPositions + pos;
+					if (reach[index] == 0)
+						continue;
+					final Node node = tape.getNode(deal, pos);
+					nbActions = node.nbActions;
+					if ((sums = infoSets.get(node)) == null)
+						infoSets.put(node, sums = new double[nbActions]);
+					for (a = 0; a < nbActions; a++)
+						sums[a] += reach[index]
+								* actionValues[index * maxNbActions + a];
+				}
+			// Each position takes the value of its information set's best
+			// action
+			for (deal = 0; deal < nbDeals; deal++)
+				for (i = 0; i < positions.length; i++) {
+					pos = positions[i];
+					index = deal * nbPositions + pos;
+					if (reach[index] == 0)
+						continue;
+					sums = infoSets.get(tape.getNode(deal, pos));
+					values[index] = actionValues[index * maxNbActions
+							+ argMax(sums)];
+				}
+		}
+		double res = 0;
+		for (int deal = 0; deal < nbDeals; deal++)
+			res += tape.getDealProbability(deal)
+					* bestResponseValue(player, deal * nbPositions, 0, values);
+		return res;
+	}
+
+	/**
+	 * Computes the opponents and chance reach of each position for a deal.
+	 *
+	 * @param player
+	 *            the best responding player
+	 * @param deal
+	 *            the deal
+	 * @param reach
+	 *            the destination array
+	 */
+	private void computeReach(final int player, final int deal,
+			final double[] reach) {
+		final int offset = deal * nbPositions;
+		reach[offset] = tape.getDealProbability(deal);
+		double[] strat;
+		int pos, a;
+		// Children positions are greater than their parent's
+		for (pos = 0; pos < nbPositions; pos++) {
+			if (tape.getType(pos) != 1)
+				continue;
+			strat = strategies[offset + pos];
+			for (a = 0; a < strat.length; a++)
+				reach[offset + tape.getChild(pos, a)] = reach[offset + pos]
+						* (tape.getPlayer(pos) == player ? 1 : strat[a]);
+		}
+	}
+
+	/**
+	 * Computes the best responding player's value of a position's subtree,
+	 * knowing the values of its solved positions below.
+	 *
+	 * @param player
+	 *            the best responding player
+	 * @param offset
+	 *            the deal's offset
+	 * @param position
+	 *            the position
+	 * @param values
+	 *            the values of the player's solved positions
+	 * @return the value
+	 */
+	private double bestResponseValue(final int player, final int offset,
+			final int position, final double[] values) {
+		if (tape.getType(position) == 2)
+			return terminalUtils[offset + position][player];
+		if (tape.getPlayer(position) == player)
+			return values[offset + position];
+		final double[] strat = strategies[offset + position];
+		double res = 0;
+		for (int a = 0; a < strat.length; a++)
+			if (strat[a] != 0)
+				res += strat[a]
+						* bestResponseValue(player, offset,
+								tape.getChild(position, a), values);
+		return res;
+	}
+
+	/**
+	 * Gets the index of an array's maximum.
+	 *
+	 * @param values
+	 *            the array
+	 * @return the maximum's index
+	 */
+	private static int argMax(final double[] values) {
+		int res = 0;
+		for (int a = 1; a < values.length; a++)
+			if (values[a] > values[res])
+				res = a;
+		return res;
+	}
+
+	/**
+	 * Runs a task on all deals in the pool.
+	 *
+	 * @param task
+	 *            the task
+	 */
+	private void runOnDeals(final DealTask task) {
+		pool.invoke(new DealsAction(task, 0, nbDeals));
+	}
+
+	/**
+	 * A computation on a deal.
+	 */
+	private interface DealTask {
+
+		/**
+		 * Runs the computation.
+		 *
+		 * @param deal
+		 *            the deal
+		 */
+		void run(int deal);
+	}
+
+	/**
+	 * Fork-join action running a task on a range of deals.
+	 */
+	private class DealsAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DealTask task;
+		private final int from, to;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param task
+		 *            the task
+		 * @param from
+		 *            the first deal
+		 * @param to
+		 *            the deal after the last one
+		 */
+		DealsAction(DealTask task, int from, int to) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int deal = from; deal < to; deal++)
+					task.run(deal);
+				return;
+			}
+			final int mid = (from + to) >>> 1;
+			invokeAll(new DealsAction(task, from, mid), new DealsAction(task,
+					mid, to));
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package net.funkyjava.gametheory.cscfrm.util.game.exploitability;
+
+/**
+ * Result of a {@link CSCFRMBestResponse} computation : for each player, the
+ * utility of the average strategies profile and the utility of a best
+ * response against the other players average strategies.
+ *
+ * @author Pierre Mardon
+ */
+public class CSCFRMExploitability {
+
+	/** The profile utility of each player. */
+	private final double[] profileUtil;
+
+	/** The best response utility of each player. */
+	private final double[] bestResponseUtil;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param profileUtil
+	 *            the profile utility of each player
+	 * @param bestResponseUtil
+	 *            the best response utility of each player
+	 */
+	public CSCFRMExploitability(double[] profileUtil, double[] bestResponseUtil) {
+		this.profileUtil = profileUtil;
+		this.bestResponseUtil = bestResponseUtil;
+	}
+
+	/**
+	 * Gets the number of players.
+	 *
+	 * @return the number of players
+	 */
+	public int getNbPlayers() {
+		return profileUtil.length;
+	}
+
+	/**
+	 * Gets a player's utility when all players follow their average strategy.
+	 *
+	 * @param player
+	 *            the player
+	 * @return the profile utility
+	 */
+	public double getProfileUtil(int player) {
+		return profileUtil[player];
+	}
+
+	/**
+	 * Gets a player's best response utility against the other players
+	 * average strategies.
+	 *
+	 * @param player
+	 *            the player
+	 * @return the best response utility
+	 */
+	public double getBestResponseUtil(int player) {
+		return bestResponseUtil[player];
+	}
+
+	/**
+	 * Gets what a player would gain by switching to a best response. It's
+	 * never negative, and zero for all players at equilibrium.
+	 *
+	 * @param player
+	 *            the player
+	 * @return the player's gain
+	 */
+	public double getGain(int player) {
+		return bestResponseUtil[player] - profileUtil[player];
+	}
+
+	/**
+	 * Gets the sum of the players gains.
+	 *
+	 * @return the sum of the players gains
+	 */
+	public double getNashConv() {
+		double res = 0;
+		for (int p = 0; p < profileUtil.length; p++)
+			res += getGain(p);
+		return res;
+	}
+
+	/**
+	 * Gets the mean of the players gains. For two-player zero-sum games, it's
+	 * the mean of the best responses utilities.
+	 *
+	 * @return the exploitability
+	 */
+	public double getExploitability() {
+		return getNashConv() / profileUtil.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("Exploitability ")
+				.append(getExploitability());
+		for (int p = 0; p < profileUtil.length; p++)
+			sb.append(", player ").append(p).append(" gain ")
+					.append(getGain(p));
+		return sb.toString();
+	}
+}
@@ -199,28 +199,37 @@ public class CSCFRMBaseGameValidator {
 						res.valid = false;
 						return;
 					}
-					if (n.regretSum == null) {
-						log.error("Player node regret sum array is null");
-						res.valid = false;
-						return;
-					}
-					if (n.stratSum == null) {
-						log.error("Player node strategy sum array is null");
+					if (n.store == null) {
+						if (n.regretSum == null) {
+							log.error("Player node regret sum array is null");
+							res.valid = false;
+							return;
+						}
+						if (n.stratSum == null) {
+							log.error("Player node strategy sum array is null");
+							res.valid = false;
+							return;
+						}
+						if (n.regretSum.length != n.stratSum.length) {
+							log.error("Player node regret sum length {} differs "
+									+ "from strategy sum length {}",
+									n.regretSum.length, n.stratSum.length);
+							res.valid = false;
+							return;
+						}
+					} else if (n.offset < 0
+							|| n.offset + 2 * n.nbActions > n.store.getSize()) {
+						log.error(
+								"Player node segment [{}, {}[ is out of its store",
+								n.offset, n.offset + 2 * n.nbActions);
 						res.valid = false;
 						return;
 					}
-					if (n.regretSum.length > maxPlAct) {
+					if (n.nbActions > maxPlAct) {
 						log.error(
-								"Player node regret sum array has a length {} "
+								"Player node has a number of actions {} "
 										+ "superior to declared maximum players actions {}",
-								maxPlAct);
-						res.valid = false;
-						return;
-					}
-					if (n.regretSum.length != n.stratSum.length) {
-						log.error("Player node regret sum length {} differs "
-								+ "from strategy sum length {}",
-								n.regretSum.length, n.stratSum.length);
+								n.nbActions, maxPlAct);
 						res.valid = false;
 						return;
 					}
@@ -257,7 +266,7 @@ public class CSCFRMBaseGameValidator {
 				return;
 			}
 			if (n.bType == plB) {
-				if (lastPlAct[depth] == n.regretSum.length - 1) {
+				if (lastPlAct[depth] == n.nbActions - 1) {
 					if (depth == 0)
 						return;
 					depth--;